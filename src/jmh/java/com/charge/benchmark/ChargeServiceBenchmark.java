@@ -0,0 +1,239 @@
+package com.charge.benchmark;
+
+import com.charge.discount.DiscountOutcome;
+import com.charge.entity.ChargeRule;
+import com.charge.entity.DiscountRule;
+import com.charge.entity.Member;
+import com.charge.mapper.ChargeOrderMapper;
+import com.charge.mapper.MemberMapper;
+import com.charge.mapper.OrderDiscountMapper;
+import com.charge.service.ChargeCacheService;
+import com.charge.service.ChargeRuleService;
+import com.charge.service.DiscountRuleService;
+import com.charge.service.impl.ChargeServiceImpl;
+import com.charge.tariff.ChargeRuleSnapshot;
+import com.charge.tariff.CompiledTariff;
+import com.common.cache.LocalCacheManager;
+import com.common.cache.LocalCacheProperties;
+import com.common.utils.OrderNoGenerator;
+import com.parking.mapper.ParkingIotMapper;
+import com.parking.mapper.ParkingRecordMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 出场计费热路径基准测试
+ * calculateAmount：与出场结算相同的路径，从规则快照取已编译的 CompiledTariff 后按入场时间 + 停车分钟数计费（短停 / 过夜 / 多日）
+ * calculateDiscounts：会员 + 优惠规则叠加，会员与规则均命中缓存（Redis 访问不在测量范围内）
+ * 业务订单号生成见 com.common.utils.OrderNoGeneratorBenchmark
+ *
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.include=ChargeServiceBenchmark
+ * 结果默认写入 target/jmh-result.json
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChargeServiceBenchmark {
+
+    private static final int MASK = 1023;
+
+    private static final int USER_COUNT = 256;
+
+    private static final Long LOT_ID = 1L;
+
+    private ChargeServiceImpl chargeService;
+    private MethodHandle calculateDiscounts;
+
+    private ChargeRuleSnapshot ruleSnapshot;
+    private LocalDate exitDate;
+    private LocalDateTime[] inTimes;
+    private long[] minutes;
+    private long[] amounts;
+    private Long[] userIds;
+    private String[] ruleCodes;
+    private int cursor;
+
+    @Setup
+    public void setup() throws Exception {
+        ChargeRule rule = new ChargeRule();
+        rule.setId(1L);
+        rule.setParkingIotId(LOT_ID);
+        rule.setRuleName("首30分钟免费,5元/小时,每日封顶60元");
+        rule.setChargeMode(1);
+        rule.setFreeMinutes(30);
+        rule.setUnitPrice(500);
+        rule.setMaxAmountPerDay(6000);
+        rule.setStatus(1);
+        // 规则在快照构建时编译一次，与 ChargeRuleService.getApplicableTariff 相同
+        ruleSnapshot = ChargeRuleSnapshot.of(Collections.singletonList(rule));
+        exitDate = LocalDate.parse("2025-03-01");
+        CompiledTariff tariff = ruleSnapshot.resolveTariff(LOT_ID, null, exitDate);
+
+        // 会员：约 1/20 免费停车，其余 8~9.5 折
+        Map<Long, Member> members = new HashMap<>();
+        BigDecimal[] rates = {new BigDecimal("0.95"), new BigDecimal("0.90"), new BigDecimal("0.85"),
+                new BigDecimal("0.80")};
+        SplittableRandom random = new SplittableRandom(42);
+        for (long userId = 1; userId <= USER_COUNT; userId++) {
+            Member member = new Member();
+            member.setId(userId);
+            member.setUserId(userId);
+            member.setStatus(1);
+            member.setFreeParking(random.nextInt(20) == 0 ? 1 : 0);
+            member.setDiscountRate(rates[random.nextInt(rates.length)]);
+            members.put(userId, member);
+        }
+        Map<String, DiscountRule> discountRules = new HashMap<>();
+        discountRules.put("PERCENT80", discountRule("PERCENT80", "PERCENT", 80, 1000));
+        discountRules.put("FIXED300", discountRule("FIXED300", "FIXED", 300, null));
+
+        ChargeCacheService cacheService = new PreloadedCacheService(members, discountRules);
+        OrderNoGenerator orderNoGenerator = new OrderNoGenerator(null, 1);
+        chargeService = new ChargeServiceImpl(
+                stub(ParkingRecordMapper.class, null),
+                stub(ParkingIotMapper.class, null),
+                stub(ChargeOrderMapper.class, null),
+                stub(ChargeRuleService.class, null),
+                stub(DiscountRuleService.class, null),
+                stub(MemberMapper.class, null),
+                stub(OrderDiscountMapper.class, null),
+                cacheService,
+                orderNoGenerator,
+                null,
+                null,
+                null,
+                null,
+                null);
+
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(ChargeServiceImpl.class, MethodHandles.lookup());
+        calculateDiscounts = lookup.findVirtual(ChargeServiceImpl.class, "calculateDiscounts",
+                MethodType.methodType(DiscountOutcome.class, long.class, Long.class, String.class));
+
+        // 停车时长分布：短停 70% / 过夜 20% / 多日 10%；约一半会员、三成带优惠券
+        inTimes = new LocalDateTime[MASK + 1];
+        minutes = new long[MASK + 1];
+        amounts = new long[MASK + 1];
+        userIds = new Long[MASK + 1];
+        ruleCodes = new String[MASK + 1];
+        for (int i = 0; i <= MASK; i++) {
+            int bucket = random.nextInt(10);
+            if (bucket < 7) {
+                minutes[i] = random.nextLong(1, 240);
+            } else if (bucket < 9) {
+                minutes[i] = random.nextLong(600, 1080);
+            } else {
+                minutes[i] = random.nextLong(1440, 1440 * 7);
+            }
+            LocalDateTime exitTime = exitDate.atStartOfDay().plusMinutes(random.nextInt(1440));
+            inTimes[i] = exitTime.minusMinutes(minutes[i]);
+            amounts[i] = tariff.calculate(inTimes[i], minutes[i]);
+            userIds[i] = random.nextBoolean() ? random.nextLong(1, USER_COUNT + 1) : null;
+            int ruleBucket = random.nextInt(10);
+            ruleCodes[i] = ruleBucket < 2 ? "PERCENT80" : ruleBucket < 3 ? "FIXED300" : null;
+        }
+    }
+
+    private static DiscountRule discountRule(String code, String type, Integer value, Integer max) {
+        DiscountRule discountRule = new DiscountRule();
+        discountRule.setId(1L);
+        discountRule.setRuleCode(code);
+        discountRule.setRuleName(code);
+        discountRule.setDiscountType(type);
+        discountRule.setDiscountValue(value);
+        discountRule.setMaxDiscount(max);
+        return discountRule;
+    }
+
+    /**
+     * 会员 / 优惠规则已在缓存中的 ChargeCacheService（ChargeCacheService 是具体类，不能用动态代理）
+     * 本地缓存管理器不连接 Redis，只用于满足构造参数
+     */
+    private static final class PreloadedCacheService extends ChargeCacheService {
+
+        private final Map<Long, Member> members;
+        private final Map<String, DiscountRule> discountRules;
+
+        PreloadedCacheService(Map<Long, Member> members, Map<String, DiscountRule> discountRules) {
+            super(null, new LocalCacheManager(null, new LocalCacheProperties()));
+            this.members = members;
+            this.discountRules = discountRules;
+        }
+
+        @Override
+        public Member getMember(Long userId) {
+            return members.get(userId);
+        }
+
+        @Override
+        public DiscountRule getDiscountRule(String ruleCode) {
+            return ruleCode != null ? discountRules.get(ruleCode) : null;
+        }
+    }
+
+    /**
+     * 接口依赖桩：按方法名返回固定结果，基本类型返回默认值
+     */
+    private interface StubAnswer {
+        Object answer(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, StubAnswer answer) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return "toString".equals(method.getName()) ? type.getSimpleName() + "Stub"
+                        : "hashCode".equals(method.getName()) ? System.identityHashCode(proxy) : proxy == args[0];
+            }
+            Object result = answer != null ? answer.answer(method.getName(), args) : null;
+            if (result == null && method.getReturnType().isPrimitive()) {
+                Class<?> returnType = method.getReturnType();
+                if (returnType == boolean.class) {
+                    return false;
+                }
+                if (returnType == long.class) {
+                    return 0L;
+                }
+                if (returnType != void.class) {
+                    return 0;
+                }
+            }
+            return result;
+        });
+    }
+
+    @Benchmark
+    public long calculateAmount() {
+        int i = cursor++ & MASK;
+        return ruleSnapshot.resolveTariff(LOT_ID, null, exitDate).calculate(inTimes[i], minutes[i]);
+    }
+
+    @Benchmark
+    public DiscountOutcome calculateDiscounts() throws Throwable {
+        int i = cursor++ & MASK;
+        return (DiscountOutcome) calculateDiscounts.invokeExact(chargeService, amounts[i], userIds[i], ruleCodes[i]);
+    }
+}
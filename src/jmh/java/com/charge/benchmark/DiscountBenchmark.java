@@ -0,0 +1,101 @@
+package com.charge.benchmark;
+
+import com.charge.discount.BigDecimalDiscountReference;
+import com.charge.discount.DiscountCalculator;
+import com.charge.entity.DiscountRule;
+import com.charge.entity.Member;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 优惠计算基准测试
+ * 对比原 BigDecimal 实现与定点数 DiscountCalculator（会员折扣 + 规则叠加），
+ * 建议加 -prof gc 对比每次调用的分配字节数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiscountBenchmark {
+
+    private static final int MASK = 1023;
+
+    private long[] amounts;
+    private Member[] members;
+    private DiscountRule[] rules;
+    private Function<String, DiscountRule>[] ruleLoaders;
+    private int cursor;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        BigDecimal[] rates = {new BigDecimal("0.95"), new BigDecimal("0.90"), new BigDecimal("0.85"),
+                new BigDecimal("0.80")};
+        DiscountRule percent = rule("PERCENT", 80, 1000);
+        DiscountRule fixed = rule("FIXED", 300, null);
+
+        // 金额分布与停车分布一致：大部分 0~20 元，少量过夜/多日；约一半会员、三成带优惠券
+        SplittableRandom random = new SplittableRandom(42);
+        amounts = new long[MASK + 1];
+        members = new Member[MASK + 1];
+        rules = new DiscountRule[MASK + 1];
+        ruleLoaders = new Function[MASK + 1];
+        for (int i = 0; i <= MASK; i++) {
+            int bucket = random.nextInt(10);
+            amounts[i] = bucket < 7 ? random.nextLong(0, 2000)
+                    : bucket < 9 ? random.nextLong(2000, 6000) : random.nextLong(6000, 42000);
+            if (random.nextBoolean()) {
+                Member member = new Member();
+                member.setId((long) i);
+                member.setStatus(1);
+                member.setFreeParking(random.nextInt(20) == 0 ? 1 : 0);
+                member.setDiscountRate(rates[random.nextInt(rates.length)]);
+                members[i] = member;
+            }
+            int ruleBucket = random.nextInt(10);
+            DiscountRule rule = ruleBucket < 2 ? percent : ruleBucket < 3 ? fixed : null;
+            rules[i] = rule;
+            ruleLoaders[i] = code -> rule;
+        }
+    }
+
+    private static DiscountRule rule(String type, Integer value, Integer max) {
+        DiscountRule rule = new DiscountRule();
+        rule.setId(1L);
+        rule.setRuleCode(type);
+        rule.setRuleName(type);
+        rule.setDiscountType(type);
+        rule.setDiscountValue(value);
+        rule.setMaxDiscount(max);
+        return rule;
+    }
+
+    @Benchmark
+    public long bigDecimal() {
+        int i = cursor++ & MASK;
+        return BigDecimalDiscountReference.calculate(amounts[i], members[i], rules[i]).getPayableAmount();
+    }
+
+    @Benchmark
+    public long fixedPoint() {
+        int i = cursor++ & MASK;
+        DiscountRule rule = rules[i];
+        return DiscountCalculator.calculate(amounts[i], members[i],
+                rule != null ? rule.getRuleCode() : null, ruleLoaders[i]).getPayableAmount();
+    }
+}
@@ -0,0 +1,95 @@
+package com.charge.benchmark;
+
+import com.charge.entity.ChargeRule;
+import com.charge.entity.VO.CalculateFeeResponse;
+import com.common.config.RedisConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis value 序列化基准测试
+ * 使用 RedisConfig.valueSerializer()（与线上 RedisTemplate 同一配置：字段可见 + 默认类型信息 + JavaTimeModule），
+ * 覆盖出场预览结果 CalculateFeeResponse 与计费规则 ChargeRule 的序列化 / 反序列化
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializerBenchmark {
+
+    private Jackson2JsonRedisSerializer<Object> serializer;
+    private CalculateFeeResponse response;
+    private ChargeRule rule;
+    private byte[] responseBytes;
+    private byte[] ruleBytes;
+
+    @Setup
+    public void setup() {
+        serializer = RedisConfig.valueSerializer();
+
+        response = new CalculateFeeResponse();
+        response.setInRecordId(1024L);
+        response.setOrderId(2048L);
+        response.setParkingMinutes(135);
+        response.setAmount(1350);
+        response.setOriginalAmount(1500);
+        response.setDiscountAmount(150);
+        response.setPayableAmount(1350);
+        response.setFeeRuleName("首30分钟免费,5元/小时,每日封顶60元");
+        response.setRealOutTime(LocalDateTime.of(2025, 3, 1, 12, 15, 0));
+
+        rule = new ChargeRule();
+        rule.setId(1L);
+        rule.setParkingIotId(10L);
+        rule.setRuleName("首30分钟免费,5元/小时,每日封顶60元");
+        rule.setCarType("SMALL");
+        rule.setChargeMode(1);
+        rule.setFreeMinutes(30);
+        rule.setUnitPrice(500);
+        rule.setMaxAmountPerDay(6000);
+        rule.setEffectiveStartDate(LocalDate.of(2025, 1, 1));
+        rule.setEffectiveTimeRange("08:00-22:00");
+        rule.setPriority(10);
+        rule.setStatus(1);
+        rule.setCreatedTime(LocalDateTime.of(2025, 1, 1, 0, 0, 0));
+        rule.setUpdatedTime(LocalDateTime.of(2025, 1, 1, 0, 0, 0));
+
+        responseBytes = serializer.serialize(response);
+        ruleBytes = serializer.serialize(rule);
+    }
+
+    @Benchmark
+    public byte[] serializeFeeResponse() {
+        return serializer.serialize(response);
+    }
+
+    @Benchmark
+    public Object deserializeFeeResponse() {
+        return serializer.deserialize(responseBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeChargeRule() {
+        return serializer.serialize(rule);
+    }
+
+    @Benchmark
+    public Object deserializeChargeRule() {
+        return serializer.deserialize(ruleBytes);
+    }
+}
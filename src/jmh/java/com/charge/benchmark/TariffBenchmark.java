@@ -0,0 +1,108 @@
+package com.charge.benchmark;
+
+import com.charge.entity.ChargeRule;
+import com.charge.service.impl.ChargeRuleServiceImpl;
+import com.charge.tariff.CompiledTariff;
+import com.charge.tariff.TariffCompiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 计费规则计算基准测试
+ * 对比单一费率与分时段费率（白天按时长 + 夜间定额）的 CompiledTariff.calculate，
+ * 两者都应与停车时长无关（O(log 时段数)）；ruleServiceCalculateAmount 经 ChargeRuleService.calculateAmount，
+ * 复用按 ruleId + updated_time 缓存的编译结果
+ * 建议加 -prof gc 查看每次调用的分配字节数（应为 0）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TariffBenchmark {
+
+    private static final int MASK = 1023;
+
+    private CompiledTariff tariff;
+    private CompiledTariff segmentedTariff;
+    private ChargeRule rule;
+    private ChargeRuleServiceImpl ruleService;
+    private long[] inSeconds;
+    private long[] minutes;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        rule = new ChargeRule();
+        rule.setId(1L);
+        rule.setChargeMode(1);
+        rule.setFreeMinutes(30);
+        rule.setUnitPrice(500);
+        rule.setMaxAmountPerSession(6000);
+        rule.setUpdatedTime(LocalDateTime.of(2025, 1, 1, 0, 0));
+        tariff = TariffCompiler.compile(rule);
+        ruleService = new ChargeRuleServiceImpl();
+
+        ChargeRule day = new ChargeRule();
+        day.setId(2L);
+        day.setChargeMode(1);
+        day.setFreeMinutes(30);
+        day.setUnitPrice(500);
+        day.setMaxAmountPerDay(6000);
+        day.setEffectiveTimeRange("08:00-22:00");
+        ChargeRule night = new ChargeRule();
+        night.setId(3L);
+        night.setChargeMode(2);
+        night.setUnitPrice(1000);
+        night.setEffectiveTimeRange("22:00-08:00");
+        segmentedTariff = TariffCompiler.compile(Arrays.asList(day, night));
+
+        // 停车时长分布：短停 / 过夜 / 多日
+        SplittableRandom random = new SplittableRandom(42);
+        inSeconds = new long[MASK + 1];
+        minutes = new long[MASK + 1];
+        for (int i = 0; i < minutes.length; i++) {
+            inSeconds[i] = random.nextLong(0, 86400L * 365);
+            int bucket = random.nextInt(10);
+            if (bucket < 7) {
+                minutes[i] = random.nextLong(1, 240);
+            } else if (bucket < 9) {
+                minutes[i] = random.nextLong(600, 1080);
+            } else {
+                minutes[i] = random.nextLong(1440, 1440 * 7);
+            }
+        }
+    }
+
+    @Benchmark
+    public long compiledTariff() {
+        int i = cursor++ & MASK;
+        return tariff.calculate(inSeconds[i], minutes[i]);
+    }
+
+    @Benchmark
+    public long segmentedTariff() {
+        int i = cursor++ & MASK;
+        return segmentedTariff.calculate(inSeconds[i], minutes[i]);
+    }
+
+    @Benchmark
+    public long ruleServiceCalculateAmount() {
+        int i = cursor++ & MASK;
+        return ruleService.calculateAmount(rule, minutes[i]);
+    }
+}
@@ -0,0 +1,46 @@
+package com.common.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 业务订单号生成基准测试（OrderNoGenerator）
+ * 生成器每秒最多 10000 个序号，用完后等待下一秒；基准循环远超该速率，
+ * 这里把等待换成推进模拟时钟（系统时间 + 已等待的毫秒数），只测量生成本身的开销
+ *
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.include=OrderNoGeneratorBenchmark
+ * 结果默认写入 target/jmh-result.json
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderNoGeneratorBenchmark {
+
+    private OrderNoGenerator orderNoGenerator;
+
+    @Setup
+    public void setup() {
+        AtomicLong waitedMillis = new AtomicLong();
+        orderNoGenerator = new OrderNoGenerator(1,
+                () -> System.currentTimeMillis() + waitedMillis.get(), waitedMillis::addAndGet);
+    }
+
+    @Benchmark
+    public String generateOrderNo() {
+        return orderNoGenerator.nextChargeOrderNo();
+    }
+}
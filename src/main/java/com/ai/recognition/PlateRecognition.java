@@ -0,0 +1,40 @@
+package com.ai.recognition;
+
+/**
+ * 单张图片的车牌识别结果
+ */
+public class PlateRecognition {
+
+    /**
+     * 图片路径
+     */
+    private final String imagePath;
+
+    /**
+     * 识别出的车牌号，未识别出车牌时为 null
+     */
+    private final String plateNumber;
+
+    /**
+     * 置信度（0~1）
+     */
+    private final double confidence;
+
+    public PlateRecognition(String imagePath, String plateNumber, double confidence) {
+        this.imagePath = imagePath;
+        this.plateNumber = plateNumber;
+        this.confidence = confidence;
+    }
+
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    public String getPlateNumber() {
+        return plateNumber;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+}
@@ -0,0 +1,316 @@
+package com.ai.recognition;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 车牌识别异步流水线
+ * - 提交：进入有界队列（ai.plate.queue-capacity），队列满时等待 submit-timeout-ms 后仍满则拒绝（0 表示立即拒绝），
+ *   拒绝以 RejectedExecutionException 结束返回的 future，调用方不会被无限期阻塞；
+ * - 攒批：调度线程取到第一张图后最多再等 linger-ms，攒够 batch-size 张或到时即组成一批，一次调用识别器；
+ * - 执行：固定大小的工作线程池（workers，0 表示 CPU 核数），在途批次上限为 workers * 2，
+ *   识别跟不上时调度线程阻塞，积压留在提交队列里，由队列容量决定何时开始拒绝
+ *
+ * 指标：ai.plate.stage（stage = queue_wait / recognize / end_to_end）、ai.plate.batch.size、
+ * ai.plate.rejected、ai.plate.queue.depth
+ */
+@Slf4j
+@Component
+public class PlateRecognitionPipeline {
+
+    public static final String STAGE_METRIC = "ai.plate.stage";
+
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(100_000);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(5);
+
+    private final PlateRecognizer recognizer;
+    private final ArrayBlockingQueue<Task> queue;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final long submitTimeoutMillis;
+    private final int workers;
+    private final ExecutorService workerPool;
+    private final Semaphore inFlight;
+
+    private final Timer queueWaitTimer;
+    private final Timer recognizeTimer;
+    private final Timer endToEndTimer;
+    private final DistributionSummary batchSizeSummary;
+    private final Counter rejectedCounter;
+
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public PlateRecognitionPipeline(PlateRecognizer recognizer,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${ai.plate.queue-capacity:1024}") int queueCapacity,
+                                    @Value("${ai.plate.batch-size:16}") int batchSize,
+                                    @Value("${ai.plate.linger-ms:5}") long lingerMillis,
+                                    @Value("${ai.plate.workers:0}") int workers,
+                                    @Value("${ai.plate.submit-timeout-ms:0}") long submitTimeoutMillis) {
+        this.recognizer = recognizer;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lingerMillis));
+        this.submitTimeoutMillis = Math.max(0, submitTimeoutMillis);
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.workerPool = new ThreadPoolExecutor(this.workers, this.workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), namedThreads("plate-recognizer-"));
+        this.inFlight = new Semaphore(this.workers * 2);
+
+        this.queueWaitTimer = stageTimer(meterRegistry, "queue_wait");
+        this.recognizeTimer = stageTimer(meterRegistry, "recognize");
+        this.endToEndTimer = stageTimer(meterRegistry, "end_to_end");
+        this.batchSizeSummary = DistributionSummary.builder("ai.plate.batch.size")
+                .description("每次调用识别器的图片数")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1D)
+                .maximumExpectedValue((double) this.batchSize)
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("ai.plate.rejected")
+                .description("队列已满或流水线已关闭而被拒绝的识别请求数")
+                .register(meterRegistry);
+        Gauge.builder("ai.plate.queue.depth", queue, ArrayBlockingQueue::size)
+                .description("等待组批的识别请求数")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "plate-recognition-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        log.info("车牌识别流水线已启动: recognizer={}, workers={}, batchSize={}, queueCapacity={}",
+                recognizer.getClass().getSimpleName(), workers, batchSize, queue.remainingCapacity());
+    }
+
+    /**
+     * 提交一张图片
+     *
+     * @return 识别结果；队列已满或流水线已关闭时以 RejectedExecutionException 异常结束
+     */
+    public CompletableFuture<PlateRecognition> submit(String imagePath) {
+        Task task = new Task(imagePath);
+        if (!running) {
+            return reject(task, "车牌识别流水线未启动或已关闭");
+        }
+        boolean accepted;
+        try {
+            accepted = submitTimeoutMillis > 0
+                    ? queue.offer(task, submitTimeoutMillis, TimeUnit.MILLISECONDS)
+                    : queue.offer(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            return reject(task, "车牌识别队列已满");
+        }
+        // 与 shutdown 并发时任务可能落在已清空的队列里，这里补一次清理
+        if (!running) {
+            failPending();
+        }
+        return task.future;
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    private CompletableFuture<PlateRecognition> reject(Task task, String message) {
+        rejectedCounter.increment();
+        task.future.completeExceptionally(new RejectedExecutionException(message));
+        return task.future;
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            List<Task> batch = new ArrayList<>(batchSize);
+            try {
+                Task first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collectBatch(batch);
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                // 关闭时打断组批或等待工作线程：已取出的请求不再回到队列，直接以拒绝结束
+                Thread.currentThread().interrupt();
+                reject(batch);
+                break;
+            }
+            try {
+                workerPool.execute(() -> {
+                    try {
+                        runBatch(batch);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                fail(batch, e);
+            }
+        }
+    }
+
+    /**
+     * 补齐一批：先取走队列里已有的，不满时在 linger 时间内继续等待；被打断时已取出的请求留在 batch 中
+     */
+    private void collectBatch(List<Task> batch) throws InterruptedException {
+        queue.drainTo(batch, batchSize - batch.size());
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            Task next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+    }
+
+    private void runBatch(List<Task> batch) {
+        long start = System.nanoTime();
+        List<String> imagePaths = new ArrayList<>(batch.size());
+        for (Task task : batch) {
+            queueWaitTimer.record(start - task.enqueuedAt, TimeUnit.NANOSECONDS);
+            imagePaths.add(task.imagePath);
+        }
+        batchSizeSummary.record(batch.size());
+
+        List<PlateRecognition> results;
+        try {
+            results = recognizer.recognize(imagePaths);
+        } catch (Throwable e) {
+            log.warn("车牌识别失败: batchSize={}, error={}", batch.size(), e.getMessage());
+            fail(batch, e);
+            return;
+        } finally {
+            recognizeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (results == null || results.size() != batch.size()) {
+            fail(batch, new IllegalStateException("识别结果数量与图片数量不一致: expected=" + batch.size()
+                    + ", actual=" + (results == null ? 0 : results.size())));
+            return;
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < batch.size(); i++) {
+            Task task = batch.get(i);
+            endToEndTimer.record(now - task.enqueuedAt, TimeUnit.NANOSECONDS);
+            task.future.complete(results.get(i));
+        }
+    }
+
+    private void fail(List<Task> batch, Throwable error) {
+        long now = System.nanoTime();
+        for (Task task : batch) {
+            endToEndTimer.record(now - task.enqueuedAt, TimeUnit.NANOSECONDS);
+            task.future.completeExceptionally(error);
+        }
+    }
+
+    private void failPending() {
+        List<Task> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        reject(pending);
+    }
+
+    /**
+     * 流水线关闭时未交给工作线程的请求以拒绝结束
+     */
+    private void reject(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        rejectedCounter.increment(tasks.size());
+        fail(tasks, new RejectedExecutionException("车牌识别流水线已关闭"));
+    }
+
+    /**
+     * 停止接收新请求；已交给工作线程的批次执行完，仍在队列里的请求以拒绝结束
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        Thread thread = dispatcher;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        failPending();
+        workerPool.shutdown();
+        try {
+            if (!workerPool.awaitTermination(5, TimeUnit.SECONDS)) {
+                workerPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder(STAGE_METRIC)
+                .description("车牌识别分阶段耗时")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(meterRegistry);
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + seq.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Task {
+        private final String imagePath;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<PlateRecognition> future = new CompletableFuture<>();
+
+        private Task(String imagePath) {
+            this.imagePath = imagePath;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.ai.recognition;
+
+import java.util.List;
+
+/**
+ * 车牌识别器（可替换实现，由 ai.plate.recognizer 选择）
+ * 一次调用识别一批图片，批量推理比逐张调用吞吐高；实现需线程安全，流水线会在多个工作线程上并发调用
+ */
+public interface PlateRecognizer {
+
+    /**
+     * 识别一批图片
+     *
+     * @param imagePaths 图片路径，非空
+     * @return 与 imagePaths 一一对应的识别结果
+     */
+    List<PlateRecognition> recognize(List<String> imagePaths);
+}
@@ -0,0 +1,54 @@
+package com.ai.recognition;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 本地桩识别器：由图片路径确定性地生成车牌，同一路径总是得到同一车牌（测试、联调用）
+ * 未接入识别模型时默认使用（ai.plate.recognizer=stub）
+ */
+@Component
+@ConditionalOnProperty(name = "ai.plate.recognizer", havingValue = "stub", matchIfMissing = true)
+public class StubPlateRecognizer implements PlateRecognizer {
+
+    private static final String PROVINCES = "京津沪渝冀豫云辽黑湘皖鲁新苏浙赣鄂桂甘晋蒙陕吉闽贵粤青藏川宁琼";
+
+    /**
+     * 车牌字母不含 I、O
+     */
+    private static final String LETTERS = "ABCDEFGHJKLMNPQRSTUVWXYZ";
+
+    private static final String ALPHANUMERIC = "0123456789" + LETTERS;
+
+    @Override
+    public List<PlateRecognition> recognize(List<String> imagePaths) {
+        List<PlateRecognition> results = new ArrayList<>(imagePaths.size());
+        for (String imagePath : imagePaths) {
+            results.add(recognizeOne(imagePath));
+        }
+        return results;
+    }
+
+    private static PlateRecognition recognizeOne(String imagePath) {
+        if (imagePath == null || imagePath.isEmpty()) {
+            return new PlateRecognition(imagePath, null, 0D);
+        }
+        // String.hashCode 由规范定义，跨进程稳定
+        long h = imagePath.hashCode() & 0xffffffffL;
+        StringBuilder plate = new StringBuilder(7);
+        plate.append(PROVINCES.charAt((int) (h % PROVINCES.length())));
+        h /= PROVINCES.length();
+        plate.append(LETTERS.charAt((int) (h % LETTERS.length())));
+        h /= LETTERS.length();
+        long tail = (imagePath.length() * 31L + h) * 2654435761L & 0x7fffffffffffL;
+        for (int i = 0; i < 5; i++) {
+            plate.append(ALPHANUMERIC.charAt((int) (tail % ALPHANUMERIC.length())));
+            tail /= ALPHANUMERIC.length();
+        }
+        double confidence = 0.90 + (imagePath.hashCode() & 0x7) / 100D;
+        return new PlateRecognition(imagePath, plate.toString(), confidence);
+    }
+}
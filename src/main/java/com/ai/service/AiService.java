@@ -1,20 +1,89 @@
 package com.ai.service;
 
+import com.ai.recognition.PlateRecognition;
+import com.ai.recognition.PlateRecognitionPipeline;
+import com.common.exception.BusinessException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
  * AI服务类
+ * 车牌识别经 PlateRecognitionPipeline 排队、攒批后交给识别器，同步方法在 ai.plate.timeout-ms 内等待结果
  */
 @Service
 public class AiService {
 
+    private final PlateRecognitionPipeline plateRecognitionPipeline;
+    private final long timeoutMillis;
+
+    public AiService(PlateRecognitionPipeline plateRecognitionPipeline,
+                     @Value("${ai.plate.timeout-ms:3000}") long timeoutMillis) {
+        this.plateRecognitionPipeline = plateRecognitionPipeline;
+        this.timeoutMillis = timeoutMillis;
+    }
+
     /**
      * 车牌识别方法
      * @param imagePath 图片路径
-     * @return 识别结果
+     * @return 识别出的车牌号，未识别出车牌时返回 null
      */
     public String recognizeLicensePlate(String imagePath) {
-        // TODO: 实现车牌识别逻辑
-        return "识别结果示例";
+        return await(recognizeLicensePlateAsync(imagePath)).getPlateNumber();
+    }
+
+    /**
+     * 异步车牌识别，不阻塞调用线程
+     * @param imagePath 图片路径
+     * @return 识别结果；识别繁忙时以 RejectedExecutionException 异常结束
+     */
+    public CompletableFuture<PlateRecognition> recognizeLicensePlateAsync(String imagePath) {
+        if (imagePath == null || imagePath.trim().isEmpty()) {
+            throw new BusinessException("图片路径不能为空");
+        }
+        return plateRecognitionPipeline.submit(imagePath);
+    }
+
+    /**
+     * 批量车牌识别，全部提交后统一等待
+     * @param imagePaths 图片路径
+     * @return 与 imagePaths 一一对应的识别结果
+     */
+    public List<PlateRecognition> recognizeLicensePlates(List<String> imagePaths) {
+        if (imagePaths == null || imagePaths.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<CompletableFuture<PlateRecognition>> futures = new ArrayList<>(imagePaths.size());
+        for (String imagePath : imagePaths) {
+            futures.add(recognizeLicensePlateAsync(imagePath));
+        }
+        List<PlateRecognition> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<PlateRecognition> future : futures) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    private PlateRecognition await(CompletableFuture<PlateRecognition> future) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new BusinessException("车牌识别超时，请稍后重试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("车牌识别被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                throw new BusinessException("车牌识别繁忙，请稍后重试");
+            }
+            throw new BusinessException("车牌识别失败: " + e.getCause().getMessage());
+        }
     }
 }
@@ -3,7 +3,10 @@ package com.charge.controller.admin;
 import com.charge.entity.ChargeOrder;
 import com.parking.entity.ParkingRecord;
 import com.charge.mapper.ChargeOrderMapper;
+import com.charge.outbox.OutboxDispatcher;
+import com.charge.service.ChargeService;
 import com.parking.mapper.ParkingRecordMapper;
+import com.common.cache.LocalCacheManager;
 import com.common.exception.BusinessException;
 import com.common.result.PageResult;
 import com.common.result.Result;
@@ -11,6 +14,7 @@ import com.common.result.Result;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/admin/charge") 
@@ -18,11 +22,44 @@ public class AdminChargeController {
 
     private final ChargeOrderMapper chargeOrderMapper;
     private final ParkingRecordMapper parkingRecordMapper;
+    private final LocalCacheManager localCacheManager;
+    private final ChargeService chargeService;
+    private final OutboxDispatcher outboxDispatcher;
 
     public AdminChargeController(ChargeOrderMapper chargeOrderMapper,
-                                 ParkingRecordMapper parkingRecordMapper) {
+                                 ParkingRecordMapper parkingRecordMapper,
+                                 LocalCacheManager localCacheManager,
+                                 ChargeService chargeService,
+                                 OutboxDispatcher outboxDispatcher) {
         this.chargeOrderMapper = chargeOrderMapper;
         this.parkingRecordMapper = parkingRecordMapper;
+        this.localCacheManager = localCacheManager;
+        this.chargeService = chargeService;
+        this.outboxDispatcher = outboxDispatcher;
+    }
+
+    /**
+     * 本地缓存统计（各区域命中率、淘汰数、回源 Redis 次数与平均耗时）
+     */
+    @GetMapping("/cache/stats")
+    public Result<Map<String, Map<String, Object>>> cacheStats() {
+        return Result.success(localCacheManager.stats());
+    }
+
+    /**
+     * 出场结算并发合并统计（executions 为实际执行的结算事务数，coalesced 为被合并掉的重复请求数）
+     */
+    @GetMapping("/settle/stats")
+    public Result<Map<String, Long>> settleStats() {
+        return Result.success(chargeService.getSettlementStats());
+    }
+
+    /**
+     * 发件箱分发统计（dispatched 为已投递事件数，failed 为失败待重试次数，dead 为失败次数超限的事件数）
+     */
+    @GetMapping("/outbox/stats")
+    public Result<Map<String, Long>> outboxStats() {
+        return Result.success(outboxDispatcher.stats());
     }
 
     /**
@@ -2,8 +2,12 @@ package com.charge.controller.admin;
 
 import com.charge.entity.ChargeRule;
 import com.charge.entity.DTO.ChargeRuleRequest;
+import com.charge.entity.DTO.TariffSimulationRequest;
 import com.charge.entity.VO.ChargeRuleReponse;
+import com.charge.entity.VO.TariffSimulationResponse;
 import com.charge.service.ChargeRuleService;
+import com.charge.simulation.TariffSimulator;
+import com.common.exception.BusinessException;
 import com.common.result.Result;
 
 import org.springframework.web.bind.annotation.*;
@@ -23,31 +27,29 @@ public class ChargeRuleAdminController {
     @Resource
     private ChargeRuleService chargeRuleService;
 
+    @Resource
+    private TariffSimulator tariffSimulator;
+
     /**
      * 新增或编辑计费规则
      */
     @PostMapping("/save")
     public Result<Void> save(@RequestBody ChargeRuleRequest dto) {
-        ChargeRule rule = new ChargeRule();
-        rule.setId(dto.getId());
-        rule.setParkingIotId(dto.getParkingIotId());
-        rule.setRuleName(dto.getRuleName());
-        rule.setCarType(dto.getCarType());
-        rule.setChargeMode(dto.getChargeMode());
-        rule.setFreeMinutes(dto.getFreeMinutes());
-        rule.setUnitPrice(dto.getUnitPrice());
-        rule.setMaxAmountPerDay(dto.getMaxAmountPerDay());
-        rule.setMaxAmountPerSession(dto.getMaxAmountPerSession());
-        rule.setEffectiveStartDate(dto.getEffectiveStartDate());
-        rule.setEffectiveEndDate(dto.getEffectiveEndDate());
-        rule.setEffectiveTimeRange(dto.getEffectiveTimeRange());
-        rule.setPriority(dto.getPriority());
-        rule.setStatus(dto.getStatus());
-
-        chargeRuleService.saveRule(rule);
+        chargeRuleService.saveRule(toEntity(dto));
         return Result.success();
     }
 
+    /**
+     * 计费规则模拟：用候选规则（不保存）对车场历史出场重新计费，返回总额、按小时汇总及与实际订单的差额
+     */
+    @PostMapping("/simulate")
+    public Result<TariffSimulationResponse> simulate(@RequestBody TariffSimulationRequest dto) {
+        if (dto.getRule() == null) {
+            throw new BusinessException("候选规则不能为空");
+        }
+        return Result.success(tariffSimulator.simulate(toEntity(dto.getRule()), dto.getStartDate(), dto.getEndDate()));
+    }
+
     /**
      * 按车场查询规则列表
      */
@@ -70,6 +72,25 @@ public class ChargeRuleAdminController {
         return Result.success();
     }
 
+    private ChargeRule toEntity(ChargeRuleRequest dto) {
+        ChargeRule rule = new ChargeRule();
+        rule.setId(dto.getId());
+        rule.setParkingIotId(dto.getParkingIotId());
+        rule.setRuleName(dto.getRuleName());
+        rule.setCarType(dto.getCarType());
+        rule.setChargeMode(dto.getChargeMode());
+        rule.setFreeMinutes(dto.getFreeMinutes());
+        rule.setUnitPrice(dto.getUnitPrice());
+        rule.setMaxAmountPerDay(dto.getMaxAmountPerDay());
+        rule.setMaxAmountPerSession(dto.getMaxAmountPerSession());
+        rule.setEffectiveStartDate(dto.getEffectiveStartDate());
+        rule.setEffectiveEndDate(dto.getEffectiveEndDate());
+        rule.setEffectiveTimeRange(dto.getEffectiveTimeRange());
+        rule.setPriority(dto.getPriority());
+        rule.setStatus(dto.getStatus());
+        return rule;
+    }
+
     private ChargeRuleReponse toVO(ChargeRule rule) {
         ChargeRuleReponse vo = new ChargeRuleReponse();
         vo.setId(rule.getId());
@@ -13,6 +13,8 @@ import com.common.result.Result;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+
 
 @RestController
 @RequestMapping("api/app/charge")
@@ -55,4 +57,14 @@ public class AppChargeController {
         return Result.success(response);
     }
 
+    /**
+     * 批量预览计费：一次返回多辆在场车辆的费用，顺序与入参一致
+     * 自助机 / 值守端调用
+     */
+    @PostMapping("/preview/batch")
+    public Result<List<CalculateFeeResponse>> previewFeeBatch(@RequestBody @Valid List<CalculateFeeRequest> requests) {
+        List<CalculateFeeResponse> responses = chargeService.previewParkingFees(requests);
+        return Result.success(responses);
+    }
+
 }
@@ -0,0 +1,147 @@
+package com.charge.discount;
+
+import com.charge.entity.DiscountRule;
+import com.charge.entity.Member;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.function.Function;
+
+/**
+ * 优惠计算器（定点数实现）
+ * 会员在前，规则在后，可叠加；折扣比例统一换算为万分比（basis point）后做整数运算，
+ * 截断方向与原 BigDecimal 实现的 RoundingMode.DOWN 一致，结果逐位相同
+ *
+ * 会员折扣系数无法精确换算为万分比（小数超过 4 位）或为负数时，回退到 BigDecimal 计算
+ */
+public final class DiscountCalculator {
+
+    /**
+     * 1 = 10000 个万分比
+     */
+    static final int BASIS_POINTS = 10000;
+
+    private static final int PERCENT = 100;
+
+    /**
+     * 无法换算为万分比的标记
+     */
+    private static final int NOT_EXACT = Integer.MIN_VALUE;
+
+    private DiscountCalculator() {
+    }
+
+    /**
+     * @param originalAmount 原价金额（分）
+     * @param member         会员信息，非会员传 null
+     * @param ruleCode       优惠规则编码，可为空
+     * @param ruleLoader     按编码加载有效优惠规则（无此规则返回 null），会员优惠后仍需付费时才会调用
+     */
+    public static DiscountOutcome calculate(long originalAmount, Member member,
+                                            String ruleCode, Function<String, DiscountRule> ruleLoader) {
+        if (originalAmount <= 0) {
+            return new DiscountOutcome(originalAmount, null, 0, 0L, null, 0L);
+        }
+        long base = originalAmount;
+
+        // ============ Step1: 会员优惠 ============
+        String memberType = null;
+        int memberValue = 0;
+        long memberDiscount = 0L;
+        if (member != null && member.getStatus() != null && member.getStatus() == 1) {
+            Integer freeParking = member.getFreeParking();
+            if (freeParking != null && freeParking == 1) {
+                // 免费停车
+                memberType = DiscountOutcome.MEMBER_FREE;
+                memberValue = PERCENT;
+                memberDiscount = base;
+            } else if (member.getDiscountRate() != null && member.getDiscountRate().compareTo(BigDecimal.ONE) < 0) {
+                // 折扣
+                BigDecimal rate = member.getDiscountRate();
+                int basisPoints = toBasisPoints(rate);
+                long memberPay;
+                int value;
+                if (basisPoints != NOT_EXACT && basisPoints >= 0) {
+                    memberPay = multiplyDown(base, basisPoints, BASIS_POINTS);
+                    value = basisPoints / PERCENT;
+                } else {
+                    memberPay = BigDecimal.valueOf(base).multiply(rate)
+                            .setScale(0, RoundingMode.DOWN)
+                            .longValue();
+                    value = rate.multiply(BigDecimal.valueOf(PERCENT))
+                            .setScale(0, RoundingMode.DOWN)
+                            .intValue();
+                }
+                if (memberPay < 0) {
+                    memberPay = 0;
+                }
+                if (base - memberPay > 0) {
+                    memberType = DiscountOutcome.MEMBER_PERCENT;
+                    memberValue = value;
+                    memberDiscount = base - memberPay;
+                }
+            }
+        }
+        base -= memberDiscount;
+
+        // 基数为0，不再继续其它优惠
+        if (base <= 0 || ruleCode == null || ruleCode.isEmpty()) {
+            return new DiscountOutcome(originalAmount, memberType, memberValue, memberDiscount, null, 0L);
+        }
+        DiscountRule rule = ruleLoader.apply(ruleCode);
+        if (rule == null) {
+            return new DiscountOutcome(originalAmount, memberType, memberValue, memberDiscount, null, 0L);
+        }
+
+        // ============ Step2: 规则 / 券 优惠（discount_rule） ============
+        String type = rule.getDiscountType();
+        Integer value = rule.getDiscountValue();
+        Integer max = rule.getMaxDiscount();
+
+        long ruleDiscount = 0L;
+        if ("PERCENT".equalsIgnoreCase(type)) {
+            if (value != null && value > 0 && value < PERCENT) {
+                ruleDiscount = base - multiplyDown(base, value, PERCENT);
+            }
+        } else if ("FIXED".equalsIgnoreCase(type)) {
+            if (value != null && value > 0) {
+                ruleDiscount = value.longValue();
+            }
+        }
+        if (ruleDiscount > base) {
+            ruleDiscount = base;
+        }
+        if (max != null && max > 0 && ruleDiscount > max.longValue()) {
+            ruleDiscount = max.longValue();
+        }
+
+        if (ruleDiscount <= 0) {
+            return new DiscountOutcome(originalAmount, memberType, memberValue, memberDiscount, null, 0L);
+        }
+        return new DiscountOutcome(originalAmount, memberType, memberValue, memberDiscount, rule, ruleDiscount);
+    }
+
+    /**
+     * floor(amount * numerator / denominator)，amount 与 numerator 均非负
+     * 拆成商和余数分别相乘，amount 接近 Long.MAX_VALUE 时也不会溢出
+     */
+    static long multiplyDown(long amount, long numerator, long denominator) {
+        long quotient = amount / denominator;
+        long remainder = amount % denominator;
+        return quotient * numerator + remainder * numerator / denominator;
+    }
+
+    /**
+     * 折扣系数换算为万分比，例如 0.85 -> 8500；小数超过 4 位或超出 int 范围时返回 NOT_EXACT
+     */
+    static int toBasisPoints(BigDecimal rate) {
+        if (rate.scale() > 4 && rate.stripTrailingZeros().scale() > 4) {
+            return NOT_EXACT;
+        }
+        try {
+            return rate.movePointRight(4).intValueExact();
+        } catch (ArithmeticException e) {
+            return NOT_EXACT;
+        }
+    }
+}
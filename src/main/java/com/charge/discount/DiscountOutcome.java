@@ -0,0 +1,106 @@
+package com.charge.discount;
+
+import com.charge.entity.DiscountRule;
+import com.charge.entity.OrderDiscount;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 优惠计算结果
+ * 只保存金额和命中的规则，order_discount 记录在真正落库时才通过 toOrderDiscounts 生成
+ */
+public final class DiscountOutcome {
+
+    /**
+     * 会员优惠类型：免费停车
+     */
+    public static final String MEMBER_FREE = "FREE";
+
+    /**
+     * 会员优惠类型：折扣
+     */
+    public static final String MEMBER_PERCENT = "PERCENT";
+
+    private final long originalAmount;
+
+    /**
+     * 会员优惠类型，null 表示无会员优惠
+     */
+    private final String memberDiscountType;
+
+    /**
+     * 会员优惠值：免费为 100，折扣为折扣系数 * 100（向下取整）
+     */
+    private final int memberDiscountValue;
+
+    private final long memberDiscountAmount;
+
+    /**
+     * 命中的优惠规则，null 表示无规则优惠
+     */
+    private final DiscountRule rule;
+
+    private final long ruleDiscountAmount;
+
+    DiscountOutcome(long originalAmount, String memberDiscountType, int memberDiscountValue,
+                    long memberDiscountAmount, DiscountRule rule, long ruleDiscountAmount) {
+        this.originalAmount = originalAmount;
+        this.memberDiscountType = memberDiscountType;
+        this.memberDiscountValue = memberDiscountValue;
+        this.memberDiscountAmount = memberDiscountAmount;
+        this.rule = rule;
+        this.ruleDiscountAmount = ruleDiscountAmount;
+    }
+
+    public long getOriginalAmount() {
+        return originalAmount;
+    }
+
+    public long getTotalDiscountAmount() {
+        return memberDiscountAmount + ruleDiscountAmount;
+    }
+
+    /**
+     * 应付金额：各项优惠都不超过当时的基数，结果不会小于 0
+     */
+    public long getPayableAmount() {
+        return originalAmount - memberDiscountAmount - ruleDiscountAmount;
+    }
+
+    public long getMemberDiscountAmount() {
+        return memberDiscountAmount;
+    }
+
+    public long getRuleDiscountAmount() {
+        return ruleDiscountAmount;
+    }
+
+    /**
+     * 生成 order_discount 记录（会员在前，规则在后），orderId 由调用方填写
+     */
+    public List<OrderDiscount> toOrderDiscounts() {
+        List<OrderDiscount> records = new ArrayList<>(2);
+        if (memberDiscountType != null) {
+            OrderDiscount od = new OrderDiscount();
+            od.setSourceType("MEMBER");
+            od.setRuleCode(null);
+            od.setRuleName(MEMBER_FREE.equals(memberDiscountType) ? "会员免费停车" : "会员折扣");
+            od.setDiscountType(memberDiscountType);
+            od.setDiscountValue(memberDiscountValue);
+            od.setDiscountAmount(memberDiscountAmount);
+            records.add(od);
+        }
+        if (rule != null) {
+            OrderDiscount od = new OrderDiscount();
+            od.setSourceType("RULE");
+            od.setRuleCode(rule.getRuleCode());
+            od.setRuleName(rule.getRuleName());
+            od.setDiscountType(rule.getDiscountType());
+            od.setDiscountValue(rule.getDiscountValue());
+            od.setDiscountAmount(ruleDiscountAmount);
+            records.add(od);
+        }
+        return records;
+    }
+}
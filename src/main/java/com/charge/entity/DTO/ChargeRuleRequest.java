@@ -15,6 +15,9 @@ public class ChargeRuleRequest {
 
     private String carType;
 
+    /**
+     * 计费模式: 1=按时长统一单价,2=时段定额(每个连续时段收取一次 unitPrice)
+     */
     private Integer chargeMode;
 
     private Integer freeMinutes;
@@ -45,7 +48,7 @@ public class ChargeRuleRequest {
     private LocalDate effectiveEndDate;
 
     /**
-     * 生效时间段,例如 "08:00-18:00"
+     * 生效时间段,例如 "08:00-18:00",跨零点如 "22:00-08:00",为空表示全天
      */
     private String effectiveTimeRange;
 
@@ -0,0 +1,46 @@
+package com.charge.entity.DTO;
+
+import java.time.LocalDate;
+
+/**
+ * 管理端-计费规则模拟入参 DTO
+ * 用候选规则对历史出场记录重新计费，评估调价对收入的影响
+ */
+public class TariffSimulationRequest {
+
+    /**
+     * 候选规则（parkingIotId 为模拟的车场，规则不会保存）
+     */
+    private ChargeRuleRequest rule;
+
+    /**
+     * 出场日期范围（含首尾）
+     */
+    private LocalDate startDate;
+
+    private LocalDate endDate;
+
+    public ChargeRuleRequest getRule() {
+        return rule;
+    }
+
+    public void setRule(ChargeRuleRequest rule) {
+        this.rule = rule;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+}
@@ -0,0 +1,103 @@
+package com.charge.entity;
+
+import java.time.LocalDateTime;
+
+public class OutboxEvent {
+
+    private Long id;
+    private String eventType;          // EXIT_SETTLED / ORDER_CHANGED ...
+    private Long parkingIotId;         // 顺序分区，0 表示未关联车场
+    private Long lotSeq;               // 车场内序号，同车场按此顺序投递
+    private Long aggregateId;          // 入场记录ID / 订单ID
+    private String payload;            // JSON
+    private Integer status;            // 0-待投递 1-已投递 2-失败次数超限
+    private Integer attempts;
+    private LocalDateTime nextAttemptTime;
+    private String lastError;
+    private LocalDateTime createdTime;
+    private LocalDateTime updatedTime;
+
+    public Long getId() {
+        return id;
+    }
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public Long getParkingIotId() {
+        return parkingIotId;
+    }
+    public void setParkingIotId(Long parkingIotId) {
+        this.parkingIotId = parkingIotId;
+    }
+
+    public Long getLotSeq() {
+        return lotSeq;
+    }
+    public void setLotSeq(Long lotSeq) {
+        this.lotSeq = lotSeq;
+    }
+
+    public Long getAggregateId() {
+        return aggregateId;
+    }
+    public void setAggregateId(Long aggregateId) {
+        this.aggregateId = aggregateId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptTime() {
+        return nextAttemptTime;
+    }
+    public void setNextAttemptTime(LocalDateTime nextAttemptTime) {
+        this.nextAttemptTime = nextAttemptTime;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreatedTime() {
+        return createdTime;
+    }
+    public void setCreatedTime(LocalDateTime createdTime) {
+        this.createdTime = createdTime;
+    }
+
+    public LocalDateTime getUpdatedTime() {
+        return updatedTime;
+    }
+    public void setUpdatedTime(LocalDateTime updatedTime) {
+        this.updatedTime = updatedTime;
+    }
+}
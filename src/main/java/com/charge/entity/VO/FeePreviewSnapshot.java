@@ -0,0 +1,104 @@
+package com.charge.entity.VO;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * 费用预览缓存条目
+ * 停车费只在计费单元边界变化，同一价格阶梯内任意出场时间的金额都相同，
+ * 因此缓存按阶梯存放：出场时间落在 [stepStart, nextChangeAt) 内即可复用，
+ * 命中后按实际出场时间重新填写停车时长与出场时间
+ */
+public class FeePreviewSnapshot {
+
+    /**
+     * 入场时间（命中后用于计算停车时长）
+     */
+    private LocalDateTime inTime;
+
+    /**
+     * 当前价格阶梯的开始时刻（含）
+     */
+    private LocalDateTime stepStart;
+
+    /**
+     * 下一次价格变化的时刻（不含），即本条缓存的失效时刻
+     */
+    private LocalDateTime nextChangeAt;
+
+    /**
+     * 计算时的预览结果
+     */
+    private CalculateFeeResponse response;
+
+    public FeePreviewSnapshot() {
+    }
+
+    public FeePreviewSnapshot(LocalDateTime inTime, LocalDateTime stepStart, LocalDateTime nextChangeAt,
+                              CalculateFeeResponse response) {
+        this.inTime = inTime;
+        this.stepStart = stepStart;
+        this.nextChangeAt = nextChangeAt;
+        this.response = response;
+    }
+
+    /**
+     * 出场时间是否落在本价格阶梯内
+     */
+    public boolean covers(LocalDateTime exitTime) {
+        return !exitTime.isBefore(stepStart) && exitTime.isBefore(nextChangeAt);
+    }
+
+    /**
+     * 按实际出场时间生成预览结果（停车时长口径与计费一致：不足 1 分钟按 1 分钟）
+     */
+    public CalculateFeeResponse toResponse(LocalDateTime exitTime) {
+        long minutes = Duration.between(inTime, exitTime).toMinutes();
+        if (minutes <= 0) {
+            minutes = 1;
+        }
+        CalculateFeeResponse resp = new CalculateFeeResponse();
+        resp.setInRecordId(response.getInRecordId());
+        resp.setOrderId(response.getOrderId());
+        resp.setParkingMinutes(minutes);
+        resp.setAmount(response.getAmount());
+        resp.setOriginalAmount(response.getOriginalAmount());
+        resp.setDiscountAmount(response.getDiscountAmount());
+        resp.setPayableAmount(response.getPayableAmount());
+        resp.setFeeRuleName(response.getFeeRuleName());
+        resp.setRealOutTime(exitTime);
+        return resp;
+    }
+
+    public LocalDateTime getInTime() {
+        return inTime;
+    }
+
+    public void setInTime(LocalDateTime inTime) {
+        this.inTime = inTime;
+    }
+
+    public LocalDateTime getStepStart() {
+        return stepStart;
+    }
+
+    public void setStepStart(LocalDateTime stepStart) {
+        this.stepStart = stepStart;
+    }
+
+    public LocalDateTime getNextChangeAt() {
+        return nextChangeAt;
+    }
+
+    public void setNextChangeAt(LocalDateTime nextChangeAt) {
+        this.nextChangeAt = nextChangeAt;
+    }
+
+    public CalculateFeeResponse getResponse() {
+        return response;
+    }
+
+    public void setResponse(CalculateFeeResponse response) {
+        this.response = response;
+    }
+}
@@ -0,0 +1,69 @@
+package com.charge.entity.VO;
+
+/**
+ * 计费规则模拟-按出场小时（0~23）汇总
+ */
+public class TariffSimulationHourly {
+
+    private int hour;
+
+    /**
+     * 出场次数
+     */
+    private long sessions;
+
+    /**
+     * 候选规则应收金额（分）
+     */
+    private long simulatedAmount;
+
+    /**
+     * 实际订单金额（分）
+     */
+    private long actualAmount;
+
+    /**
+     * simulatedAmount - actualAmount（只统计有订单的出场）
+     */
+    private long deltaAmount;
+
+    public int getHour() {
+        return hour;
+    }
+
+    public void setHour(int hour) {
+        this.hour = hour;
+    }
+
+    public long getSessions() {
+        return sessions;
+    }
+
+    public void setSessions(long sessions) {
+        this.sessions = sessions;
+    }
+
+    public long getSimulatedAmount() {
+        return simulatedAmount;
+    }
+
+    public void setSimulatedAmount(long simulatedAmount) {
+        this.simulatedAmount = simulatedAmount;
+    }
+
+    public long getActualAmount() {
+        return actualAmount;
+    }
+
+    public void setActualAmount(long actualAmount) {
+        this.actualAmount = actualAmount;
+    }
+
+    public long getDeltaAmount() {
+        return deltaAmount;
+    }
+
+    public void setDeltaAmount(long deltaAmount) {
+        this.deltaAmount = deltaAmount;
+    }
+}
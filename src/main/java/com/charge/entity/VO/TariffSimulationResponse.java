@@ -0,0 +1,138 @@
+package com.charge.entity.VO;
+
+import java.util.List;
+
+/**
+ * 计费规则模拟结果
+ * 模拟金额为候选规则的折前应收金额；实际金额取 charge_order.amount（已扣除会员/优惠），
+ * 因此差额中包含优惠部分，适合比较不同候选规则之间的相对变化
+ */
+public class TariffSimulationResponse {
+
+    private Long parkingIotId;
+
+    /**
+     * 参与模拟的出场次数
+     */
+    private long sessions;
+
+    /**
+     * 其中有出场订单的次数（差额只统计这部分）
+     */
+    private long sessionsWithOrder;
+
+    /**
+     * 出场时间早于入场时间等异常记录，不参与模拟
+     */
+    private long skippedSessions;
+
+    /**
+     * 候选规则应收总额（分）
+     */
+    private long simulatedAmount;
+
+    /**
+     * 有订单的出场按候选规则的应收总额（分）
+     */
+    private long simulatedAmountWithOrder;
+
+    /**
+     * 实际订单总额（分）
+     */
+    private long actualAmount;
+
+    /**
+     * simulatedAmountWithOrder - actualAmount
+     */
+    private long deltaAmount;
+
+    /**
+     * 按出场小时汇总（24 条）
+     */
+    private List<TariffSimulationHourly> hourly;
+
+    /**
+     * 模拟耗时（毫秒）
+     */
+    private long elapsedMillis;
+
+    public Long getParkingIotId() {
+        return parkingIotId;
+    }
+
+    public void setParkingIotId(Long parkingIotId) {
+        this.parkingIotId = parkingIotId;
+    }
+
+    public long getSessions() {
+        return sessions;
+    }
+
+    public void setSessions(long sessions) {
+        this.sessions = sessions;
+    }
+
+    public long getSessionsWithOrder() {
+        return sessionsWithOrder;
+    }
+
+    public void setSessionsWithOrder(long sessionsWithOrder) {
+        this.sessionsWithOrder = sessionsWithOrder;
+    }
+
+    public long getSkippedSessions() {
+        return skippedSessions;
+    }
+
+    public void setSkippedSessions(long skippedSessions) {
+        this.skippedSessions = skippedSessions;
+    }
+
+    public long getSimulatedAmount() {
+        return simulatedAmount;
+    }
+
+    public void setSimulatedAmount(long simulatedAmount) {
+        this.simulatedAmount = simulatedAmount;
+    }
+
+    public long getSimulatedAmountWithOrder() {
+        return simulatedAmountWithOrder;
+    }
+
+    public void setSimulatedAmountWithOrder(long simulatedAmountWithOrder) {
+        this.simulatedAmountWithOrder = simulatedAmountWithOrder;
+    }
+
+    public long getActualAmount() {
+        return actualAmount;
+    }
+
+    public void setActualAmount(long actualAmount) {
+        this.actualAmount = actualAmount;
+    }
+
+    public long getDeltaAmount() {
+        return deltaAmount;
+    }
+
+    public void setDeltaAmount(long deltaAmount) {
+        this.deltaAmount = deltaAmount;
+    }
+
+    public List<TariffSimulationHourly> getHourly() {
+        return hourly;
+    }
+
+    public void setHourly(List<TariffSimulationHourly> hourly) {
+        this.hourly = hourly;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
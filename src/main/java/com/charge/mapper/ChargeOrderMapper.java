@@ -21,6 +21,12 @@ public interface ChargeOrderMapper {
     ChargeOrder selectByInRecordIdAndOutTime(@Param("inRecordId") Long inRecordId, 
                                              @Param("outTime") LocalDateTime outTime);
 
+    /**
+     * 同上，加共享锁的当前读（事务内 uk_in_record_out_time 冲突后使用，快照读看不到并发事务刚提交的订单）
+     */
+    ChargeOrder selectByInRecordIdAndOutTimeForShare(@Param("inRecordId") Long inRecordId,
+                                                     @Param("outTime") LocalDateTime outTime);
+
     /**
      * 分页查询订单列表（按支付状态筛选）
      */
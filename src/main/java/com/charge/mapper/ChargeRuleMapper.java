@@ -17,6 +17,11 @@ public interface ChargeRuleMapper {
         @Param("currentDate") LocalDate currentDate
     );
 
+    /**
+     * 查询全部启用规则（不限生效日期），用于构建内存规则快照
+     */
+    List<ChargeRule> selectAllEnabled();
+
     ChargeRule selectById(@Param("id") Long id);
 
     int insert (ChargeRule rule);
@@ -9,5 +9,15 @@ public interface OrderDiscountMapper {
 
     int insert(OrderDiscount record);
 
+    /**
+     * 多行插入（列表不能为空）
+     */
+    int insertBatch(List<OrderDiscount> records);
+
+    /**
+     * 订单优惠总额（分），加共享锁的当前读
+     */
+    Long sumDiscountAmountByOrderIdForShare(@Param("orderId") Long orderId);
+
     List<OrderDiscount> selectByOrderId(@Param("orderId") Long orderId);
 }
@@ -0,0 +1,53 @@
+package com.charge.mapper;
+
+import com.charge.entity.OutboxEvent;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventMapper {
+
+    /**
+     * 车场序号 +1（没有时从 1 开始），行锁持有到业务事务提交，同车场的写入按提交顺序排队
+     */
+    int nextLotSeq(@Param("parkingIotId") Long parkingIotId);
+
+    /**
+     * 写入事件，lot_seq 取本事务刚分配的车场序号，须先调用 nextLotSeq
+     */
+    int insert(OutboxEvent event);
+
+    /**
+     * 有待投递事件的车场，按最早事件排序
+     * excludeLots 为本轮已阻塞或已取完的车场
+     */
+    List<Long> selectPendingLots(@Param("limit") int limit,
+                                 @Param("excludeLots") Collection<Long> excludeLots);
+
+    /**
+     * 按 lot_seq 顺序取某车场的待投递事件（含未到重试时间的，用于保证同车场顺序）
+     */
+    List<OutboxEvent> selectPendingByLot(@Param("parkingIotId") Long parkingIotId,
+                                         @Param("limit") int limit);
+
+    /**
+     * 批量标记为已投递
+     */
+    int markDone(@Param("ids") List<Long> ids);
+
+    /**
+     * 记录一次投递失败：status 为 0 时按 nextAttemptTime 重试，为 2 时不再投递
+     */
+    int markFailed(@Param("id") Long id,
+                   @Param("status") Integer status,
+                   @Param("attempts") Integer attempts,
+                   @Param("nextAttemptTime") LocalDateTime nextAttemptTime,
+                   @Param("lastError") String lastError);
+
+    /**
+     * 清理早于指定时间的已投递事件（单次最多 limit 条）
+     */
+    int deleteDoneBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
@@ -0,0 +1,18 @@
+package com.charge.mapper;
+
+import com.charge.simulation.SimulatedSession;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.time.LocalDateTime;
+
+public interface TariffSimulationMapper {
+
+    /**
+     * 流式读取车场在 [startTime, endTime) 内出场的记录及其出场订单金额
+     * 须在事务内遍历（游标依赖打开的 SqlSession），遍历完毕后关闭
+     */
+    Cursor<SimulatedSession> selectFinishedSessions(@Param("parkingIotId") Long parkingIotId,
+                                                    @Param("startTime") LocalDateTime startTime,
+                                                    @Param("endTime") LocalDateTime endTime);
+}
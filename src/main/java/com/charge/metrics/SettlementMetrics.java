@@ -0,0 +1,148 @@
+package com.charge.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 出场计费 / 预览计费分阶段耗时
+ * 指标名 charge.fee.stage，标签 flow（settle/preview）、stage、lot（车场ID），发布百分位直方图，
+ * 通过 /actuator/prometheus 或 /actuator/metrics/charge.fee.stage 查看
+ *
+ * 每个 (flow, lot) 的各阶段 Timer 首次使用时注册并缓存在数组里，热路径上只有 nanoTime 和一次数组下标访问
+ * 用法：每次请求 start 一个 Clock，每个阶段结束时 lap，耗时为距上一次 lap 的时间；
+ * 入场记录加载前无法得知车场，这些阶段的 lot 标签为 unknown
+ */
+@Component
+public class SettlementMetrics {
+
+    public static final String METRIC_NAME = "charge.fee.stage";
+
+    public static final String UNKNOWN_LOT = "unknown";
+
+    public enum Flow {
+        SETTLE("settle"),
+        PREVIEW("preview");
+
+        private final String tag;
+
+        Flow(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    public enum Stage {
+        /** 回放缓存 / 预览缓存查询（幂等检查） */
+        IDEMPOTENCY_CHECK("idempotency_check"),
+        /** 查询入场记录 */
+        RECORD_LOAD("record_load"),
+        /** 计费规则解析（含无规则车场的默认计费） */
+        RULE_RESOLVE("rule_resolve"),
+        /** 会员 + 优惠规则计算（含加载会员、优惠规则） */
+        DISCOUNT("discount"),
+        /** 插入订单和优惠明细 */
+        INSERT("insert"),
+        /** 更新入场记录并写发件箱 */
+        RECORD_UPDATE("record_update"),
+        /** 结算事务提交 */
+        COMMIT("commit"),
+        /** 回放缓存 / 预览缓存回写 */
+        CACHE_WRITE("cache_write");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    /**
+     * 未知车场在 Timer 缓存中的 key
+     */
+    private static final Long UNKNOWN_LOT_KEY = -1L;
+
+    /**
+     * 直方图桶范围：内存计算的阶段在百微秒级，数据库阶段在毫秒级；范围越窄每个 Timer 的桶越少
+     */
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(100_000);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(2);
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<Long, Timer[]> settleTimers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Timer[]> previewTimers = new ConcurrentHashMap<>();
+
+    public SettlementMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 开始一次请求的计时，第一个阶段从此刻算起
+     */
+    public Clock start(Flow flow) {
+        return new Clock(flow, System.nanoTime());
+    }
+
+    private Timer[] timers(Flow flow, Long parkingIotId) {
+        Long lot = parkingIotId != null ? parkingIotId : UNKNOWN_LOT_KEY;
+        ConcurrentHashMap<Long, Timer[]> byLot = flow == Flow.SETTLE ? settleTimers : previewTimers;
+        Timer[] timers = byLot.get(lot);
+        if (timers == null) {
+            timers = byLot.computeIfAbsent(lot, l -> register(flow, UNKNOWN_LOT_KEY.equals(l) ? UNKNOWN_LOT : String.valueOf(l)));
+        }
+        return timers;
+    }
+
+    private Timer[] register(Flow flow, String lot) {
+        Timer[] timers = new Timer[STAGES.length];
+        for (Stage stage : STAGES) {
+            timers[stage.ordinal()] = Timer.builder(METRIC_NAME)
+                    .description("出场/预览计费分阶段耗时")
+                    .tag("flow", flow.tag)
+                    .tag("stage", stage.tag)
+                    .tag("lot", lot)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(MIN_EXPECTED)
+                    .maximumExpectedValue(MAX_EXPECTED)
+                    .register(meterRegistry);
+        }
+        return timers;
+    }
+
+    /**
+     * 单次请求的阶段计时，只在处理请求的线程内使用
+     */
+    public final class Clock {
+
+        private final Flow flow;
+        private Long parkingIotId;
+        private long mark;
+
+        private Clock(Flow flow, long mark) {
+            this.flow = flow;
+            this.mark = mark;
+        }
+
+        /**
+         * 设置车场，之后的阶段按该车场打标签
+         */
+        public void lot(Long parkingIotId) {
+            this.parkingIotId = parkingIotId;
+        }
+
+        /**
+         * 记录距上一次 lap（或 start）的耗时
+         */
+        public void lap(Stage stage) {
+            long now = System.nanoTime();
+            timers(flow, parkingIotId)[stage.ordinal()].record(now - mark, TimeUnit.NANOSECONDS);
+            mark = now;
+        }
+    }
+}
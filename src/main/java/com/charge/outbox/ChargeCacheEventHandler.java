@@ -0,0 +1,41 @@
+package com.charge.outbox;
+
+import com.charge.entity.OutboxEvent;
+import com.charge.service.ChargeCacheService;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 结算/改价后的缓存清理
+ * 出场后费用预览失效；改价后出场回放缓存失效（否则道闸重试会拿到旧金额）
+ */
+@Component
+public class ChargeCacheEventHandler implements OutboxEventHandler {
+
+    private final ChargeCacheService chargeCacheService;
+
+    public ChargeCacheEventHandler(ChargeCacheService chargeCacheService) {
+        this.chargeCacheService = chargeCacheService;
+    }
+
+    @Override
+    public Collection<String> eventTypes() {
+        return Arrays.asList(OutboxEventType.EXIT_SETTLED, OutboxEventType.ORDER_CHANGED);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        Long inRecordId = event.getAggregateId();
+        if (inRecordId == null) {
+            return;
+        }
+        boolean evicted = OutboxEventType.ORDER_CHANGED.equals(event.getEventType())
+                ? chargeCacheService.evictSettledFee(inRecordId)
+                : chargeCacheService.evictFeePreview(inRecordId);
+        if (!evicted) {
+            throw new IllegalStateException("缓存清理失败: " + event.getEventType() + ", inRecordId=" + inRecordId);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.charge.outbox;
+
+import com.charge.entity.OutboxEvent;
+import com.charge.mapper.OutboxEventMapper;
+import com.common.service.DistributedLockService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 发件箱分发器
+ * 定时按车场拉取待投递事件交给 OutboxEventHandler，成功的一批用一条 UPDATE 标记完成：
+ * - 至少一次：先处理后标记，标记前宕机会重复投递，由处理器保证幂等
+ * - 同车场有序：按 lot_seq（写入事务内分配，即提交顺序）投递；自增 id 按插入先后分配，
+ *   与提交顺序可能不同，不作为顺序依据
+ * - 某车场的事件失败或未到重试时间时，本轮跳过该车场后续事件，不影响其他车场
+ * - 失败重试：按 base * 2^(n-1) 退避，超过最大次数后置为失败（status=2）并放行后续事件
+ * 多节点部署时通过分布式锁保证同一时刻只有一个节点在分发
+ */
+@Slf4j
+@Component
+public class OutboxDispatcher {
+
+    private static final String DISPATCH_LOCK = "outbox:dispatch";
+
+    private static final long DISPATCH_LOCK_EXPIRE = 30L;
+
+    private static final int STATUS_DEAD = 2;
+
+    private static final int LAST_ERROR_MAX_LENGTH = 500;
+
+    private static final int PURGE_BATCH = 1000;
+
+    private final OutboxEventMapper outboxEventMapper;
+    private final DistributedLockService distributedLockService;
+    private final Map<String, List<OutboxEventHandler>> handlers = new HashMap<>();
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffBaseMillis;
+    private final long backoffMaxMillis;
+
+    @Value("${outbox.dispatch.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 单次分发最长耗时，超过后留给下一轮
+     */
+    @Value("${outbox.dispatch.time-budget-ms:2000}")
+    private long timeBudgetMillis = 2000L;
+
+    @Value("${outbox.retention-days:7}")
+    private int retentionDays = 7;
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dead = new LongAdder();
+
+    private volatile long lastPurgeNanos = System.nanoTime();
+
+    @Autowired
+    public OutboxDispatcher(OutboxEventMapper outboxEventMapper,
+                            DistributedLockService distributedLockService,
+                            List<OutboxEventHandler> handlerList,
+                            @Value("${outbox.dispatch.batch-size:100}") int batchSize,
+                            @Value("${outbox.dispatch.max-attempts:10}") int maxAttempts,
+                            @Value("${outbox.dispatch.backoff-base-ms:2000}") long backoffBaseMillis,
+                            @Value("${outbox.dispatch.backoff-max-ms:600000}") long backoffMaxMillis) {
+        this.outboxEventMapper = outboxEventMapper;
+        this.distributedLockService = distributedLockService;
+        for (OutboxEventHandler handler : handlerList) {
+            for (String type : handler.eventTypes()) {
+                handlers.computeIfAbsent(type, k -> new ArrayList<>()).add(handler);
+            }
+        }
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.dispatch.interval-ms:500}")
+    public void dispatch() {
+        if (!enabled) {
+            return;
+        }
+        String lockValue = distributedLockService.tryLock(DISPATCH_LOCK, DISPATCH_LOCK_EXPIRE);
+        if (lockValue == null) {
+            return;
+        }
+        try {
+            drain();
+            purgeIfDue();
+        } catch (Exception e) {
+            log.error("发件箱分发异常", e);
+        } finally {
+            distributedLockService.unlock(DISPATCH_LOCK, lockValue);
+        }
+    }
+
+    /**
+     * 拉取并投递，直到没有可投递事件或超出本轮时间预算
+     *
+     * @return 本轮成功投递的事件数
+     */
+    int drain() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+        // 本轮已阻塞或已取完的车场
+        Set<Long> skippedLots = new HashSet<>();
+        int delivered = 0;
+        while (System.nanoTime() <= deadline) {
+            List<Long> lots = outboxEventMapper.selectPendingLots(batchSize, skippedLots);
+            if (lots.isEmpty()) {
+                break;
+            }
+            for (Long lot : lots) {
+                delivered += drainLot(lot, skippedLots);
+                if (System.nanoTime() > deadline) {
+                    break;
+                }
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * 按 lot_seq 顺序投递某车场的一批事件，车场被阻塞或事件已取完时加入 skippedLots
+     *
+     * @return 成功投递的事件数
+     */
+    private int drainLot(Long lot, Set<Long> skippedLots) {
+        List<OutboxEvent> batch = outboxEventMapper.selectPendingByLot(lot, batchSize);
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> doneIds = new ArrayList<>();
+        boolean blocked = false;
+        for (OutboxEvent event : batch) {
+            // 车场队首事件还在退避中，整条队列等待
+            if (event.getNextAttemptTime() != null && event.getNextAttemptTime().isAfter(now)) {
+                blocked = true;
+                break;
+            }
+            if (deliver(event)) {
+                doneIds.add(event.getId());
+            } else if (!Integer.valueOf(STATUS_DEAD).equals(event.getStatus())) {
+                blocked = true;
+                break;
+            }
+        }
+        if (!doneIds.isEmpty()) {
+            outboxEventMapper.markDone(doneIds);
+            dispatched.add(doneIds.size());
+        }
+        if (blocked || batch.size() < batchSize) {
+            skippedLots.add(lot);
+        }
+        return doneIds.size();
+    }
+
+    /**
+     * 交给所有关注该类型的处理器；没有处理器的事件直接视为已投递
+     * 失败时记录退避时间，返回 false
+     */
+    private boolean deliver(OutboxEvent event) {
+        List<OutboxEventHandler> targets = handlers.getOrDefault(event.getEventType(), Collections.emptyList());
+        try {
+            for (OutboxEventHandler handler : targets) {
+                handler.handle(event);
+            }
+            return true;
+        } catch (Exception e) {
+            recordFailure(event, e);
+            return false;
+        }
+    }
+
+    private void recordFailure(OutboxEvent event, Exception e) {
+        int attempts = (event.getAttempts() != null ? event.getAttempts() : 0) + 1;
+        String error = String.valueOf(e.getMessage());
+        if (error.length() > LAST_ERROR_MAX_LENGTH) {
+            error = error.substring(0, LAST_ERROR_MAX_LENGTH);
+        }
+        event.setAttempts(attempts);
+        event.setLastError(error);
+        if (attempts >= maxAttempts) {
+            event.setStatus(STATUS_DEAD);
+            dead.increment();
+            log.error("发件箱事件投递失败次数超限，不再重试: id={}, type={}, parkingIotId={}, aggregateId={}",
+                    event.getId(), event.getEventType(), event.getParkingIotId(), event.getAggregateId(), e);
+        } else {
+            event.setNextAttemptTime(LocalDateTime.now().plusNanos(
+                    TimeUnit.MILLISECONDS.toNanos(backoffMillis(attempts))));
+            failed.increment();
+            log.warn("发件箱事件投递失败，稍后重试: id={}, type={}, attempts={}, error={}",
+                    event.getId(), event.getEventType(), attempts, error);
+        }
+        outboxEventMapper.markFailed(event.getId(), event.getStatus(), attempts,
+                event.getNextAttemptTime(), error);
+    }
+
+    /**
+     * 第 n 次失败后的等待时间：base * 2^(n-1)，不超过 max
+     */
+    long backoffMillis(int attempts) {
+        int shift = Math.min(attempts - 1, 30);
+        long delay = backoffBaseMillis << shift;
+        return delay <= 0 || delay > backoffMaxMillis ? backoffMaxMillis : delay;
+    }
+
+    /**
+     * 每 10 分钟清理一次过期的已投递事件
+     */
+    private void purgeIfDue() {
+        long now = System.nanoTime();
+        if (now - lastPurgeNanos < TimeUnit.MINUTES.toNanos(10)) {
+            return;
+        }
+        lastPurgeNanos = now;
+        int purged = outboxEventMapper.deleteDoneBefore(LocalDateTime.now().minusDays(retentionDays), PURGE_BATCH);
+        if (purged > 0) {
+            log.info("清理已投递发件箱事件: {} 条", purged);
+        }
+    }
+
+    /**
+     * 分发统计：成功投递数、失败（待重试）次数、失败次数超限的事件数
+     */
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("dispatched", dispatched.sum());
+        stats.put("failed", failed.sum());
+        stats.put("dead", dead.sum());
+        return stats;
+    }
+}
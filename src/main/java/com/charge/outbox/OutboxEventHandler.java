@@ -0,0 +1,20 @@
+package com.charge.outbox;
+
+import com.charge.entity.OutboxEvent;
+
+import java.util.Collection;
+
+/**
+ * 发件箱事件处理器
+ * 投递语义为至少一次：同一事件可能被重复处理，实现必须幂等；
+ * 处理失败时抛出异常，分发器按指数退避重试，重试期间同车场后续事件暂停投递
+ */
+public interface OutboxEventHandler {
+
+    /**
+     * 关注的事件类型
+     */
+    Collection<String> eventTypes();
+
+    void handle(OutboxEvent event);
+}
@@ -0,0 +1,20 @@
+package com.charge.outbox;
+
+/**
+ * 发件箱事件类型
+ */
+public final class OutboxEventType {
+
+    /**
+     * 出场结算完成（aggregateId = 入场记录ID）
+     */
+    public static final String EXIT_SETTLED = "EXIT_SETTLED";
+
+    /**
+     * 订单金额被修改（aggregateId = 入场记录ID）
+     */
+    public static final String ORDER_CHANGED = "ORDER_CHANGED";
+
+    private OutboxEventType() {
+    }
+}
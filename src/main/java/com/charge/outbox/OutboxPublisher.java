@@ -0,0 +1,52 @@
+package com.charge.outbox;
+
+import com.charge.entity.OutboxEvent;
+import com.charge.mapper.OutboxEventMapper;
+import com.common.exception.BusinessException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+/**
+ * 发件箱写入
+ * 必须在业务事务内调用：事件与业务数据一起提交或一起回滚，提交后由 OutboxDispatcher 异步投递
+ */
+@Component
+public class OutboxPublisher {
+
+    private final OutboxEventMapper outboxEventMapper;
+    private final ObjectMapper objectMapper;
+
+    public OutboxPublisher(OutboxEventMapper outboxEventMapper, ObjectMapper objectMapper) {
+        this.outboxEventMapper = outboxEventMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 写入一条事件
+     *
+     * @param eventType    事件类型，见 OutboxEventType
+     * @param parkingIotId 所属车场（同车场按提交顺序投递），为空时记为 0
+     * @param aggregateId  业务主键
+     * @param payload      事件内容，序列化为 JSON
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String eventType, Long parkingIotId, Long aggregateId, Map<String, Object> payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(eventType);
+        event.setParkingIotId(parkingIotId != null ? parkingIotId : 0L);
+        event.setAggregateId(aggregateId);
+        try {
+            event.setPayload(payload != null ? objectMapper.writeValueAsString(payload) : null);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("事件内容序列化失败: " + eventType);
+        }
+        // 先占车场序号行锁再写事件，同车场并发事务按提交先后拿到递增的 lot_seq
+        outboxEventMapper.nextLotSeq(event.getParkingIotId());
+        outboxEventMapper.insert(event);
+    }
+}
@@ -1,20 +1,33 @@
 package com.charge.service;
 
-import com.charge.entity.ChargeRule;
 import com.charge.entity.Member;
 import com.charge.entity.DiscountRule;
+import com.charge.entity.DTO.CalculateFeeRequest;
 import com.charge.entity.VO.CalculateFeeResponse;
+import com.charge.entity.VO.FeePreviewSnapshot;
+import com.charge.tariff.CompiledTariff;
+import com.charge.tariff.TariffCompiler;
+import com.common.exception.BusinessException;
 import com.parking.entity.ParkingIot;
+import com.common.cache.LocalCacheManager;
+import com.common.cache.LocalCacheRegion;
 import com.common.utils.RedisService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
 
 /**
  * 计费缓存服务
  * 统一管理计费模块的所有缓存逻辑
+ *
+ * 计费规则 / 车场 / 会员 / 优惠规则为两级缓存：本地缓存（一级）+ Redis（二级），
+ * 本节点写入或删除时通过 LocalCacheManager 广播，其他节点的本地缓存同步失效
  */
 @Slf4j
 @Service
@@ -23,84 +36,61 @@ public class ChargeCacheService {
     private final RedisService redisService;
 
     // ========== 缓存Key前缀 ==========
-    private static final String CHARGE_RULE_PREFIX = "charge:rule:parkingIotId:";
-    private static final String PARKING_IOT_PREFIX = "charge:parking:iot:";
-    private static final String MEMBER_PREFIX = "charge:member:userId:";
-    private static final String DISCOUNT_RULE_PREFIX = "charge:discount:rule:";
-    private static final String FEE_PREVIEW_PREFIX = "charge:preview:";
+    // 完整 key 为 charge:{代数}:{前缀}{id}，清除全部计费缓存时只需代数 +1，旧代数的 key 自然过期
+    private static final String NAMESPACE = "charge:";
+    private static final String GENERATION_KEY = "charge:generation";
+    private static final String PARKING_IOT_PREFIX = "parking:iot:";
+    private static final String MEMBER_PREFIX = "member:userId:";
+    private static final String DISCOUNT_RULE_PREFIX = "discount:rule:";
+    private static final String FEE_PREVIEW_PREFIX = "preview:";
+    private static final String SETTLED_FEE_PREFIX = "settled:";
 
     // ========== 缓存过期时间（秒） ==========
-    private static final long CHARGE_RULE_EXPIRE = 1800L;      // 30分钟
     private static final long PARKING_IOT_EXPIRE = 3600L;      // 1小时
     private static final long MEMBER_EXPIRE = 600L;            // 10分钟
     private static final long DISCOUNT_RULE_EXPIRE = 1800L;    // 30分钟
     private static final long FEE_PREVIEW_EXPIRE = 300L;       // 5分钟
+    private static final long SETTLED_FEE_EXPIRE = 600L;       // 10分钟
 
-    public ChargeCacheService(RedisService redisService) {
+    // ========== 本地缓存区域 ==========
+    private static final String PARKING_IOT_REGION = "parkingIot";
+    private static final String MEMBER_REGION = "member";
+    private static final String DISCOUNT_RULE_REGION = "discountRule";
+    private static final String GENERATION_REGION = "chargeGeneration";
+    private static final String DEFAULT_TARIFF_REGION = "defaultTariff";
+
+    private final LocalCacheManager localCacheManager;
+    private final LocalCacheRegion parkingIotLocal;
+    private final LocalCacheRegion memberLocal;
+    private final LocalCacheRegion discountRuleLocal;
+    private final LocalCacheRegion generationLocal;
+    private final LocalCacheRegion defaultTariffLocal;
+
+    public ChargeCacheService(RedisService redisService, LocalCacheManager localCacheManager) {
         this.redisService = redisService;
+        this.localCacheManager = localCacheManager;
+        this.parkingIotLocal = localCacheManager.region(PARKING_IOT_REGION);
+        this.memberLocal = localCacheManager.region(MEMBER_REGION);
+        this.discountRuleLocal = localCacheManager.region(DISCOUNT_RULE_REGION);
+        this.generationLocal = localCacheManager.region(GENERATION_REGION);
+        this.defaultTariffLocal = localCacheManager.region(DEFAULT_TARIFF_REGION);
     }
 
-    // ==================== 计费规则缓存 ====================
+    // ==================== 缓存代数 ====================
 
     /**
-     * 缓存计费规则
-     *
-     * @param parkingIotId 车场ID
-     * @param rule 计费规则（可为null，表示无规则）
+     * 当前缓存代数（本地缓存，代数变更时通过广播失效）
      */
-    public void cacheChargeRule(Long parkingIotId, ChargeRule rule) {
-        try {
-            String key = CHARGE_RULE_PREFIX + parkingIotId;
-            if (rule == null) {
-                // 缓存一个特殊值表示"无规则"，避免缓存穿透
-                redisService.set(key, "NULL", CHARGE_RULE_EXPIRE);
-            } else {
-                redisService.set(key, rule, CHARGE_RULE_EXPIRE);
-            }
-            log.debug("缓存计费规则成功: parkingIotId={}, ruleId={}", parkingIotId, 
-                rule != null ? rule.getId() : null);
-        } catch (Exception e) {
-            log.error("缓存计费规则失败: parkingIotId={}", parkingIotId, e);
-        }
+    private long generation() {
+        Object obj = generationLocal.get(GENERATION_KEY, key -> {
+            Object value = redisService.get(key);
+            return value != null ? value : 0L;
+        });
+        return ((Number) obj).longValue();
     }
 
-    /**
-     * 获取计费规则（从缓存）
-     *
-     * @param parkingIotId 车场ID
-     * @return 计费规则，如果缓存不存在返回null
-     */
-    public ChargeRule getChargeRule(Long parkingIotId) {
-        try {
-            String key = CHARGE_RULE_PREFIX + parkingIotId;
-            Object obj = redisService.get(key);
-            if (obj == null) {
-                return null;
-            }
-            if ("NULL".equals(obj)) {
-                // 表示数据库中无此规则
-                return new ChargeRule(); // 返回空对象作为标记
-            }
-            return (ChargeRule) obj;
-        } catch (Exception e) {
-            log.error("获取计费规则缓存失败: parkingIotId={}", parkingIotId, e);
-            return null;
-        }
-    }
-
-    /**
-     * 删除计费规则缓存
-     *
-     * @param parkingIotId 车场ID
-     */
-    public void evictChargeRule(Long parkingIotId) {
-        try {
-            String key = CHARGE_RULE_PREFIX + parkingIotId;
-            redisService.del(key);
-            log.debug("删除计费规则缓存成功: parkingIotId={}", parkingIotId);
-        } catch (Exception e) {
-            log.error("删除计费规则缓存失败: parkingIotId={}", parkingIotId, e);
-        }
+    private String key(String prefix, Object id) {
+        return NAMESPACE + generation() + ":" + prefix + id;
     }
 
     // ==================== 车场信息缓存 ====================
@@ -115,8 +105,12 @@ public class ChargeCacheService {
             if (parkingIot == null || parkingIot.getId() == null) {
                 return;
             }
-            String key = PARKING_IOT_PREFIX + parkingIot.getId();
+            String key = key(PARKING_IOT_PREFIX, parkingIot.getId());
             redisService.set(key, parkingIot, PARKING_IOT_EXPIRE);
+            parkingIotLocal.put(key, parkingIot);
+            defaultTariffLocal.invalidate(key);
+            localCacheManager.invalidateRemote(PARKING_IOT_REGION, key);
+            localCacheManager.invalidateRemote(DEFAULT_TARIFF_REGION, key);
             log.debug("缓存车场信息成功: parkingIotId={}", parkingIot.getId());
         } catch (Exception e) {
             log.error("缓存车场信息失败: parkingIotId={}", 
@@ -132,8 +126,8 @@ public class ChargeCacheService {
      */
     public ParkingIot getParkingIot(Long parkingIotId) {
         try {
-            String key = PARKING_IOT_PREFIX + parkingIotId;
-            Object obj = redisService.get(key);
+            String key = key(PARKING_IOT_PREFIX, parkingIotId);
+            Object obj = parkingIotLocal.get(key, redisService::get);
             return obj != null ? (ParkingIot) obj : null;
         } catch (Exception e) {
             log.error("获取车场信息缓存失败: parkingIotId={}", parkingIotId, e);
@@ -148,14 +142,37 @@ public class ChargeCacheService {
      */
     public void evictParkingIot(Long parkingIotId) {
         try {
-            String key = PARKING_IOT_PREFIX + parkingIotId;
+            String key = key(PARKING_IOT_PREFIX, parkingIotId);
             redisService.del(key);
+            localCacheManager.invalidate(PARKING_IOT_REGION, key);
+            localCacheManager.invalidate(DEFAULT_TARIFF_REGION, key);
             log.debug("删除车场信息缓存成功: parkingIotId={}", parkingIotId);
         } catch (Exception e) {
             log.error("删除车场信息缓存失败: parkingIotId={}", parkingIotId, e);
         }
     }
 
+    /**
+     * 车场默认计费（车场无计费规则时使用）：按车场编译一次后只存本地缓存，随车场缓存一起失效
+     * 本地未命中时车场信息依次取 车场缓存 -> parkingIotLoader（数据库），从数据库加载的车场写回车场缓存
+     *
+     * @param parkingIotLoader 按车场ID查询数据库
+     */
+    public CompiledTariff getDefaultTariff(Long parkingIotId, Function<Long, ParkingIot> parkingIotLoader) {
+        String key = key(PARKING_IOT_PREFIX, parkingIotId);
+        return (CompiledTariff) defaultTariffLocal.get(key, k -> {
+            ParkingIot parkingIot = getParkingIot(parkingIotId);
+            if (parkingIot == null) {
+                parkingIot = parkingIotLoader.apply(parkingIotId);
+                if (parkingIot == null) {
+                    throw new BusinessException("车场不存在,id=" + parkingIotId);
+                }
+                cacheParkingIot(parkingIot);
+            }
+            return TariffCompiler.compileDefault(parkingIot);
+        });
+    }
+
     // ==================== 会员信息缓存 ====================
 
     /**
@@ -166,13 +183,12 @@ public class ChargeCacheService {
      */
     public void cacheMember(Long userId, Member member) {
         try {
-            String key = MEMBER_PREFIX + userId;
-            if (member == null) {
-                // 缓存特殊值表示"非会员"，避免缓存穿透
-                redisService.set(key, "NULL", MEMBER_EXPIRE);
-            } else {
-                redisService.set(key, member, MEMBER_EXPIRE);
-            }
+            String key = key(MEMBER_PREFIX, userId);
+            Object value = member != null ? member : "NULL";
+            // member 为 null 时缓存特殊值表示"非会员"，避免缓存穿透
+            redisService.set(key, value, MEMBER_EXPIRE);
+            memberLocal.put(key, value);
+            localCacheManager.invalidateRemote(MEMBER_REGION, key);
             log.debug("缓存会员信息成功: userId={}, memberId={}", userId, 
                 member != null ? member.getId() : null);
         } catch (Exception e) {
@@ -188,8 +204,8 @@ public class ChargeCacheService {
      */
     public Member getMember(Long userId) {
         try {
-            String key = MEMBER_PREFIX + userId;
-            Object obj = redisService.get(key);
+            String key = key(MEMBER_PREFIX, userId);
+            Object obj = memberLocal.get(key, redisService::get);
             if (obj == null) {
                 return null;
             }
@@ -211,8 +227,9 @@ public class ChargeCacheService {
      */
     public void evictMember(Long userId) {
         try {
-            String key = MEMBER_PREFIX + userId;
+            String key = key(MEMBER_PREFIX, userId);
             redisService.del(key);
+            localCacheManager.invalidate(MEMBER_REGION, key);
             log.debug("删除会员信息缓存成功: userId={}", userId);
         } catch (Exception e) {
             log.error("删除会员信息缓存失败: userId={}", userId, e);
@@ -232,13 +249,12 @@ public class ChargeCacheService {
             if (ruleCode == null || ruleCode.isEmpty()) {
                 return;
             }
-            String key = DISCOUNT_RULE_PREFIX + ruleCode;
-            if (rule == null) {
-                // 缓存特殊值表示"无此规则"，避免缓存穿透
-                redisService.set(key, "NULL", DISCOUNT_RULE_EXPIRE);
-            } else {
-                redisService.set(key, rule, DISCOUNT_RULE_EXPIRE);
-            }
+            String key = key(DISCOUNT_RULE_PREFIX, ruleCode);
+            Object value = rule != null ? rule : "NULL";
+            // rule 为 null 时缓存特殊值表示"无此规则"，避免缓存穿透
+            redisService.set(key, value, DISCOUNT_RULE_EXPIRE);
+            discountRuleLocal.put(key, value);
+            localCacheManager.invalidateRemote(DISCOUNT_RULE_REGION, key);
             log.debug("缓存优惠规则成功: ruleCode={}, ruleId={}", ruleCode, 
                 rule != null ? rule.getId() : null);
         } catch (Exception e) {
@@ -257,8 +273,8 @@ public class ChargeCacheService {
             if (ruleCode == null || ruleCode.isEmpty()) {
                 return null;
             }
-            String key = DISCOUNT_RULE_PREFIX + ruleCode;
-            Object obj = redisService.get(key);
+            String key = key(DISCOUNT_RULE_PREFIX, ruleCode);
+            Object obj = discountRuleLocal.get(key, redisService::get);
             if (obj == null) {
                 return null;
             }
@@ -283,8 +299,9 @@ public class ChargeCacheService {
             if (ruleCode == null || ruleCode.isEmpty()) {
                 return;
             }
-            String key = DISCOUNT_RULE_PREFIX + ruleCode;
+            String key = key(DISCOUNT_RULE_PREFIX, ruleCode);
             redisService.del(key);
+            localCacheManager.invalidate(DISCOUNT_RULE_REGION, key);
             log.debug("删除优惠规则缓存成功: ruleCode={}", ruleCode);
         } catch (Exception e) {
             log.error("删除优惠规则缓存失败: ruleCode={}", ruleCode, e);
@@ -295,86 +312,213 @@ public class ChargeCacheService {
 
     /**
      * 缓存费用预览结果
+     * 同一入场记录的所有预览结果存放在一个 hash 中（field 为用户 + 优惠编码），值为当前价格阶梯的快照，
+     * 过期时间取到下一次价格变化为止（最长 5 分钟）
      *
-     * @param inRecordId 入场记录ID
-     * @param outTime 出场时间
-     * @param response 预览结果
+     * @param request 预览请求
+     * @param snapshot 价格阶梯快照
      */
-    public void cacheFeePreview(Long inRecordId, LocalDateTime outTime, 
-                                CalculateFeeResponse response) {
+    public void cacheFeePreview(CalculateFeeRequest request, FeePreviewSnapshot snapshot) {
         try {
-            String timeStr = outTime.format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-            String key = FEE_PREVIEW_PREFIX + inRecordId + ":" + timeStr;
-            redisService.set(key, response, FEE_PREVIEW_EXPIRE);
-            log.debug("缓存费用预览成功: inRecordId={}, outTime={}", inRecordId, timeStr);
+            String key = key(FEE_PREVIEW_PREFIX, request.getInRecordId());
+            redisService.hset(key, feePreviewField(request), snapshot, feePreviewExpire(snapshot));
+            log.debug("缓存费用预览成功: inRecordId={}, nextChangeAt={}",
+                request.getInRecordId(), snapshot.getNextChangeAt());
         } catch (Exception e) {
-            log.error("缓存费用预览失败: inRecordId={}", inRecordId, e);
+            log.error("缓存费用预览失败: inRecordId={}", request.getInRecordId(), e);
         }
     }
 
     /**
      * 获取费用预览结果（从缓存）
+     * 出场时间落在缓存的价格阶梯内即命中，停车时长与出场时间按本次请求重新填写
      *
-     * @param inRecordId 入场记录ID
-     * @param outTime 出场时间
-     * @return 预览结果，如果缓存不存在返回null
+     * @param request 预览请求
+     * @return 预览结果，如果缓存不存在或已跨越价格阶梯返回null
+     */
+    public CalculateFeeResponse getFeePreview(CalculateFeeRequest request) {
+        try {
+            String key = key(FEE_PREVIEW_PREFIX, request.getInRecordId());
+            Object obj = redisService.hget(key, feePreviewField(request));
+            return toPreviewResponse(obj, request);
+        } catch (Exception e) {
+            log.error("获取费用预览缓存失败: inRecordId={}", request.getInRecordId(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 批量获取费用预览结果（管道一次往返）
+     *
+     * @param requests 预览请求
+     * @return 与 requests 一一对应的预览结果，未命中为 null；读取失败时全部为 null
+     */
+    public List<CalculateFeeResponse> getFeePreviews(List<CalculateFeeRequest> requests) {
+        List<CalculateFeeResponse> responses = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        try {
+            List<String> keys = new ArrayList<>(requests.size());
+            List<String> fields = new ArrayList<>(requests.size());
+            for (CalculateFeeRequest request : requests) {
+                keys.add(key(FEE_PREVIEW_PREFIX, request.getInRecordId()));
+                fields.add(feePreviewField(request));
+            }
+            List<Object> values = redisService.hgetPipelined(keys, fields);
+            for (int i = 0; i < values.size(); i++) {
+                responses.set(i, toPreviewResponse(values.get(i), requests.get(i)));
+            }
+            log.debug("批量获取费用预览缓存: size={}", requests.size());
+        } catch (Exception e) {
+            log.error("批量获取费用预览缓存失败: size={}", requests.size(), e);
+        }
+        return responses;
+    }
+
+    /**
+     * 批量缓存费用预览结果（管道一次往返）
+     *
+     * @param requests 预览请求
+     * @param snapshots 与 requests 一一对应的价格阶梯快照
      */
-    public CalculateFeeResponse getFeePreview(Long inRecordId, LocalDateTime outTime) {
+    public void cacheFeePreviews(List<CalculateFeeRequest> requests, List<FeePreviewSnapshot> snapshots) {
+        if (requests == null || requests.isEmpty()) {
+            return;
+        }
         try {
-            String timeStr = outTime.format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-            String key = FEE_PREVIEW_PREFIX + inRecordId + ":" + timeStr;
-            Object obj = redisService.get(key);
-            return obj != null ? (CalculateFeeResponse) obj : null;
+            List<String> keys = new ArrayList<>(requests.size());
+            List<String> fields = new ArrayList<>(requests.size());
+            List<Object> values = new ArrayList<>(requests.size());
+            long[] times = new long[requests.size()];
+            for (int i = 0; i < requests.size(); i++) {
+                CalculateFeeRequest request = requests.get(i);
+                keys.add(key(FEE_PREVIEW_PREFIX, request.getInRecordId()));
+                fields.add(feePreviewField(request));
+                values.add(snapshots.get(i));
+                times[i] = feePreviewExpire(snapshots.get(i));
+            }
+            redisService.hsetPipelined(keys, fields, values, times);
+            log.debug("批量缓存费用预览成功: size={}", requests.size());
         } catch (Exception e) {
-            log.error("获取费用预览缓存失败: inRecordId={}", inRecordId, e);
+            log.error("批量缓存费用预览失败: size={}", requests.size(), e);
+        }
+    }
+
+    /**
+     * 预览结果与用户、优惠编码相关，按二者区分
+     */
+    private String feePreviewField(CalculateFeeRequest request) {
+        return request.getUserId() + ":" + (request.getDiscountRuleCode() != null ? request.getDiscountRuleCode() : "");
+    }
+
+    private CalculateFeeResponse toPreviewResponse(Object obj, CalculateFeeRequest request) {
+        if (!(obj instanceof FeePreviewSnapshot)) {
             return null;
         }
+        FeePreviewSnapshot snapshot = (FeePreviewSnapshot) obj;
+        if (!snapshot.covers(request.getExitTime())) {
+            return null;
+        }
+        return snapshot.toResponse(request.getExitTime());
+    }
+
+    /**
+     * 缓存到下一次价格变化为止；出场时间在过去（价格阶梯已结束）时按默认时长缓存
+     */
+    private long feePreviewExpire(FeePreviewSnapshot snapshot) {
+        long seconds = Duration.between(LocalDateTime.now(), snapshot.getNextChangeAt()).getSeconds();
+        if (seconds <= 0 || seconds > FEE_PREVIEW_EXPIRE) {
+            return FEE_PREVIEW_EXPIRE;
+        }
+        return seconds;
     }
 
     /**
      * 删除费用预览缓存
+     * 只删除该记录的 hash，复杂度与该记录的预览条数成正比，不扫描键空间
      *
      * @param inRecordId 入场记录ID
+     * @return 是否删除成功（Redis 异常时返回 false，供事件分发重试）
      */
-    public void evictFeePreview(Long inRecordId) {
+    public boolean evictFeePreview(Long inRecordId) {
         try {
-            // 使用Lua脚本删除所有匹配的预览缓存
-            String pattern = FEE_PREVIEW_PREFIX + inRecordId + ":*";
-            String luaScript = 
-                "local keys = redis.call('keys', ARGV[1]) " +
-                "if #keys > 0 then " +
-                "    return redis.call('del', unpack(keys)) " +
-                "else " +
-                "    return 0 " +
-                "end";
-            
-            redisService.executeLuaScript(luaScript, Long.class, 
-                java.util.Collections.emptyList(), pattern);
+            redisService.del(key(FEE_PREVIEW_PREFIX, inRecordId));
             log.debug("删除费用预览缓存成功: inRecordId={}", inRecordId);
+            return true;
         } catch (Exception e) {
             log.error("删除费用预览缓存失败: inRecordId={}", inRecordId, e);
+            return false;
+        }
+    }
+
+    // ==================== 出场计费回放缓存 ====================
+
+    /**
+     * 缓存已结算的出场计费结果（订单事务提交后调用）
+     * 道闸重试同一出场时直接返回，不再访问数据库；同一入场记录的结果存放在一个 hash 中（field 为出场时间）
+     *
+     * @param response 出场计费结果
+     */
+    public void cacheSettledFee(CalculateFeeResponse response) {
+        try {
+            String key = key(SETTLED_FEE_PREFIX, response.getInRecordId());
+            redisService.hset(key, String.valueOf(response.getRealOutTime()), response, SETTLED_FEE_EXPIRE);
+            log.debug("缓存出场计费结果成功: inRecordId={}, orderId={}",
+                response.getInRecordId(), response.getOrderId());
+        } catch (Exception e) {
+            log.error("缓存出场计费结果失败: inRecordId={}", response.getInRecordId(), e);
+        }
+    }
+
+    /**
+     * 获取已结算的出场计费结果（从缓存）
+     *
+     * @param inRecordId 入场记录ID
+     * @param outTime 出场时间
+     * @return 出场计费结果，如果缓存不存在返回null
+     */
+    public CalculateFeeResponse getSettledFee(Long inRecordId, LocalDateTime outTime) {
+        try {
+            Object obj = redisService.hget(key(SETTLED_FEE_PREFIX, inRecordId), String.valueOf(outTime));
+            if (obj instanceof CalculateFeeResponse) {
+                log.debug("出场计费回放缓存命中: inRecordId={}, outTime={}", inRecordId, outTime);
+                return (CalculateFeeResponse) obj;
+            }
+        } catch (Exception e) {
+            log.error("获取出场计费回放缓存失败: inRecordId={}", inRecordId, e);
+        }
+        return null;
+    }
+
+    /**
+     * 删除入场记录的全部出场计费回放缓存（订单改价 / 退款审批通过后调用）
+     *
+     * @param inRecordId 入场记录ID
+     * @return 是否删除成功（Redis 异常时返回 false，供事件分发重试）
+     */
+    public boolean evictSettledFee(Long inRecordId) {
+        try {
+            redisService.del(key(SETTLED_FEE_PREFIX, inRecordId));
+            log.debug("删除出场计费回放缓存成功: inRecordId={}", inRecordId);
+            return true;
+        } catch (Exception e) {
+            log.error("删除出场计费回放缓存失败: inRecordId={}", inRecordId, e);
+            return false;
         }
     }
 
     // ==================== 批量清除缓存 ====================
 
     /**
-     * 清除所有计费相关缓存（谨慎使用）
+     * 清除所有计费相关缓存
+     * 缓存代数 +1（O(1)），之后所有读写都使用新代数的 key，旧 key 由各自的过期时间回收
      */
     public void evictAllChargeCache() {
         try {
-            String pattern = "charge:*";
-            String luaScript = 
-                "local keys = redis.call('keys', ARGV[1]) " +
-                "if #keys > 0 then " +
-                "    return redis.call('del', unpack(keys)) " +
-                "else " +
-                "    return 0 " +
-                "end";
-            
-            redisService.executeLuaScript(luaScript, Long.class, 
-                java.util.Collections.emptyList(), pattern);
-            log.info("清除所有计费缓存成功");
+            long generation = redisService.incr(GENERATION_KEY, 1);
+            localCacheManager.invalidate(GENERATION_REGION, GENERATION_KEY);
+            localCacheManager.invalidateAll(PARKING_IOT_REGION);
+            localCacheManager.invalidateAll(MEMBER_REGION);
+            localCacheManager.invalidateAll(DISCOUNT_RULE_REGION);
+            log.info("清除所有计费缓存成功: generation={}", generation);
         } catch (Exception e) {
             log.error("清除所有计费缓存失败", e);
         }
@@ -1,7 +1,9 @@
 package com.charge.service;
 
 import com.charge.entity.ChargeRule;
+import com.charge.tariff.CompiledTariff;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface ChargeRuleService {
@@ -13,9 +15,30 @@ public interface ChargeRuleService {
 
     /**
      * 按规则 + 总停车分钟数，计算应收金额（分）
+     * 不含入场时刻，时段和每日封顶按入场时间为当天 00:00 计算；出场计费请使用 getApplicableTariff 后按入场时间计算
      */
     long calculateAmount(ChargeRule rule, long totalMinutes);
 
+    /**
+     * 编译单条规则为不可变计费对象
+     */
+    CompiledTariff compileTariff(ChargeRule rule);
+
+    /**
+     * 获取车场当前生效的全部规则（含 effective_time_range 时段）编译后的计费对象
+     * 车场无有效规则时返回 null
+     */
+    CompiledTariff getApplicableTariff(Long parkingIotId);
+
+    /**
+     * 获取车场在指定日期、指定车型下生效的规则编译后的计费对象（从内存规则快照读取，不访问 Redis / 数据库）
+     * 车场无该车型规则时使用 ALL 规则；无有效规则时返回 null
+     *
+     * @param carType 车型，为空表示 ALL
+     * @param date    计费日期，按此日期判断 effective_start_date / effective_end_date
+     */
+    CompiledTariff getApplicableTariff(Long parkingIotId, String carType, LocalDate date);
+
     // ======= 管理端规则维护接口 ========
 
     /**
@@ -4,6 +4,9 @@ import com.charge.entity.DTO.CalculateFeeRequest;
 import com.charge.entity.VO.CalculateFeeResponse;
 import com.charge.entity.DTO.ConfirmPaymentRequest;
 
+import java.util.List;
+import java.util.Map;
+
 
 /**
  * 计费服务接口
@@ -24,5 +27,15 @@ public interface ChargeService {
      * 费用预览：只计算金额，不生成订单，不更新记录
      */
     CalculateFeeResponse previewParkingFee(CalculateFeeRequest request);
+
+    /**
+     * 批量费用预览：结果顺序与入参一致，单条结果与 previewParkingFee 相同
+     */
+    List<CalculateFeeResponse> previewParkingFees(List<CalculateFeeRequest> requests);
+
+    /**
+     * 出场结算并发合并统计（本节点）
+     */
+    Map<String, Long> getSettlementStats();
     
 } 
@@ -3,13 +3,25 @@ package com.charge.service.impl;
 import com.charge.entity.ChargeRule;
 import com.charge.mapper.ChargeRuleMapper;
 import com.charge.service.ChargeRuleService;
-import com.charge.service.ChargeCacheService;
+import com.charge.tariff.ChargeRuleSnapshot;
+import com.charge.tariff.CompiledTariff;
+import com.charge.tariff.TariffCompiler;
+import com.common.cache.LocalCacheManager;
 import com.common.exception.BusinessException;
+import com.parking.entity.ParkingIot;
+import com.parking.mapper.ParkingIotMapper;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import lombok.extern.slf4j.Slf4j;
 
@@ -19,37 +31,104 @@ public class ChargeRuleServiceImpl implements ChargeRuleService {
 
     @Resource
     private ChargeRuleMapper chargeRuleMapper;
-    
+
     @Resource
-    private ChargeCacheService chargeCacheService;
+    private ParkingIotMapper parkingIotMapper;
 
-    @Override
-    public ChargeRule getApplicableRule(Long parkingIotId) {
-        // 1. 先从缓存获取
-        ChargeRule cachedRule = chargeCacheService.getChargeRule(parkingIotId);
-        if (cachedRule != null) {
-            // 空对象标记表示数据库中无此规则
-            if (cachedRule.getId() == null) {
-                log.debug("缓存命中（无规则）: parkingIotId={}", parkingIotId);
-                return null;
+    @Resource
+    private LocalCacheManager localCacheManager;
+
+    /**
+     * 规则快照变更的跨节点广播区域，key 为车场ID，* 表示全量重载
+     */
+    private static final String RULE_SNAPSHOT_REGION = "chargeRuleSnapshot";
+
+    private static final String ALL_LOTS = "*";
+
+    /**
+     * 全部启用规则的内存快照，计费时只读它，不访问 Redis / 数据库
+     * 规则变更时整体替换（写时复制），读者总是看到某个完整版本
+     */
+    private volatile ChargeRuleSnapshot snapshot = ChargeRuleSnapshot.empty();
+
+    /**
+     * 按规则编译好的计费表，key 为 ruleId；规则的 updated_time 变化后重新编译
+     */
+    private final Map<Long, CompiledRule> compiledRules = new ConcurrentHashMap<>();
+
+    /**
+     * 启动时加载全部启用规则，并订阅其他节点的规则变更
+     */
+    @PostConstruct
+    public void init() {
+        reloadAll();
+        localCacheManager.addInvalidationListener(RULE_SNAPSHOT_REGION, key -> {
+            if (ALL_LOTS.equals(key)) {
+                reloadAll();
+            } else {
+                reloadLot(Long.valueOf(key));
+            }
+        });
+    }
+
+    /**
+     * 定时全量重载，兜底跨节点广播丢失或直接改库的情况（含车场每日封顶的修改）
+     */
+    @Scheduled(initialDelayString = "${charge.rule-registry.refresh-ms:300000}",
+            fixedDelayString = "${charge.rule-registry.refresh-ms:300000}")
+    public void scheduledReload() {
+        try {
+            reloadAll();
+        } catch (Exception e) {
+            log.error("定时重载计费规则快照失败，继续使用旧快照", e);
+        }
+    }
+
+    /**
+     * 全量重载（写者之间串行，避免后写的旧数据覆盖先写的新数据）
+     */
+    private synchronized void reloadAll() {
+        List<ChargeRule> rules = chargeRuleMapper.selectAllEnabled();
+        Map<Long, Integer> lotDailyCaps = new HashMap<>();
+        for (ParkingIot parkingIot : parkingIotMapper.selectAll()) {
+            if (parkingIot.getMaxDailyAmount() != null) {
+                lotDailyCaps.put(parkingIot.getId(), parkingIot.getMaxDailyAmount());
             }
-            log.debug("缓存命中: parkingIotId={}, ruleId={}", parkingIotId, cachedRule.getId());
-            return cachedRule;
         }
-        
-        // 2. 缓存未命中，查询数据库
-        log.debug("缓存未命中，查询数据库: parkingIotId={}", parkingIotId);
-        List<ChargeRule> rules = chargeRuleMapper.selectValidRulesByParkingIot(parkingIotId, LocalDate.now());
-        
-        ChargeRule rule = null;
-        if (rules != null && !rules.isEmpty()) {
-            rule = rules.get(0);
+        snapshot = ChargeRuleSnapshot.of(rules, lotDailyCaps);
+        log.info("加载计费规则快照: ruleCount={}, lotCount={}", rules.size(), snapshot.lotCount());
+    }
+
+    /**
+     * 只重载一个车场，其余车场沿用当前快照
+     */
+    private synchronized void reloadLot(Long parkingIotId) {
+        List<ChargeRule> enabled = new ArrayList<>();
+        for (ChargeRule rule : chargeRuleMapper.selectByParkingIot(parkingIotId)) {
+            if (Integer.valueOf(1).equals(rule.getStatus())) {
+                enabled.add(rule);
+            }
+        }
+        ParkingIot parkingIot = parkingIotMapper.selectById(parkingIotId);
+        snapshot = snapshot.withLot(parkingIotId, enabled,
+                parkingIot != null ? parkingIot.getMaxDailyAmount() : null);
+        log.info("重载车场计费规则: parkingIotId={}, ruleCount={}", parkingIotId, enabled.size());
+    }
+
+    /**
+     * 规则变更后：本节点立即重载该车场，并通知其他节点重载
+     */
+    private void refreshLot(Long parkingIotId) {
+        if (parkingIotId == null) {
+            return;
         }
-        
-        // 3. 写入缓存（包括null值，防止缓存穿透）
-        chargeCacheService.cacheChargeRule(parkingIotId, rule);
-        
-        return rule;
+        reloadLot(parkingIotId);
+        localCacheManager.invalidateRemote(RULE_SNAPSHOT_REGION, String.valueOf(parkingIotId));
+    }
+
+    @Override
+    public ChargeRule getApplicableRule(Long parkingIotId) {
+        return snapshot.resolveRule(parkingIotId, null, LocalDate.now());
     }
 
     @Override
@@ -57,44 +136,62 @@ public class ChargeRuleServiceImpl implements ChargeRuleService {
         if (rule == null) {
             return -1L;
         }
+        return compileTariff(rule).calculate(totalMinutes);
+    }
 
-        // 1. 首免分钟数
-        long chargeMinutes = totalMinutes - rule.getFreeMinutes();
-        if (chargeMinutes < 0) {
-            return 0L;
+    /**
+     * 按 ruleId + updated_time 复用已编译的计费表，calculateAmount 每次调用不再重新编译
+     * 未入库（无 id）或没有 updated_time 的规则无法判断是否被改过，每次都重新编译
+     */
+    @Override
+    public CompiledTariff compileTariff(ChargeRule rule) {
+        Long ruleId = rule.getId();
+        LocalDateTime updatedTime = rule.getUpdatedTime();
+        if (ruleId == null || updatedTime == null) {
+            return TariffCompiler.compile(rule);
         }
-
-        // 2. 目前只支持按小时统一单价，向上取整小时
-        long hours = (chargeMinutes + 59) / 60;
-        long amount = hours * rule.getUnitPrice();
-
-        // 3. 单次封顶
-        if (rule.getMaxAmountPerSession() != null
-                && amount > rule.getMaxAmountPerSession()) {
-            amount = rule.getMaxAmountPerSession();
+        CompiledRule compiled = compiledRules.get(ruleId);
+        if (compiled == null || !compiled.updatedTime.equals(updatedTime)) {
+            compiled = new CompiledRule(updatedTime, TariffCompiler.compile(rule));
+            compiledRules.put(ruleId, compiled);
         }
+        return compiled.tariff;
+    }
 
-        // 4. 每日封顶（这里先不实现跨天逻辑，留给后续优化）
-        // TODO: 按需扩展
+    @Override
+    public CompiledTariff getApplicableTariff(Long parkingIotId) {
+        return getApplicableTariff(parkingIotId, null, LocalDate.now());
+    }
 
-        return amount;
+    @Override
+    public CompiledTariff getApplicableTariff(Long parkingIotId, String carType, LocalDate date) {
+        return snapshot.resolveTariff(parkingIotId, carType, date);
     }
 
     @Override
     public void saveRule(ChargeRule rule) {
+        // 校验生效时间段格式，避免错误配置在计费时才暴露
+        TariffCompiler.parseTimeRange(rule.getEffectiveTimeRange());
+
+        Long previousParkingIotId = null;
         if (rule.getId() == null) {
             if (rule.getStatus() == null) {
                 rule.setStatus(1);
             }
             chargeRuleMapper.insert(rule);
         } else {
+            ChargeRule previous = chargeRuleMapper.selectById(rule.getId());
+            if (previous != null) {
+                previousParkingIotId = previous.getParkingIotId();
+            }
             chargeRuleMapper.updateById(rule);
+            compiledRules.remove(rule.getId());
         }
-        
-        // 删除缓存，下次查询时重新加载
-        if (rule.getParkingIotId() != null) {
-            chargeCacheService.evictChargeRule(rule.getParkingIotId());
-            log.info("规则修改，删除缓存: parkingIotId={}", rule.getParkingIotId());
+
+        // 重载规则快照（规则改到其他车场时两个车场都要重载）
+        refreshLot(rule.getParkingIotId());
+        if (previousParkingIotId != null && !previousParkingIotId.equals(rule.getParkingIotId())) {
+            refreshLot(previousParkingIotId);
         }
     }
 
@@ -111,12 +208,20 @@ public class ChargeRuleServiceImpl implements ChargeRuleService {
         }
         rule.setStatus(status);
         chargeRuleMapper.updateById(rule);
-        
-        // 删除缓存，下次查询时重新加载
-        if (rule.getParkingIotId() != null) {
-            chargeCacheService.evictChargeRule(rule.getParkingIotId());
-            log.info("规则状态修改，删除缓存: parkingIotId={}, status={}", 
-                rule.getParkingIotId(), status);
+        compiledRules.remove(ruleId);
+
+        // 重载规则快照
+        refreshLot(rule.getParkingIotId());
+        log.info("规则状态修改: parkingIotId={}, ruleId={}, status={}", rule.getParkingIotId(), ruleId, status);
+    }
+
+    private static final class CompiledRule {
+        private final LocalDateTime updatedTime;
+        private final CompiledTariff tariff;
+
+        private CompiledRule(LocalDateTime updatedTime, CompiledTariff tariff) {
+            this.updatedTime = updatedTime;
+            this.tariff = tariff;
         }
     }
 }
@@ -3,13 +3,12 @@ package com.charge.service.impl;
 import com.charge.entity.DTO.CalculateFeeRequest;
 import com.charge.entity.DTO.ConfirmPaymentRequest;
 import com.charge.entity.VO.CalculateFeeResponse;
+import com.charge.entity.VO.FeePreviewSnapshot;
 import com.charge.entity.ChargeOrder;
-import com.charge.entity.ChargeRule;
 import com.charge.entity.Member;
 import com.charge.entity.DiscountRule;
 import com.charge.entity.OrderDiscount;
 import com.parking.entity.ParkingRecord;
-import com.parking.entity.ParkingIot;
 
 import com.charge.service.ChargeRuleService;
 import com.charge.service.ChargeService;
@@ -18,22 +17,39 @@ import com.charge.service.ChargeCacheService;
 import com.charge.mapper.ChargeOrderMapper;
 import com.charge.mapper.MemberMapper;
 import com.charge.mapper.OrderDiscountMapper;
+import com.charge.discount.DiscountCalculator;
+import com.charge.discount.DiscountOutcome;
+import com.charge.metrics.SettlementMetrics;
+import com.charge.metrics.SettlementMetrics.Flow;
+import com.charge.metrics.SettlementMetrics.Stage;
+import com.charge.outbox.OutboxEventType;
+import com.charge.outbox.OutboxPublisher;
+import com.charge.tariff.CompiledTariff;
 import com.parking.mapper.ParkingRecordMapper;
 import com.parking.mapper.ParkingIotMapper;
+import com.parking.occupancy.OccupancyCounter;
 
 import com.common.exception.BusinessException;
+import com.common.service.DistributedLockService;
+import com.common.utils.OrderNoGenerator;
+import com.common.utils.SingleFlight;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 /**
  * 计费服务实现类
@@ -42,6 +58,18 @@ import java.util.List;
 @Service
 public class ChargeServiceImpl implements ChargeService {
 
+    /**
+     * 批量预览单次最多记录数
+     */
+    private static final int MAX_BATCH_PREVIEW_SIZE = 200;
+
+    /**
+     * 跨节点出场结算锁：key 前缀、过期时间（秒）、等待时间（秒）
+     */
+    private static final String SETTLE_LOCK_PREFIX = "charge:settle:";
+    private static final long SETTLE_LOCK_EXPIRE = 30L;
+    private static final long SETTLE_LOCK_WAIT = 5L;
+
     private final ParkingRecordMapper parkingRecordMapper;
     private final ParkingIotMapper parkingIotMapper;
     private final ChargeOrderMapper chargeOrderMapper;
@@ -50,6 +78,30 @@ public class ChargeServiceImpl implements ChargeService {
     private final MemberMapper memberMapper;
     private final OrderDiscountMapper orderDiscountMapper;
     private final ChargeCacheService chargeCacheService;
+    private final OrderNoGenerator orderNoGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final DistributedLockService distributedLockService;
+    private final OutboxPublisher outboxPublisher;
+    private final SettlementMetrics settlementMetrics;
+    private final OccupancyCounter occupancyCounter;
+
+    /**
+     * 同一出场（入场记录 + 出场时间 + 用户 + 优惠规则编码）的并发结算合并为一次
+     */
+    private final SingleFlight<SettleKey, CalculateFeeResponse> settleFlight = new SingleFlight<>();
+
+    private final LongAdder distributedReplays = new LongAdder();
+
+    /**
+     * 是否启用跨节点结算锁（多节点部署且道闸 / 小程序可能同时打到不同节点时开启）
+     */
+    @Value("${charge.settle.distributed-lock:false}")
+    private boolean distributedSettleLock;
+
+    /**
+     * 优惠规则加载（缓存 -> 数据库），只在会员优惠后仍需付费时由 DiscountCalculator 调用
+     */
+    private final Function<String, DiscountRule> discountRuleLoader = this::loadDiscountRule;
 
     public ChargeServiceImpl(ParkingRecordMapper parkingRecordMapper,
                              ParkingIotMapper parkingIotMapper,
@@ -58,7 +110,13 @@ public class ChargeServiceImpl implements ChargeService {
                              DiscountRuleService discountRuleService,
                              MemberMapper memberMapper,
                              OrderDiscountMapper orderDiscountMapper,
-                             ChargeCacheService chargeCacheService) {
+                             ChargeCacheService chargeCacheService,
+                             OrderNoGenerator orderNoGenerator,
+                             TransactionTemplate transactionTemplate,
+                             DistributedLockService distributedLockService,
+                             OutboxPublisher outboxPublisher,
+                             SettlementMetrics settlementMetrics,
+                             OccupancyCounter occupancyCounter) {
         this.parkingRecordMapper = parkingRecordMapper;
         this.parkingIotMapper = parkingIotMapper;
         this.chargeOrderMapper = chargeOrderMapper;
@@ -67,204 +125,151 @@ public class ChargeServiceImpl implements ChargeService {
         this.memberMapper = memberMapper;
         this.orderDiscountMapper = orderDiscountMapper;
         this.chargeCacheService = chargeCacheService;
+        this.orderNoGenerator = orderNoGenerator;
+        this.transactionTemplate = transactionTemplate;
+        this.distributedLockService = distributedLockService;
+        this.outboxPublisher = outboxPublisher;
+        this.settlementMetrics = settlementMetrics;
+        this.occupancyCounter = occupancyCounter;
     }
 
     /**
-     * 生成业务订单号
+     * 计算优惠（版本2：会员在前，规则在后，可叠加）
+     * 计算过程见 DiscountCalculator，本方法只负责加载会员和优惠规则
+     *
+     * @param originalAmount  原价金额（分）
+     * @param userId          用户ID（会员用）
+     * @param discountRuleCode 优惠规则编码（discount_rule.rule_code）
      */
-    private String generateOrderNo() {
-        String timePart = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        int random = ThreadLocalRandom.current().nextInt(0, 1000000);
-        String randomPart = String.format("%06d", random);
-        return "CO" + timePart + randomPart;
+    private DiscountOutcome calculateDiscounts(long originalAmount, Long userId, String discountRuleCode) {
+        Member member = null;
+        if (originalAmount > 0 && userId != null) {
+            member = loadMember(userId);
+        }
+        return DiscountCalculator.calculate(originalAmount, member, discountRuleCode, discountRuleLoader);
+    }
+
+    private Member loadMember(Long userId) {
+        // 先从缓存获取会员信息
+        Member member = chargeCacheService.getMember(userId);
+        if (member == null) {
+            // 缓存未命中，查询数据库
+            member = memberMapper.selectByUserId(userId);
+            // 写入缓存
+            chargeCacheService.cacheMember(userId, member);
+        } else if (member.getId() == null) {
+            // 空对象标记表示非会员
+            member = null;
+        }
+        return member;
+    }
+
+    private DiscountRule loadDiscountRule(String discountRuleCode) {
+        // 先从缓存获取优惠规则
+        DiscountRule rule = chargeCacheService.getDiscountRule(discountRuleCode);
+        if (rule == null) {
+            // 缓存未命中，查询数据库
+            rule = discountRuleService.getEffectiveRuleByCode(discountRuleCode);
+            // 写入缓存
+            chargeCacheService.cacheDiscountRule(discountRuleCode, rule);
+        } else if (rule.getId() == null) {
+            // 空对象标记表示无此规则
+            rule = null;
+        }
+        return rule;
     }
 
     /**
-     * 内部优惠计算结果
+     * 预览计费：计算金额，但不生成订单
      */
-    private static class DiscountCalcResult {
-        long originalAmount;
-        long totalDiscountAmount;
-        long payableAmount;
-        List<OrderDiscount> discountRecords;
-
-        DiscountCalcResult(long originalAmount) {
-            this.originalAmount = originalAmount;
-            this.totalDiscountAmount = 0L;
-            this.payableAmount = originalAmount;
-            this.discountRecords = new ArrayList<>();
+    @Override
+    public CalculateFeeResponse previewParkingFee(CalculateFeeRequest request) {
+        SettlementMetrics.Clock clock = settlementMetrics.start(Flow.PREVIEW);
+        // 尝试从缓存获取预览结果（出场时间在同一价格阶梯内即命中）
+        CalculateFeeResponse cached = chargeCacheService.getFeePreview(request);
+        clock.lap(Stage.IDEMPOTENCY_CHECK);
+        if (cached != null) {
+            return cached;
+        }
+        
+        ParkingRecord inRecord = parkingRecordMapper.selectById(request.getInRecordId());
+        if (inRecord != null) {
+            clock.lot(inRecord.getParkingIotId());
         }
+        clock.lap(Stage.RECORD_LOAD);
+        FeePreviewSnapshot snapshot = computePreview(request, inRecord, clock);
+        
+        // 缓存预览结果（到下一次价格变化为止）
+        chargeCacheService.cacheFeePreview(request, snapshot);
+        clock.lap(Stage.CACHE_WRITE);
+        
+        return snapshot.getResponse();
     }
 
     /**
-     * 计算优惠（版本2：会员在前，规则在后，可叠加）
-     *
-     * @param originalAmount  原价金额（分）
-     * @param userId          用户ID（会员用）
-     * @param discountRuleCode 优惠规则编码（discount_rule.rule_code）
+     * 批量预览计费：一次管道读预览缓存，未命中的记录一次 IN 查询，
+     * 每个车场只解析一次计费规则，结果用一次管道写回缓存
+     * 返回顺序与入参一致，单条结果与 previewParkingFee 完全相同；任一记录不合法时整体失败
      */
-    private DiscountCalcResult calculateDiscounts(long originalAmount, Long userId, String discountRuleCode) {
-        DiscountCalcResult result = new DiscountCalcResult(originalAmount);
-
-        if (originalAmount <= 0) {
-            return result;
+    @Override
+    public List<CalculateFeeResponse> previewParkingFees(List<CalculateFeeRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (requests.size() > MAX_BATCH_PREVIEW_SIZE) {
+            throw new BusinessException("批量预览数量不能超过" + MAX_BATCH_PREVIEW_SIZE);
         }
 
-        long base = originalAmount;
-
-        // ============ Step1: 会员优惠 ============
-        if (userId != null) {
-            // 先从缓存获取会员信息
-            Member member = chargeCacheService.getMember(userId);
-            if (member == null) {
-                // 缓存未命中，查询数据库
-                member = memberMapper.selectByUserId(userId);
-                // 写入缓存
-                chargeCacheService.cacheMember(userId, member);
-            } else if (member.getId() == null) {
-                // 空对象标记表示非会员
-                member = null;
-            }
-            
-            if (member != null && member.getStatus() != null && member.getStatus() == 1) {
-                Integer freeParking = member.getFreeParking();
-                if (freeParking != null && freeParking == 1) {
-                    // 免费停车
-                    long memberDiscount = base;
-                    if (memberDiscount > 0) {
-                        OrderDiscount od = new OrderDiscount();
-                        od.setSourceType("MEMBER");
-                        od.setRuleCode(null);
-                        od.setRuleName("会员免费停车");
-                        od.setDiscountType("FREE");
-                        od.setDiscountValue(100);
-                        od.setDiscountAmount(memberDiscount);
-                        result.discountRecords.add(od);
-
-                        result.totalDiscountAmount += memberDiscount;
-                        base -= memberDiscount;
-                    }
-                } else if (member.getDiscountRate() != null && member.getDiscountRate().compareTo(BigDecimal.ONE) < 0) {
-                    // 折扣
-                    BigDecimal rate = member.getDiscountRate();
-                    BigDecimal baseDec = BigDecimal.valueOf(base);
-                    long memberPay = baseDec.multiply(rate)
-                            .setScale(0, RoundingMode.DOWN)
-                            .longValue();
-                    if (memberPay < 0) {
-                        memberPay = 0;
-                    }
-                    long memberDiscount = base - memberPay;
-                    if (memberDiscount > 0) {
-                        OrderDiscount od = new OrderDiscount();
-                        od.setSourceType("MEMBER");
-                        od.setRuleCode(null);
-                        od.setRuleName("会员折扣");
-                        od.setDiscountType("PERCENT");
-                        od.setDiscountValue(rate.multiply(BigDecimal.valueOf(100))
-                                .setScale(0, RoundingMode.DOWN)
-                                .intValue());
-                        od.setDiscountAmount(memberDiscount);
-                        result.discountRecords.add(od);
-
-                        result.totalDiscountAmount += memberDiscount;
-                        base = memberPay;
-                    }
-                }
+        // 1. 批量读取预览缓存
+        List<CalculateFeeResponse> responses = chargeCacheService.getFeePreviews(requests);
+
+        // 2. 未命中的入场记录一次查询
+        Set<Long> missIds = new LinkedHashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (responses.get(i) == null && requests.get(i).getInRecordId() != null) {
+                missIds.add(requests.get(i).getInRecordId());
             }
         }
-
-        // 基数为0，不再继续其它优惠
-        if (base <= 0) {
-            result.payableAmount = 0;
-            return result;
+        Map<Long, ParkingRecord> records = new HashMap<>(missIds.size() * 2);
+        if (!missIds.isEmpty()) {
+            for (ParkingRecord record : parkingRecordMapper.selectByIds(new ArrayList<>(missIds))) {
+                records.put(record.getId(), record);
+            }
         }
 
-        // ============ Step2: 规则 / 券 优惠（discount_rule） ============
-        if (discountRuleCode != null && !discountRuleCode.isEmpty()) {
-            // 先从缓存获取优惠规则
-            DiscountRule rule = chargeCacheService.getDiscountRule(discountRuleCode);
-            if (rule == null) {
-                // 缓存未命中，查询数据库
-                rule = discountRuleService.getEffectiveRuleByCode(discountRuleCode);
-                // 写入缓存
-                chargeCacheService.cacheDiscountRule(discountRuleCode, rule);
-            } else if (rule.getId() == null) {
-                // 空对象标记表示无此规则
-                rule = null;
+        // 3. 逐条计算
+        List<CalculateFeeRequest> computedRequests = new ArrayList<>();
+        List<FeePreviewSnapshot> computed = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (responses.get(i) != null) {
+                continue;
             }
-            
-            if (rule != null) {
-                String type = rule.getDiscountType();
-                Integer value = rule.getDiscountValue();
-                Integer max = rule.getMaxDiscount();
-
-                long ruleDiscount = 0L;
-
-                if ("PERCENT".equalsIgnoreCase(type)) {
-                    if (value != null && value > 0 && value < 100) {
-                        BigDecimal percent = BigDecimal.valueOf(value)
-                                .divide(BigDecimal.valueOf(100), 4, RoundingMode.HALF_UP);
-                        long pay = BigDecimal.valueOf(base)
-                                .multiply(percent)
-                                .setScale(0, RoundingMode.DOWN)
-                                .longValue();
-                        if (pay < 0) {
-                            pay = 0;
-                        }
-                        ruleDiscount = base - pay;
-                    }
-                } else if ("FIXED".equalsIgnoreCase(type)) {
-                    if (value != null && value > 0) {
-                        ruleDiscount = value.longValue();
-                    }
-                }
-
-                if (ruleDiscount > base) {
-                    ruleDiscount = base;
-                }
-                if (max != null && max > 0 && ruleDiscount > max.longValue()) {
-                    ruleDiscount = max.longValue();
-                }
-
-                if (ruleDiscount > 0) {
-                    OrderDiscount od = new OrderDiscount();
-                    od.setSourceType("RULE");
-                    od.setRuleCode(rule.getRuleCode());
-                    od.setRuleName(rule.getRuleName());
-                    od.setDiscountType(type);
-                    od.setDiscountValue(value);
-                    od.setDiscountAmount(ruleDiscount);
-                    result.discountRecords.add(od);
-
-                    result.totalDiscountAmount += ruleDiscount;
-                    base -= ruleDiscount;
-                }
+            CalculateFeeRequest request = requests.get(i);
+            ParkingRecord record = records.get(request.getInRecordId());
+            SettlementMetrics.Clock clock = settlementMetrics.start(Flow.PREVIEW);
+            if (record != null) {
+                clock.lot(record.getParkingIotId());
             }
+            FeePreviewSnapshot snapshot = computePreview(request, record, clock);
+            responses.set(i, snapshot.getResponse());
+            computedRequests.add(request);
+            computed.add(snapshot);
         }
 
-        if (base < 0) {
-            base = 0;
-        }
-        result.payableAmount = base;
-        return result;
+        // 4. 批量写回预览缓存（到下一次价格变化为止）
+        chargeCacheService.cacheFeePreviews(computedRequests, computed);
+
+        return responses;
     }
 
     /**
-     * 预览计费：计算金额，但不生成订单
+     * 预览计费核心逻辑（单条与批量共用）
+     * 返回预览结果及其所在的价格阶梯，阶梯内任意出场时间的金额都相同
+     *
+     * @param clock 阶段计时，记录规则解析和优惠计算
      */
-    @Override
-    public CalculateFeeResponse previewParkingFee(CalculateFeeRequest request) {
-        // 尝试从缓存获取预览结果
-        CalculateFeeResponse cached = chargeCacheService.getFeePreview(
-            request.getInRecordId(), 
-            request.getExitTime()
-        );
-        if (cached != null) {
-            return cached;
-        }
-        
-        ParkingRecord inRecord = parkingRecordMapper.selectById(request.getInRecordId());
+    private FeePreviewSnapshot computePreview(CalculateFeeRequest request, ParkingRecord inRecord,
+                                                SettlementMetrics.Clock clock) {
         if (inRecord == null) {
             throw new BusinessException("入场记录不存在，id=" + request.getInRecordId());
         }
@@ -285,62 +290,114 @@ public class ChargeServiceImpl implements ChargeService {
             minutes = 1;
         }
 
-        String feeRuleName;
-        long originalAmountInCents;
-
-        ChargeRule rule = chargeRuleService.getApplicableRule(parkingIotId);
-        if (rule != null) {
-            feeRuleName = rule.getRuleName();
-            originalAmountInCents = chargeRuleService.calculateAmount(rule, minutes);
-        } else {
-            feeRuleName = "前30分钟免费,之后按小时计费";
-
-            ParkingIot parkingIot = parkingIotMapper.selectById(inRecord.getParkingIotId());
-            Integer unitPrice = parkingIot.getUnitPrice();
-            if (unitPrice == null || unitPrice <= 0) {
-                throw new BusinessException("车场未配置有效单价");
-            }
-            // 缓存车场信息
-            chargeCacheService.cacheParkingIot(parkingIot);
-            
-            if (minutes <= 30) {
-                originalAmountInCents = 0;
-            } else {
-                long chargeableMinutes = minutes - 30;
-                long hours = (chargeableMinutes + 59) / 60;
-                originalAmountInCents = hours * unitPrice;
-            }
+        CompiledTariff tariff = chargeRuleService.getApplicableTariff(
+                parkingIotId, inRecord.getVehicleType(), outTime.toLocalDate());
+        if (tariff == null) {
+            tariff = chargeCacheService.getDefaultTariff(parkingIotId, parkingIotMapper::selectById);
         }
+        long originalAmountInCents = tariff.calculate(inTime, minutes);
+        clock.lap(Stage.RULE_RESOLVE);
 
         // 统一计算优惠（会员 + 规则），但不落库
-        DiscountCalcResult discountResult = calculateDiscounts(
+        DiscountOutcome discountResult = calculateDiscounts(
                 originalAmountInCents,
                 request.getUserId(),
                 request.getDiscountRuleCode()
         );
+        clock.lap(Stage.DISCOUNT);
 
         CalculateFeeResponse resp = new CalculateFeeResponse();
         resp.setInRecordId(inRecord.getId());
         resp.setParkingMinutes(minutes);
-        resp.setAmount(discountResult.payableAmount);
-        resp.setOriginalAmount(discountResult.originalAmount);
-        resp.setDiscountAmount(discountResult.totalDiscountAmount);
-        resp.setPayableAmount(discountResult.payableAmount);
-        resp.setFeeRuleName(feeRuleName);
+        resp.setAmount(discountResult.getPayableAmount());
+        resp.setOriginalAmount(discountResult.getOriginalAmount());
+        resp.setDiscountAmount(discountResult.getTotalDiscountAmount());
+        resp.setPayableAmount(discountResult.getPayableAmount());
+        resp.setFeeRuleName(tariff.getRuleName());
         resp.setRealOutTime(outTime);
-        
-        // 缓存预览结果（5分钟）
-        chargeCacheService.cacheFeePreview(request.getInRecordId(), outTime, resp);
-        
-        return resp;
+        return new FeePreviewSnapshot(inTime,
+                inTime.plusMinutes(tariff.priceStepStartMinutes(minutes)),
+                inTime.plusMinutes(tariff.nextPriceChangeMinutes(minutes)),
+                resp);
     }
 
     /**
-     * 整个出场计费流程放在一个事务里
+     * 出场计费
+     * 道闸重试同一出场（入场记录 + 出场时间）时先查回放缓存，命中直接返回，不开启事务、不访问数据库；
+     * 未命中时合并完全相同的并发请求（入场记录、出场时间、用户、优惠规则编码都相同）：同时只有一个请求执行结算事务，
+     * 其余请求共享其结果；出场时间、用户或优惠不同的请求各自结算，由 uk_in_record_out_time 保证同一出场只有一个订单；
+     * 开启 charge.settle.distributed-lock 后再加分布式锁，跨节点的并发请求也只结算一次
      */
     @Override
-    @Transactional
     public CalculateFeeResponse calculateParkingFee(CalculateFeeRequest request) {
+        Long inRecordId = request.getInRecordId();
+        if (inRecordId == null || request.getExitTime() == null) {
+            return settleAndCache(request);
+        }
+        SettlementMetrics.Clock clock = settlementMetrics.start(Flow.SETTLE);
+        CalculateFeeResponse settled = chargeCacheService.getSettledFee(inRecordId, request.getExitTime());
+        clock.lap(Stage.IDEMPOTENCY_CHECK);
+        if (settled != null) {
+            return settled;
+        }
+        return settleFlight.execute(SettleKey.of(request), () -> distributedSettleLock
+                ? settleWithLock(request)
+                : settleAndCache(request));
+    }
+
+    /**
+     * 出场结算合并统计：执行次数、合并次数、跨节点锁后命中回放缓存次数
+     */
+    @Override
+    public Map<String, Long> getSettlementStats() {
+        Map<String, Long> stats = settleFlight.stats();
+        stats.put("distributedReplays", distributedReplays.sum());
+        return stats;
+    }
+
+    /**
+     * 加分布式锁后再结算；拿到锁时其它节点可能已经结算完成，先查一次回放缓存
+     * 等锁超时仍继续结算，由 uk_in_record_out_time 兜底
+     */
+    private CalculateFeeResponse settleWithLock(CalculateFeeRequest request) {
+        String lockKey = SETTLE_LOCK_PREFIX + request.getInRecordId();
+        String lockValue = distributedLockService.tryLock(lockKey, SETTLE_LOCK_EXPIRE, SETTLE_LOCK_WAIT);
+        try {
+            CalculateFeeResponse settled = chargeCacheService.getSettledFee(
+                    request.getInRecordId(), request.getExitTime());
+            if (settled != null) {
+                distributedReplays.increment();
+                return settled;
+            }
+            return settleAndCache(request);
+        } finally {
+            if (lockValue != null) {
+                distributedLockService.unlock(lockKey, lockValue);
+            }
+        }
+    }
+
+    /**
+     * 在事务中结算，事务提交后写入回放缓存
+     * 各阶段计时：开启事务计入 record_load，事务提交单独计为 commit
+     */
+    private CalculateFeeResponse settleAndCache(CalculateFeeRequest request) {
+        SettlementMetrics.Clock clock = settlementMetrics.start(Flow.SETTLE);
+        CalculateFeeResponse resp = transactionTemplate.execute(status -> settleParkingFee(request, clock));
+        clock.lap(Stage.COMMIT);
+        if (resp != null) {
+            chargeCacheService.cacheSettledFee(resp);
+            clock.lap(Stage.CACHE_WRITE);
+        }
+        return resp;
+    }
+
+    /**
+     * 整个出场结算流程放在一个事务里
+     * 幂等依赖 uk_in_record_out_time：不做预查询，先插入订单，冲突时返回已有订单；
+     * 正常出场在事务内只有 查入场记录、插订单、插优惠明细、更新入场记录、写发件箱 五次数据库往返
+     */
+    private CalculateFeeResponse settleParkingFee(CalculateFeeRequest request, SettlementMetrics.Clock clock) {
         // 1. 根据入场记录ID查询入场记录
         ParkingRecord inRecord = parkingRecordMapper.selectById(request.getInRecordId());
         if (inRecord == null) {
@@ -364,108 +421,106 @@ public class ChargeServiceImpl implements ChargeService {
         if (parkingIotId == null) {
             throw new BusinessException("停车记录未关联车场,id=" + inRecord.getId());
         }
-
-        // 4. 提前计算计费规则名称,用于幂等性检查和正常流程
-        String feeRuleName;
-        ChargeRule rule = chargeRuleService.getApplicableRule(parkingIotId);
-        if (rule != null) {
-            feeRuleName = rule.getRuleName();
-        } else {
-            feeRuleName = "前30分钟免费,之后按小时计费";
+        clock.lot(parkingIotId);
+        clock.lap(Stage.RECORD_LOAD);
+
+        // 4. 计费规则（按车型和出场日期取生效规则；车场无规则时取缓存的车场默认计费）
+        CompiledTariff tariff = chargeRuleService.getApplicableTariff(
+                parkingIotId, inRecord.getVehicleType(), outTime.toLocalDate());
+        if (tariff == null) {
+            tariff = chargeCacheService.getDefaultTariff(parkingIotId, parkingIotMapper::selectById);
         }
-
-        // ========= 幂等性检查:同一入场记录 + 同一出场时间,直接返回已有订单 ========
-        ChargeOrder exisOrder = chargeOrderMapper.selectByInRecordIdAndOutTime(inRecord.getId(), outTime);
-        if (exisOrder != null) {
-            // 已有订单，需从 order_discount 还原原价/优惠
-            List<OrderDiscount> discounts = orderDiscountMapper.selectByOrderId(exisOrder.getId());
-            long totalDiscount = 0L;
-            if (discounts != null) {
-                for (OrderDiscount od : discounts) {
-                    if (od.getDiscountAmount() != null) {
-                        totalDiscount += od.getDiscountAmount();
-                    }
-                }
-            }
-            long originalAmount = exisOrder.getAmount() + totalDiscount;
-
-            CalculateFeeResponse resp = new CalculateFeeResponse();
-            resp.setInRecordId(inRecord.getId());
-            resp.setOrderId(exisOrder.getId());
-            resp.setParkingMinutes(minutes);
-            resp.setAmount(exisOrder.getAmount());
-            resp.setOriginalAmount(originalAmount);
-            resp.setDiscountAmount(totalDiscount);
-            resp.setPayableAmount(exisOrder.getAmount());
-            resp.setFeeRuleName(feeRuleName);
-            resp.setRealOutTime(outTime);
-            return resp;
-        }
-        // ========= 幂等性检查结束 =========
-
-        //=========第一次计费逻辑=========
-
-        long originalAmountInCents;
+        String feeRuleName = tariff.getRuleName();
 
         // 5. 根据计费规则计算原价金额
-        if (rule != null) {
-            originalAmountInCents = chargeRuleService.calculateAmount(rule, minutes);
-        } else {
-            ParkingIot parkingIot = parkingIotMapper.selectById(inRecord.getParkingIotId());
-            Integer unitPrice = parkingIot.getUnitPrice();
-            if (unitPrice == null || unitPrice <= 0) {
-                throw new BusinessException("车场未配置有效单价");
-            }
-            if (minutes <= 30) {
-                originalAmountInCents = 0;
-            } else {
-                long chargeableMinutes = minutes - 30;
-                long hours = (chargeableMinutes + 59) / 60;
-                originalAmountInCents = hours * unitPrice;
-            }
-        }
+        long originalAmountInCents = tariff.calculate(inTime, minutes);
+        clock.lap(Stage.RULE_RESOLVE);
 
-        // 6. 计算优惠（会员 + 规则），并准备 order_discount 记录
-        DiscountCalcResult discountResult = calculateDiscounts(
+        // 6. 计算优惠（会员 + 规则）
+        DiscountOutcome discountResult = calculateDiscounts(
                 originalAmountInCents,
                 request.getUserId(),
                 request.getDiscountRuleCode()
         );
+        clock.lap(Stage.DISCOUNT);
 
         // 7. 生成收费订单并入库（amount = 应付金额）
         ChargeOrder order = new ChargeOrder();
-        order.setOrderNo(generateOrderNo());
+        order.setOrderNo(orderNoGenerator.nextChargeOrderNo());
         order.setInRecordId(inRecord.getId());
-        order.setAmount(discountResult.payableAmount);
+        order.setAmount(discountResult.getPayableAmount());
         order.setPayStatus("UNPAID");
         order.setPayChannel(null);
         order.setPayTime(null);
         order.setOutTime(outTime);
         order.setFeeRuleName(feeRuleName);
         order.setCreateTime(LocalDateTime.now());
-        chargeOrderMapper.insert(order);
+        try {
+            // 先插入：同一入场记录 + 同一出场时间由 uk_in_record_out_time 保证只有一个订单，
+            // 重复请求（或并发的同一出场）在此命中唯一键冲突，改为返回已有订单
+            chargeOrderMapper.insert(order);
+        } catch (DuplicateKeyException e) {
+            return replaySettledOrder(inRecord.getId(), outTime, minutes, feeRuleName, e);
+        }
 
-        // 8. 落 order_discount 明细
-        if (discountResult.discountRecords != null && !discountResult.discountRecords.isEmpty()) {
-            for (OrderDiscount od : discountResult.discountRecords) {
+        // 8. 落 order_discount 明细（一次多行插入）
+        List<OrderDiscount> discounts = discountResult.toOrderDiscounts();
+        if (!discounts.isEmpty()) {
+            for (OrderDiscount od : discounts) {
                 od.setOrderId(order.getId());
-                orderDiscountMapper.insert(od);
             }
+            orderDiscountMapper.insertBatch(discounts);
         }
+        clock.lap(Stage.INSERT);
 
         // 9. 更新入场记录的出场时间
         inRecord.setOutTime(outTime);
         parkingRecordMapper.updateById(inRecord);
 
-        // 10. 组装响应对象
+        // 10. 缓存清理等后续处理写入发件箱，随本事务提交，由 OutboxDispatcher 异步执行
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("orderId", order.getId());
+        payload.put("amount", order.getAmount());
+        payload.put("outTime", outTime.toString());
+        outboxPublisher.publish(OutboxEventType.EXIT_SETTLED, parkingIotId, inRecord.getId(), payload);
+        clock.lap(Stage.RECORD_UPDATE);
+
+        // 11. 组装响应对象
         CalculateFeeResponse resp = new CalculateFeeResponse();
         resp.setInRecordId(inRecord.getId());
         resp.setOrderId(order.getId());
         resp.setParkingMinutes(minutes);
-        resp.setAmount(discountResult.payableAmount);
-        resp.setOriginalAmount(discountResult.originalAmount);
-        resp.setDiscountAmount(discountResult.totalDiscountAmount);
-        resp.setPayableAmount(discountResult.payableAmount);
+        resp.setAmount(discountResult.getPayableAmount());
+        resp.setOriginalAmount(discountResult.getOriginalAmount());
+        resp.setDiscountAmount(discountResult.getTotalDiscountAmount());
+        resp.setPayableAmount(discountResult.getPayableAmount());
+        resp.setFeeRuleName(feeRuleName);
+        resp.setRealOutTime(outTime);
+        return resp;
+    }
+
+    /**
+     * 幂等返回：同一入场记录 + 同一出场时间已有订单，从订单和 order_discount 还原原价/优惠
+     */
+    private CalculateFeeResponse replaySettledOrder(Long inRecordId, LocalDateTime outTime, long minutes,
+                                                    String feeRuleName, DuplicateKeyException e) {
+        ChargeOrder exisOrder = chargeOrderMapper.selectByInRecordIdAndOutTimeForShare(inRecordId, outTime);
+        if (exisOrder == null) {
+            // 不是 uk_in_record_out_time 冲突（如订单号冲突），按原异常抛出
+            throw e;
+        }
+        Long discountSum = orderDiscountMapper.sumDiscountAmountByOrderIdForShare(exisOrder.getId());
+        long totalDiscount = discountSum != null ? discountSum : 0L;
+        long originalAmount = exisOrder.getAmount() + totalDiscount;
+
+        CalculateFeeResponse resp = new CalculateFeeResponse();
+        resp.setInRecordId(inRecordId);
+        resp.setOrderId(exisOrder.getId());
+        resp.setParkingMinutes(minutes);
+        resp.setAmount(exisOrder.getAmount());
+        resp.setOriginalAmount(originalAmount);
+        resp.setDiscountAmount(totalDiscount);
+        resp.setPayableAmount(exisOrder.getAmount());
         resp.setFeeRuleName(feeRuleName);
         resp.setRealOutTime(outTime);
         return resp;
@@ -499,8 +554,12 @@ public class ChargeServiceImpl implements ChargeService {
             throw new BusinessException("入场记录不存在，id=" + order.getInRecordId());
         }
 
+        boolean wasIn = "IN".equals(inRecord.getStatus());
         inRecord.setPaidAmount(order.getAmount());
         inRecord.setStatus("FINISHED");
         parkingRecordMapper.updateById(inRecord);
+        if (wasIn) {
+            occupancyCounter.adjustAfterCommit(inRecord.getParkingIotId(), -1);
+        }
     }
 }
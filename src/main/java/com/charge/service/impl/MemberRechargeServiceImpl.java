@@ -7,14 +7,13 @@ import com.charge.service.MemberRechargeService;
 import com.charge.service.MemberService;
 import com.charge.service.WalletService;
 import com.common.exception.BusinessException;
+import com.common.utils.OrderNoGenerator;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Random;
 
 @Service
 public class MemberRechargeServiceImpl implements MemberRechargeService {
@@ -22,13 +21,16 @@ public class MemberRechargeServiceImpl implements MemberRechargeService {
     private final MemberRechargeMapper rechargeMapper;
     private final WalletService walletService;
     private final MemberService memberService;
+    private final OrderNoGenerator orderNoGenerator;
 
     public MemberRechargeServiceImpl(MemberRechargeMapper rechargeMapper,
                                      WalletService walletService,
-                                     MemberService memberService) {
+                                     MemberService memberService,
+                                     OrderNoGenerator orderNoGenerator) {
         this.rechargeMapper = rechargeMapper;
         this.walletService = walletService;
         this.memberService = memberService;
+        this.orderNoGenerator = orderNoGenerator;
     }
 
     @Override
@@ -42,7 +44,7 @@ public class MemberRechargeServiceImpl implements MemberRechargeService {
         }
 
         // 生成充值单号
-        String rechargeNo = generateRechargeNo();
+        String rechargeNo = orderNoGenerator.nextRechargeNo();
 
         // 计算赠送金额（充值优惠规则）
         long bonusAmount = calculateBonus(amount);
@@ -113,15 +115,6 @@ public class MemberRechargeServiceImpl implements MemberRechargeService {
 
     // ======================== 私有方法 ========================
 
-    /**
-     * 生成充值单号：RC + yyyyMMddHHmmss + 6位随机数
-     */
-    private String generateRechargeNo() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        int randomNum = new Random().nextInt(900000) + 100000;
-        return "RC" + timestamp + randomNum;
-    }
-
     /**
      * 计算充值赠送金额
      * 规则示例：
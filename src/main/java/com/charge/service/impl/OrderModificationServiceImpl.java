@@ -4,14 +4,20 @@ import com.charge.entity.ChargeOrder;
 import com.charge.entity.OrderModificationRecord;
 import com.charge.mapper.ChargeOrderMapper;
 import com.charge.mapper.OrderModificationRecordMapper;
+import com.charge.outbox.OutboxEventType;
+import com.charge.outbox.OutboxPublisher;
 import com.charge.service.OrderModificationService;
 import com.charge.service.PaymentService;
 import com.common.exception.BusinessException;
+import com.parking.entity.ParkingRecord;
+import com.parking.mapper.ParkingRecordMapper;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class OrderModificationServiceImpl implements OrderModificationService {
@@ -19,13 +25,19 @@ public class OrderModificationServiceImpl implements OrderModificationService {
     private final OrderModificationRecordMapper modificationRecordMapper;
     private final ChargeOrderMapper chargeOrderMapper;
     private final PaymentService paymentService;
+    private final ParkingRecordMapper parkingRecordMapper;
+    private final OutboxPublisher outboxPublisher;
 
     public OrderModificationServiceImpl(OrderModificationRecordMapper modificationRecordMapper,
                                         ChargeOrderMapper chargeOrderMapper,
-                                        PaymentService paymentService) {
+                                        PaymentService paymentService,
+                                        ParkingRecordMapper parkingRecordMapper,
+                                        OutboxPublisher outboxPublisher) {
         this.modificationRecordMapper = modificationRecordMapper;
         this.chargeOrderMapper = chargeOrderMapper;
         this.paymentService = paymentService;
+        this.parkingRecordMapper = parkingRecordMapper;
+        this.outboxPublisher = outboxPublisher;
     }
 
     @Override
@@ -127,6 +139,17 @@ public class OrderModificationServiceImpl implements OrderModificationService {
             // 如果需要调用 PaymentService.markRefund，需要先找到 transactionId
             // 这里暂时只改订单状态，实际可以通过 PaymentTransactionMapper 查询
         }
+
+        // 订单已变更，由发件箱在事务提交后删除出场计费回放缓存（避免重试在提交前回填旧金额）
+        // 订单上没有车场，取入场记录的车场作为顺序分区，与同一车辆的出场结算事件同序
+        ParkingRecord inRecord = order.getInRecordId() != null
+                ? parkingRecordMapper.selectById(order.getInRecordId()) : null;
+        Long parkingIotId = inRecord != null ? inRecord.getParkingIotId() : null;
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("orderId", order.getId());
+        payload.put("modifyType", record.getModifyType());
+        payload.put("amount", order.getAmount());
+        outboxPublisher.publish(OutboxEventType.ORDER_CHANGED, parkingIotId, order.getInRecordId(), payload);
     }
 
     @Override
@@ -0,0 +1,56 @@
+package com.charge.service.impl;
+
+import com.charge.entity.DTO.CalculateFeeRequest;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * 出场结算合并的 key：入场记录 + 出场时间 + 用户 + 优惠规则编码
+ * 只有完全相同的结算请求才共享结果；同一入场记录但出场时间、用户或优惠不同的请求各自结算
+ */
+final class SettleKey {
+
+    private final Long inRecordId;
+    private final LocalDateTime exitTime;
+    private final Long userId;
+    private final String discountRuleCode;
+
+    private SettleKey(Long inRecordId, LocalDateTime exitTime, Long userId, String discountRuleCode) {
+        this.inRecordId = inRecordId;
+        this.exitTime = exitTime;
+        this.userId = userId;
+        this.discountRuleCode = discountRuleCode;
+    }
+
+    static SettleKey of(CalculateFeeRequest request) {
+        return new SettleKey(request.getInRecordId(), request.getExitTime(),
+                request.getUserId(), request.getDiscountRuleCode());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SettleKey)) {
+            return false;
+        }
+        SettleKey that = (SettleKey) o;
+        return Objects.equals(inRecordId, that.inRecordId)
+                && Objects.equals(exitTime, that.exitTime)
+                && Objects.equals(userId, that.userId)
+                && Objects.equals(discountRuleCode, that.discountRuleCode);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(inRecordId, exitTime, userId, discountRuleCode);
+    }
+
+    @Override
+    public String toString() {
+        return "SettleKey{inRecordId=" + inRecordId + ", exitTime=" + exitTime
+                + ", userId=" + userId + ", discountRuleCode=" + discountRuleCode + "}";
+    }
+}
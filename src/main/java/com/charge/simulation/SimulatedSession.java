@@ -0,0 +1,50 @@
+package com.charge.simulation;
+
+import java.time.LocalDateTime;
+
+/**
+ * 模拟用的历史出场：车型 + 入场/出场时间 + 实际订单金额（无订单时为 null）
+ */
+public class SimulatedSession {
+
+    private Long recordId;
+    private String vehicleType;
+    private LocalDateTime inTime;
+    private LocalDateTime outTime;
+    private Long actualAmount;
+
+    public Long getRecordId() {
+        return recordId;
+    }
+    public void setRecordId(Long recordId) {
+        this.recordId = recordId;
+    }
+
+    public String getVehicleType() {
+        return vehicleType;
+    }
+    public void setVehicleType(String vehicleType) {
+        this.vehicleType = vehicleType;
+    }
+
+    public LocalDateTime getInTime() {
+        return inTime;
+    }
+    public void setInTime(LocalDateTime inTime) {
+        this.inTime = inTime;
+    }
+
+    public LocalDateTime getOutTime() {
+        return outTime;
+    }
+    public void setOutTime(LocalDateTime outTime) {
+        this.outTime = outTime;
+    }
+
+    public Long getActualAmount() {
+        return actualAmount;
+    }
+    public void setActualAmount(Long actualAmount) {
+        this.actualAmount = actualAmount;
+    }
+}
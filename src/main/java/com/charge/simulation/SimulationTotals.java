@@ -0,0 +1,89 @@
+package com.charge.simulation;
+
+import com.charge.entity.VO.TariffSimulationHourly;
+import com.charge.entity.VO.TariffSimulationResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 模拟汇总（每个 fork-join 子任务各自累加，结束后合并），按出场小时分桶
+ * 非线程安全
+ */
+final class SimulationTotals {
+
+    static final int HOURS = 24;
+
+    private long sessions;
+    private long sessionsWithOrder;
+    private long skipped;
+    private long simulated;
+    private long simulatedWithOrder;
+    private long actual;
+
+    private final long[] hourSessions = new long[HOURS];
+    private final long[] hourSimulated = new long[HOURS];
+    private final long[] hourSimulatedWithOrder = new long[HOURS];
+    private final long[] hourActual = new long[HOURS];
+
+    /**
+     * @param actualAmount 实际订单金额，小于 0 表示无订单
+     */
+    void add(int hour, long simulatedAmount, long actualAmount) {
+        sessions++;
+        simulated += simulatedAmount;
+        hourSessions[hour]++;
+        hourSimulated[hour] += simulatedAmount;
+        if (actualAmount >= 0) {
+            sessionsWithOrder++;
+            simulatedWithOrder += simulatedAmount;
+            actual += actualAmount;
+            hourSimulatedWithOrder[hour] += simulatedAmount;
+            hourActual[hour] += actualAmount;
+        }
+    }
+
+    void skip() {
+        skipped++;
+    }
+
+    void merge(SimulationTotals other) {
+        sessions += other.sessions;
+        sessionsWithOrder += other.sessionsWithOrder;
+        skipped += other.skipped;
+        simulated += other.simulated;
+        simulatedWithOrder += other.simulatedWithOrder;
+        actual += other.actual;
+        for (int h = 0; h < HOURS; h++) {
+            hourSessions[h] += other.hourSessions[h];
+            hourSimulated[h] += other.hourSimulated[h];
+            hourSimulatedWithOrder[h] += other.hourSimulatedWithOrder[h];
+            hourActual[h] += other.hourActual[h];
+        }
+    }
+
+    TariffSimulationResponse toResponse(Long parkingIotId, long elapsedMillis) {
+        TariffSimulationResponse resp = new TariffSimulationResponse();
+        resp.setParkingIotId(parkingIotId);
+        resp.setSessions(sessions);
+        resp.setSessionsWithOrder(sessionsWithOrder);
+        resp.setSkippedSessions(skipped);
+        resp.setSimulatedAmount(simulated);
+        resp.setSimulatedAmountWithOrder(simulatedWithOrder);
+        resp.setActualAmount(actual);
+        resp.setDeltaAmount(simulatedWithOrder - actual);
+        List<TariffSimulationHourly> hourly = new ArrayList<>(HOURS);
+        for (int h = 0; h < HOURS; h++) {
+            TariffSimulationHourly item = new TariffSimulationHourly();
+            item.setHour(h);
+            item.setSessions(hourSessions[h]);
+            item.setSimulatedAmount(hourSimulated[h]);
+            item.setActualAmount(hourActual[h]);
+            item.setDeltaAmount(hourSimulatedWithOrder[h] - hourActual[h]);
+            hourly.add(item);
+        }
+        resp.setHourly(hourly);
+        resp.setElapsedMillis(elapsedMillis);
+        return resp;
+    }
+}
@@ -0,0 +1,277 @@
+package com.charge.simulation;
+
+import com.charge.entity.ChargeRule;
+import com.charge.entity.VO.TariffSimulationResponse;
+import com.charge.mapper.ChargeRuleMapper;
+import com.charge.mapper.TariffSimulationMapper;
+import com.charge.tariff.ChargeRuleSnapshot;
+import com.charge.tariff.CompiledTariff;
+import com.charge.tariff.TariffCompiler;
+import com.common.exception.BusinessException;
+import com.parking.entity.ParkingIot;
+import com.parking.mapper.ParkingIotMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 计费规则模拟（what-if）
+ * 用候选规则对历史出场重新计费，与实际订单金额对比，评估调价对收入的影响：
+ * - 数据库游标流式读取，读线程每攒满一块（CHUNK_SIZE 条）交给 fork-join 线程池计费；
+ * - 同时在途的块数有上限，计费跟不上时读线程阻塞，内存占用与数据量无关；
+ * - 候选规则替换车场启用规则中的同 id 规则（新规则则加入），与其余规则、车场每日封顶一起编译，
+ *   按出场日期和车型选择计费对象，与出场结算相同；没有生效规则的日期按车场默认计费
+ * 同一时刻只允许一个模拟任务，避免长时间占用多个数据库连接
+ */
+@Slf4j
+@Service
+public class TariffSimulator {
+
+    static final int CHUNK_SIZE = 8192;
+
+    /**
+     * fork-join 拆分到此大小后顺序计算
+     */
+    private static final int LEAF_SIZE = 1024;
+
+    private static final long MAX_RANGE_DAYS = 366;
+
+    private final TariffSimulationMapper tariffSimulationMapper;
+    private final ChargeRuleMapper chargeRuleMapper;
+    private final ParkingIotMapper parkingIotMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ForkJoinPool pool;
+    private final int maxInFlightChunks;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public TariffSimulator(TariffSimulationMapper tariffSimulationMapper,
+                           ChargeRuleMapper chargeRuleMapper,
+                           ParkingIotMapper parkingIotMapper,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${charge.simulation.parallelism:0}") int parallelism) {
+        this.tariffSimulationMapper = tariffSimulationMapper;
+        this.chargeRuleMapper = chargeRuleMapper;
+        this.parkingIotMapper = parkingIotMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(workers);
+        this.maxInFlightChunks = workers * 2;
+    }
+
+    /**
+     * 模拟候选规则在 [startDate, endDate] 出场记录上的收入
+     *
+     * @param candidate 候选规则，parkingIotId 为模拟的车场；有 id 时替换该规则，否则作为新规则加入；不会保存
+     */
+    public TariffSimulationResponse simulate(ChargeRule candidate, LocalDate startDate, LocalDate endDate) {
+        if (candidate == null || candidate.getParkingIotId() == null) {
+            throw new BusinessException("候选规则及其车场不能为空");
+        }
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new BusinessException("模拟日期范围不正确");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= MAX_RANGE_DAYS) {
+            throw new BusinessException("模拟日期范围不能超过" + MAX_RANGE_DAYS + "天");
+        }
+        // 先单独编译候选规则，配置错误时直接返回，不必等到计费
+        TariffCompiler.compile(candidate);
+        Long parkingIotId = candidate.getParkingIotId();
+        TariffLookup tariffs = lotTariffs(candidate, chargeRuleMapper.selectByParkingIot(parkingIotId),
+                parkingIotMapper.selectById(parkingIotId));
+
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("已有计费模拟在执行，请稍后再试");
+        }
+        try {
+            long start = System.nanoTime();
+            SimulationTotals totals = readOnlyTransaction.execute(status -> {
+                try (Cursor<SimulatedSession> cursor = tariffSimulationMapper.selectFinishedSessions(
+                        candidate.getParkingIotId(), startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay())) {
+                    return run(cursor, tariffs);
+                } catch (IOException e) {
+                    throw new BusinessException("关闭模拟游标失败: " + e.getMessage());
+                }
+            });
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            TariffSimulationResponse resp = totals.toResponse(candidate.getParkingIotId(), elapsedMillis);
+            log.info("计费模拟完成: parkingIotId={}, {}~{}, sessions={}, delta={}, elapsed={}ms",
+                    candidate.getParkingIotId(), startDate, endDate, resp.getSessions(),
+                    resp.getDeltaAmount(), elapsedMillis);
+            return resp;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 候选规则替换进车场启用规则后的计费对象查询
+     *
+     * @param lotRules   车场全部规则（含停用，停用的不参与）
+     * @param parkingIot 车场，用于每日封顶和无生效规则时的默认计费
+     */
+    static TariffLookup lotTariffs(ChargeRule candidate, List<ChargeRule> lotRules, ParkingIot parkingIot) {
+        Long parkingIotId = candidate.getParkingIotId();
+        List<ChargeRule> rules = new ArrayList<>();
+        for (ChargeRule rule : lotRules) {
+            boolean replaced = candidate.getId() != null && candidate.getId().equals(rule.getId());
+            if (!replaced && Integer.valueOf(1).equals(rule.getStatus())) {
+                rules.add(rule);
+            }
+        }
+        rules.add(candidate);
+        ChargeRuleSnapshot snapshot = ChargeRuleSnapshot.empty().withLot(parkingIotId, rules,
+                parkingIot != null ? parkingIot.getMaxDailyAmount() : null);
+        boolean hasUnitPrice = parkingIot != null && parkingIot.getUnitPrice() != null && parkingIot.getUnitPrice() > 0;
+        CompiledTariff fallback = hasUnitPrice ? TariffCompiler.compileDefault(parkingIot) : null;
+        return (vehicleType, date) -> {
+            CompiledTariff tariff = snapshot.resolveTariff(parkingIotId, vehicleType, date);
+            if (tariff != null) {
+                return tariff;
+            }
+            if (fallback == null) {
+                throw new BusinessException("车场未配置有效单价");
+            }
+            return fallback;
+        };
+    }
+
+    /**
+     * 分块并行计费；返回前等待全部块完成
+     */
+    SimulationTotals run(Iterable<SimulatedSession> sessions, TariffLookup tariffs) {
+        SimulationTotals totals = new SimulationTotals();
+        Semaphore inFlight = new Semaphore(maxInFlightChunks);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        SimulatedSession[] chunk = new SimulatedSession[CHUNK_SIZE];
+        int size = 0;
+        for (SimulatedSession session : sessions) {
+            chunk[size++] = session;
+            if (size == CHUNK_SIZE) {
+                submit(chunk, size, tariffs, totals, inFlight, failure);
+                chunk = new SimulatedSession[CHUNK_SIZE];
+                size = 0;
+                if (failure.get() != null) {
+                    break;
+                }
+            }
+        }
+        if (size > 0 && failure.get() == null) {
+            submit(chunk, size, tariffs, totals, inFlight, failure);
+        }
+
+        // 拿回全部许可即全部块已完成
+        inFlight.acquireUninterruptibly(maxInFlightChunks);
+        Throwable error = failure.get();
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error != null) {
+            throw new IllegalStateException("计费模拟失败", error);
+        }
+        return totals;
+    }
+
+    private void submit(SimulatedSession[] chunk, int size, TariffLookup tariffs, SimulationTotals totals,
+                        Semaphore inFlight, AtomicReference<Throwable> failure) {
+        inFlight.acquireUninterruptibly();
+        pool.execute(() -> {
+            try {
+                SimulationTotals part = new RepriceTask(tariffs, chunk, 0, size).invoke();
+                synchronized (totals) {
+                    totals.merge(part);
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 按车型和出场日期选择计费对象
+     */
+    interface TariffLookup {
+        CompiledTariff resolve(String vehicleType, LocalDate date);
+    }
+
+    /**
+     * 对一块出场记录的 [from, to) 区间计费，超过 LEAF_SIZE 时二分并行
+     */
+    private static final class RepriceTask extends RecursiveTask<SimulationTotals> {
+
+        private final TariffLookup tariffs;
+        private final SimulatedSession[] sessions;
+        private final int from;
+        private final int to;
+
+        RepriceTask(TariffLookup tariffs, SimulatedSession[] sessions, int from, int to) {
+            this.tariffs = tariffs;
+            this.sessions = sessions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SimulationTotals compute() {
+            if (to - from <= LEAF_SIZE) {
+                return computeDirectly();
+            }
+            int mid = (from + to) >>> 1;
+            RepriceTask left = new RepriceTask(tariffs, sessions, from, mid);
+            left.fork();
+            SimulationTotals right = new RepriceTask(tariffs, sessions, mid, to).compute();
+            SimulationTotals result = left.join();
+            result.merge(right);
+            return result;
+        }
+
+        private SimulationTotals computeDirectly() {
+            SimulationTotals totals = new SimulationTotals();
+            for (int i = from; i < to; i++) {
+                SimulatedSession session = sessions[i];
+                LocalDateTime inTime = session.getInTime();
+                LocalDateTime outTime = session.getOutTime();
+                if (inTime == null || outTime == null || outTime.isBefore(inTime)) {
+                    totals.skip();
+                    continue;
+                }
+                // 与出场结算一致：不足 1 分钟按 1 分钟
+                long minutes = Duration.between(inTime, outTime).toMinutes();
+                if (minutes <= 0) {
+                    minutes = 1;
+                }
+                // 与出场结算一致：按出场日期和入场车型选择规则
+                CompiledTariff tariff = tariffs.resolve(session.getVehicleType(), outTime.toLocalDate());
+                Long actual = session.getActualAmount();
+                totals.add(outTime.getHour(), tariff.calculate(inTime, minutes), actual != null ? actual : -1L);
+            }
+            return totals;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.charge.tariff;
+
+import com.charge.entity.ChargeRule;
+import com.common.exception.BusinessException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 全部启用规则的不可变快照，按 (车场, 车型) 索引
+ *
+ * 每个 (车场, 车型) 预先按生效日期切成若干日期段，每段编译好一个 CompiledTariff：
+ * 查询时两次哈希 + 在段边界（通常只有 0~2 个）上二分，生效日期在查询时按计费日期判断，不会因缓存而越过 effective_end_date。
+ * 车型规则 = 该车型的规则 + ALL 规则，优先级相同时车型规则优先，再按 id 升序；
+ * 车场没有该车型的规则时使用 ALL 规则；每日封顶取主规则与车场（parking_lot.max_daily_amount）的较小值
+ *
+ * 规则变更时用 withLot 生成替换了单个车场的新快照（写时复制），旧快照不受影响，读者无需加锁
+ */
+public final class ChargeRuleSnapshot {
+
+    /**
+     * 适用全部车型
+     */
+    public static final String ALL_CAR_TYPES = "ALL";
+
+    private static final ChargeRuleSnapshot EMPTY = new ChargeRuleSnapshot(Collections.emptyMap());
+
+    /**
+     * 排序：优先级倒序 -> 车型规则在 ALL 之前 -> id 升序
+     */
+    private static final Comparator<ChargeRule> RULE_ORDER = Comparator
+            .comparingInt((ChargeRule r) -> r.getPriority() != null ? r.getPriority() : 0).reversed()
+            .thenComparing(r -> ALL_CAR_TYPES.equals(carTypeOf(r)))
+            .thenComparing(r -> r.getId() != null ? r.getId() : Long.MAX_VALUE);
+
+    private final Map<Long, Map<String, Timeline>> lots;
+
+    private ChargeRuleSnapshot(Map<Long, Map<String, Timeline>> lots) {
+        this.lots = lots;
+    }
+
+    public static ChargeRuleSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 由全部启用规则（status = 1，不限生效日期）构建快照（不考虑车场每日封顶）
+     */
+    public static ChargeRuleSnapshot of(Collection<ChargeRule> enabledRules) {
+        return of(enabledRules, Collections.emptyMap());
+    }
+
+    /**
+     * 由全部启用规则（status = 1，不限生效日期）构建快照
+     *
+     * @param lotDailyCaps 车场ID -> 车场每日封顶（parking_lot.max_daily_amount），与规则的每日封顶取较小值
+     */
+    public static ChargeRuleSnapshot of(Collection<ChargeRule> enabledRules, Map<Long, Integer> lotDailyCaps) {
+        Map<Long, List<ChargeRule>> byLot = new HashMap<>();
+        for (ChargeRule rule : enabledRules) {
+            if (rule.getParkingIotId() != null) {
+                byLot.computeIfAbsent(rule.getParkingIotId(), k -> new ArrayList<>()).add(rule);
+            }
+        }
+        Map<Long, Map<String, Timeline>> lots = new HashMap<>(byLot.size() * 2);
+        byLot.forEach((lot, rules) -> lots.put(lot, indexLot(rules, lotDailyCaps.get(lot))));
+        return new ChargeRuleSnapshot(Collections.unmodifiableMap(lots));
+    }
+
+    /**
+     * 替换单个车场的规则（不考虑车场每日封顶），返回新快照（本快照不变）
+     */
+    public ChargeRuleSnapshot withLot(Long parkingIotId, Collection<ChargeRule> enabledRules) {
+        return withLot(parkingIotId, enabledRules, null);
+    }
+
+    /**
+     * 替换单个车场的规则，返回新快照（本快照不变）
+     *
+     * @param enabledRules 该车场全部启用规则，为空表示车场已无规则
+     * @param lotDailyCap  车场每日封顶，为空表示不封顶
+     */
+    public ChargeRuleSnapshot withLot(Long parkingIotId, Collection<ChargeRule> enabledRules, Integer lotDailyCap) {
+        Map<Long, Map<String, Timeline>> copy = new HashMap<>(lots);
+        if (enabledRules == null || enabledRules.isEmpty()) {
+            copy.remove(parkingIotId);
+        } else {
+            copy.put(parkingIotId, indexLot(new ArrayList<>(enabledRules), lotDailyCap));
+        }
+        return new ChargeRuleSnapshot(Collections.unmodifiableMap(copy));
+    }
+
+    /**
+     * 查询车场在指定日期、指定车型下生效的计费对象
+     *
+     * @param carType 车型，为空表示 ALL
+     * @return 无生效规则时返回 null
+     */
+    public CompiledTariff resolveTariff(Long parkingIotId, String carType, LocalDate date) {
+        Segment segment = resolve(parkingIotId, carType, date);
+        return segment != null ? segment.tariff() : null;
+    }
+
+    /**
+     * 查询车场在指定日期、指定车型下生效的主规则（优先级最高的一条）
+     *
+     * @return 无生效规则时返回 null
+     */
+    public ChargeRule resolveRule(Long parkingIotId, String carType, LocalDate date) {
+        Segment segment = resolve(parkingIotId, carType, date);
+        return segment != null ? segment.primary : null;
+    }
+
+    public int lotCount() {
+        return lots.size();
+    }
+
+    private Segment resolve(Long parkingIotId, String carType, LocalDate date) {
+        Map<String, Timeline> byCarType = lots.get(parkingIotId);
+        if (byCarType == null) {
+            return null;
+        }
+        Timeline timeline = byCarType.get(normalizeCarType(carType));
+        if (timeline == null) {
+            timeline = byCarType.get(ALL_CAR_TYPES);
+            if (timeline == null) {
+                return null;
+            }
+        }
+        return timeline.at(date.toEpochDay());
+    }
+
+    public static String normalizeCarType(String carType) {
+        if (carType == null || carType.trim().isEmpty()) {
+            return ALL_CAR_TYPES;
+        }
+        return carType.trim().toUpperCase();
+    }
+
+    private static String carTypeOf(ChargeRule rule) {
+        return normalizeCarType(rule.getCarType());
+    }
+
+    private static Map<String, Timeline> indexLot(List<ChargeRule> rules, Integer lotDailyCap) {
+        rules.sort(RULE_ORDER);
+        Set<String> carTypes = new LinkedHashSet<>();
+        for (ChargeRule rule : rules) {
+            carTypes.add(carTypeOf(rule));
+        }
+        Map<String, Timeline> byCarType = new HashMap<>(carTypes.size() * 2);
+        for (String carType : carTypes) {
+            List<ChargeRule> applicable = new ArrayList<>();
+            for (ChargeRule rule : rules) {
+                String ruleCarType = carTypeOf(rule);
+                if (ruleCarType.equals(carType) || ALL_CAR_TYPES.equals(ruleCarType)) {
+                    applicable.add(rule);
+                }
+            }
+            byCarType.put(carType, Timeline.of(applicable, lotDailyCap));
+        }
+        return Collections.unmodifiableMap(byCarType);
+    }
+
+    /**
+     * 一个 (车场, 车型) 的日期段：bounds[i-1] <= 日期 < bounds[i] 落在第 i 段
+     */
+    private static final class Timeline {
+        private final long[] bounds;
+        private final Segment[] segments;
+
+        private Timeline(long[] bounds, Segment[] segments) {
+            this.bounds = bounds;
+            this.segments = segments;
+        }
+
+        static Timeline of(List<ChargeRule> sortedRules, Integer lotDailyCap) {
+            // 每个生效起始日、结束日次日都是一个段边界
+            TreeSet<Long> edges = new TreeSet<>();
+            for (ChargeRule rule : sortedRules) {
+                if (rule.getEffectiveStartDate() != null) {
+                    edges.add(rule.getEffectiveStartDate().toEpochDay());
+                }
+                if (rule.getEffectiveEndDate() != null) {
+                    edges.add(rule.getEffectiveEndDate().toEpochDay() + 1);
+                }
+            }
+            long[] bounds = new long[edges.size()];
+            int n = 0;
+            for (Long edge : edges) {
+                bounds[n++] = edge;
+            }
+            Segment[] segments = new Segment[bounds.length + 1];
+            for (int i = 0; i < segments.length; i++) {
+                long day = i == 0 ? (bounds.length > 0 ? bounds[0] - 1 : 0L) : bounds[i - 1];
+                segments[i] = Segment.of(activeOn(sortedRules, day), lotDailyCap);
+            }
+            return new Timeline(bounds, segments);
+        }
+
+        Segment at(long epochDay) {
+            int pos = Arrays.binarySearch(bounds, epochDay);
+            return segments[pos >= 0 ? pos + 1 : -(pos + 1)];
+        }
+
+        private static List<ChargeRule> activeOn(List<ChargeRule> sortedRules, long epochDay) {
+            List<ChargeRule> active = new ArrayList<>();
+            for (ChargeRule rule : sortedRules) {
+                LocalDate start = rule.getEffectiveStartDate();
+                LocalDate end = rule.getEffectiveEndDate();
+                if ((start == null || start.toEpochDay() <= epochDay)
+                        && (end == null || end.toEpochDay() >= epochDay)) {
+                    active.add(rule);
+                }
+            }
+            return active;
+        }
+    }
+
+    /**
+     * 一个日期段内生效的规则编译结果；规则配置错误时保留错误信息，在计费时抛出（与按需编译时一致）
+     */
+    private static final class Segment {
+        private final ChargeRule primary;
+        private final CompiledTariff tariff;
+        private final String error;
+
+        private Segment(ChargeRule primary, CompiledTariff tariff, String error) {
+            this.primary = primary;
+            this.tariff = tariff;
+            this.error = error;
+        }
+
+        static Segment of(List<ChargeRule> activeRules, Integer lotDailyCap) {
+            if (activeRules.isEmpty()) {
+                return null;
+            }
+            ChargeRule primary = activeRules.get(0);
+            try {
+                return new Segment(primary, TariffCompiler.compile(activeRules, lotDailyCap), null);
+            } catch (BusinessException e) {
+                return new Segment(primary, null, e.getMessage());
+            }
+        }
+
+        CompiledTariff tariff() {
+            if (error != null) {
+                throw new BusinessException(error);
+            }
+            return tariff;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.charge.tariff;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 编译后的计费规则（不可变）
+ * 由 {@link TariffCompiler} 从一个车场的 charge_rule 行一次性编译得到，
+ * 字段全部为基本类型 / 基本类型数组，计算过程只做整数运算，不产生任何对象分配，可在多线程间共享
+ *
+ * 计费口径：
+ * 1. 首免分钟数内免费；之后以"首免结束时刻"为起点，每满/不足一小时计一个计费单元
+ * 2. 每个计费单元按其开始时刻所在时段（effective_time_range）的规则计价：
+ *    按时长计费的时段收取单价；定额时段每个连续时段只在第一个计费单元收取一次定额
+ * 3. 每个计费单元归属于其开始时刻所在的自然日，每个自然日的金额不超过每日封顶
+ * 4. 各日金额求和后再做单次封顶
+ *
+ * 计费单元的起点相对整点的偏移（相位）在整个停车期间不变，一天恰好 24 个计费单元，
+ * 因此编译时按相位预先算好一天 24 个计费单元的前缀和，计算时只需二分查找相位所在区间，
+ * 首日、中间整天、末日各做一次前缀和相减，任意时长都是 O(log 时段数)
+ */
+public final class CompiledTariff {
+
+    /**
+     * 计费模式：1-按时长统一单价
+     */
+    public static final int MODE_HOURLY = 1;
+
+    /**
+     * 计费模式：2-时段定额（每个连续时段收取一次 unit_price）
+     */
+    public static final int MODE_FLAT = 2;
+
+    /**
+     * 表示"不封顶"
+     */
+    public static final long NO_CAP = Long.MAX_VALUE;
+
+    static final int SLOTS_PER_DAY = 24;
+
+    private static final long SECONDS_PER_HOUR = 3600L;
+
+    private static final long SECONDS_PER_DAY = 86400L;
+
+    /**
+     * 主规则ID，0 表示非 charge_rule 编译（车场默认单价）
+     */
+    private final long ruleId;
+
+    /**
+     * 主规则名称（用于订单冗余展示）
+     */
+    private final String ruleName;
+
+    private final int chargeMode;
+
+    private final int freeMinutes;
+
+    /**
+     * 主规则单价（分/小时 或 定额）
+     */
+    private final long unitPrice;
+
+    /**
+     * 单次封顶金额（分），NO_CAP 表示不封顶
+     */
+    private final long maxAmountPerSession;
+
+    /**
+     * 每日封顶金额（分），NO_CAP 表示不封顶
+     */
+    private final long maxAmountPerDay;
+
+    /**
+     * 相位区间起点（计费起点相对整点的秒数，升序，首个元素为 0）
+     */
+    private final int[] phaseStarts;
+
+    /**
+     * 每个相位区间一天 24 个计费单元的金额前缀和，slotPrefix[c][j] = 第 0..j-1 个单元之和
+     */
+    private final long[][] slotPrefix;
+
+    /**
+     * 停车期间第一个计费单元的补收金额：
+     * 落在定额时段中间（时段已在入场前开始）时，前缀和里该单元为 0，但本次停车仍需收取一次定额
+     */
+    private final long[][] firstSlotExtra;
+
+    CompiledTariff(long ruleId, String ruleName, int chargeMode, int freeMinutes, long unitPrice,
+                   long maxAmountPerSession, long maxAmountPerDay,
+                   int[] phaseStarts, long[][] slotPrefix, long[][] firstSlotExtra) {
+        this.ruleId = ruleId;
+        this.ruleName = ruleName;
+        this.chargeMode = chargeMode;
+        this.freeMinutes = freeMinutes;
+        this.unitPrice = unitPrice;
+        this.maxAmountPerSession = maxAmountPerSession;
+        this.maxAmountPerDay = maxAmountPerDay;
+        this.phaseStarts = phaseStarts;
+        this.slotPrefix = slotPrefix;
+        this.firstSlotExtra = firstSlotExtra;
+    }
+
+    /**
+     * 按总停车分钟数计算应收金额（分），按入场时刻为当天 00:00 计算
+     */
+    public long calculate(long totalMinutes) {
+        return calculate(0L, totalMinutes);
+    }
+
+    /**
+     * 按入场时间 + 总停车分钟数计算应收金额（分）
+     * 入场时间按本地时间（无夏令时）划分自然日和时段
+     */
+    public long calculate(LocalDateTime inTime, long totalMinutes) {
+        return calculate(inTime.toEpochSecond(ZoneOffset.UTC), totalMinutes);
+    }
+
+    /**
+     * @param inEpochSecond 入场时刻（本地时间换算的秒数）
+     * @param totalMinutes  总停车分钟数
+     */
+    public long calculate(long inEpochSecond, long totalMinutes) {
+        long units = chargeUnits(totalMinutes);
+        if (units == 0) {
+            return 0L;
+        }
+
+        long chargeStart = inEpochSecond + freeMinutes * 60L;
+        long secondOfDay = Math.floorMod(chargeStart, SECONDS_PER_DAY);
+        int phaseClass = phaseClassOf((int) (secondOfDay % SECONDS_PER_HOUR));
+        long[] prefix = slotPrefix[phaseClass];
+
+        // 首日：从第一个计费单元所在槽位到当天最后一个槽位
+        int firstSlot = (int) (secondOfDay / SECONDS_PER_HOUR);
+        int firstDayUnits = (int) Math.min(units, SLOTS_PER_DAY - firstSlot);
+        long firstDay = prefix[firstSlot + firstDayUnits] - prefix[firstSlot]
+                + firstSlotExtra[phaseClass][firstSlot];
+
+        // 中间整天 + 末日
+        long restUnits = units - firstDayUnits;
+        long fullDays = restUnits / SLOTS_PER_DAY;
+        int lastDayUnits = (int) (restUnits % SLOTS_PER_DAY);
+
+        long amount = capDay(firstDay)
+                + fullDays * capDay(prefix[SLOTS_PER_DAY])
+                + capDay(prefix[lastDayUnits]);
+        return amount > maxAmountPerSession ? maxAmountPerSession : amount;
+    }
+
+    /**
+     * 当前价格阶梯的开始分钟数（相对入场时刻，含）
+     * 金额只随计费单元数变化，停车分钟数在 [priceStepStartMinutes, nextPriceChangeMinutes) 内金额不变
+     */
+    public long priceStepStartMinutes(long totalMinutes) {
+        long units = chargeUnits(totalMinutes);
+        return units == 0 ? 0L : freeMinutes + (units - 1) * 60 + 1;
+    }
+
+    /**
+     * 下一次金额可能变化的分钟数（相对入场时刻）
+     */
+    public long nextPriceChangeMinutes(long totalMinutes) {
+        return freeMinutes + chargeUnits(totalMinutes) * 60 + 1;
+    }
+
+    /**
+     * 计费单元数：首免之后每满/不足一小时计一个单元
+     */
+    private long chargeUnits(long totalMinutes) {
+        long chargeMinutes = totalMinutes - freeMinutes;
+        return chargeMinutes <= 0 ? 0L : (chargeMinutes + 59) / 60;
+    }
+
+    /**
+     * 二分查找相位所在区间
+     */
+    private int phaseClassOf(int phase) {
+        int low = 0;
+        int high = phaseStarts.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (phaseStarts[mid] <= phase) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private long capDay(long amount) {
+        return amount > maxAmountPerDay ? maxAmountPerDay : amount;
+    }
+
+    public long getRuleId() {
+        return ruleId;
+    }
+
+    public String getRuleName() {
+        return ruleName;
+    }
+
+    public int getChargeMode() {
+        return chargeMode;
+    }
+
+    public int getFreeMinutes() {
+        return freeMinutes;
+    }
+
+    public long getUnitPrice() {
+        return unitPrice;
+    }
+
+    public long getMaxAmountPerSession() {
+        return maxAmountPerSession;
+    }
+
+    public long getMaxAmountPerDay() {
+        return maxAmountPerDay;
+    }
+}
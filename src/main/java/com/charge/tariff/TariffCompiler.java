@@ -0,0 +1,258 @@
+package com.charge.tariff;
+
+import com.charge.entity.ChargeRule;
+import com.common.exception.BusinessException;
+import com.parking.entity.ParkingIot;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 计费规则编译器
+ * 把可变的 ChargeRule 实体（包装类型字段）转换为只含基本类型的 CompiledTariff
+ *
+ * 一个车场的多条规则按 effective_time_range 铺到一天 1440 分钟的时间轴上：
+ * 优先级高的规则覆盖优先级低的规则；未配置时段的规则覆盖全天；
+ * 所有规则都未覆盖的分钟按主规则（优先级最高的一条）计价
+ */
+public final class TariffCompiler {
+
+    /**
+     * 车场未配置 charge_rule 时的默认首免分钟数
+     */
+    public static final int DEFAULT_FREE_MINUTES = 30;
+
+    /**
+     * 车场未配置 charge_rule 时订单上显示的计费规则名称
+     */
+    public static final String DEFAULT_RULE_NAME = "前30分钟免费,之后按小时计费";
+
+    private static final int MINUTES_PER_DAY = 1440;
+
+    private static final int MINUTES_PER_HOUR = 60;
+
+    /**
+     * 全天归属主规则的时间轴（单条规则、车场默认计费共用，build 只读不写）
+     */
+    private static final int[] SINGLE_RULE_OWNER = new int[MINUTES_PER_DAY];
+
+    private TariffCompiler() {
+    }
+
+    /**
+     * 编译单条计费规则
+     */
+    public static CompiledTariff compile(ChargeRule rule) {
+        if (rule == null) {
+            throw new BusinessException("计费规则不能为空");
+        }
+        return compile(Collections.singletonList(rule));
+    }
+
+    /**
+     * 编译一个车场当前生效的全部规则（不考虑车场每日封顶）
+     */
+    public static CompiledTariff compile(List<ChargeRule> rules) {
+        return compile(rules, null);
+    }
+
+    /**
+     * 编译一个车场当前生效的全部规则
+     *
+     * @param rules              按优先级倒序排列（与 selectValidRulesByParkingIot 一致），第一条为主规则，
+     *                           决定首免分钟数、封顶金额和订单上的规则名称
+     * @param lotMaxDailyAmount  车场每日封顶（parking_lot.max_daily_amount），为空表示不封顶；
+     *                           与主规则的每日封顶取较小值
+     */
+    public static CompiledTariff compile(List<ChargeRule> rules, Integer lotMaxDailyAmount) {
+        if (rules == null || rules.isEmpty()) {
+            throw new BusinessException("计费规则不能为空");
+        }
+        int size = rules.size();
+        int[] modes = new int[size];
+        long[] prices = new long[size];
+        for (int i = 0; i < size; i++) {
+            ChargeRule rule = rules.get(i);
+            Integer unitPrice = rule.getUnitPrice();
+            if (unitPrice == null || unitPrice < 0) {
+                throw new BusinessException("计费规则未配置有效单价,id=" + rule.getId());
+            }
+            modes[i] = modeOf(rule);
+            prices[i] = unitPrice;
+        }
+
+        // 从低优先级到高优先级依次覆盖，未覆盖的分钟保留主规则；单条规则全天都归主规则
+        int[] owner;
+        if (size == 1) {
+            parseTimeRange(rules.get(0).getEffectiveTimeRange());
+            owner = SINGLE_RULE_OWNER;
+        } else {
+            owner = new int[MINUTES_PER_DAY];
+            for (int i = size - 1; i >= 0; i--) {
+                int[] range = parseTimeRange(rules.get(i).getEffectiveTimeRange());
+                paint(owner, range[0], range[1], i);
+            }
+        }
+
+        ChargeRule primary = rules.get(0);
+        return build(
+                primary.getId() != null ? primary.getId() : 0L,
+                primary.getRuleName(),
+                modes[0],
+                primary.getFreeMinutes() != null ? primary.getFreeMinutes() : 0,
+                prices[0],
+                capOf(primary.getMaxAmountPerSession()),
+                Math.min(capOf(primary.getMaxAmountPerDay()), capOf(lotMaxDailyAmount)),
+                owner, modes, prices
+        );
+    }
+
+    /**
+     * 车场无计费规则时的默认计费：前30分钟免费，之后按车场单价按小时计费，按车场每日封顶
+     */
+    public static CompiledTariff compileDefault(ParkingIot parkingIot) {
+        Integer unitPrice = parkingIot.getUnitPrice();
+        if (unitPrice == null || unitPrice <= 0) {
+            throw new BusinessException("车场未配置有效单价");
+        }
+        return build(0L, DEFAULT_RULE_NAME, CompiledTariff.MODE_HOURLY, DEFAULT_FREE_MINUTES, unitPrice,
+                CompiledTariff.NO_CAP, capOf(parkingIot.getMaxDailyAmount()),
+                SINGLE_RULE_OWNER, new int[]{CompiledTariff.MODE_HOURLY}, new long[]{unitPrice});
+    }
+
+    /**
+     * 解析生效时间段 "HH:mm-HH:mm"，返回 [开始分钟, 结束分钟)
+     * 为空表示全天；开始等于结束表示全天；开始大于结束表示跨零点（如 22:00-08:00）
+     */
+    public static int[] parseTimeRange(String timeRange) {
+        if (timeRange == null || timeRange.trim().isEmpty()) {
+            return new int[]{0, MINUTES_PER_DAY};
+        }
+        String[] parts = timeRange.trim().split("-");
+        if (parts.length != 2) {
+            throw new BusinessException("生效时间段格式错误,应为HH:mm-HH:mm: " + timeRange);
+        }
+        int start = parseMinuteOfDay(parts[0], timeRange);
+        int end = parseMinuteOfDay(parts[1], timeRange);
+        if (start == end) {
+            return new int[]{0, MINUTES_PER_DAY};
+        }
+        return new int[]{start, end};
+    }
+
+    private static int parseMinuteOfDay(String text, String timeRange) {
+        String[] hm = text.trim().split(":");
+        if (hm.length != 2 || hm[1].length() != 2) {
+            throw new BusinessException("生效时间段格式错误,应为HH:mm-HH:mm: " + timeRange);
+        }
+        int hour;
+        int minute;
+        try {
+            hour = Integer.parseInt(hm[0]);
+            minute = Integer.parseInt(hm[1]);
+        } catch (NumberFormatException e) {
+            throw new BusinessException("生效时间段格式错误,应为HH:mm-HH:mm: " + timeRange);
+        }
+        if (hour < 0 || minute < 0 || minute >= MINUTES_PER_HOUR || hour > 24 || (hour == 24 && minute != 0)) {
+            throw new BusinessException("生效时间段超出范围: " + timeRange);
+        }
+        return hour * MINUTES_PER_HOUR + minute;
+    }
+
+    private static void paint(int[] owner, int start, int end, int index) {
+        if (start < end) {
+            Arrays.fill(owner, start, end, index);
+        } else {
+            // 跨零点
+            Arrays.fill(owner, start, MINUTES_PER_DAY, index);
+            Arrays.fill(owner, 0, end, index);
+        }
+    }
+
+    /**
+     * 按时间轴生成各相位区间的槽位前缀和
+     * 计费起点的分钟偏移 t（0~59）决定每个槽位的开始分钟 j*60+t，
+     * 相邻且槽位金额完全相同的偏移合并为一个相位区间
+     */
+    private static CompiledTariff build(long ruleId, String ruleName, int chargeMode, int freeMinutes,
+                                        long unitPrice, long maxAmountPerSession, long maxAmountPerDay,
+                                        int[] owner, int[] modes, long[] prices) {
+        // 连续时段的起点：归属规则发生变化的分钟；整天同一规则时以 00:00 为起点
+        boolean[] runStart = new boolean[MINUTES_PER_DAY];
+        boolean uniform = true;
+        for (int m = 0; m < MINUTES_PER_DAY; m++) {
+            int previous = owner[(m + MINUTES_PER_DAY - 1) % MINUTES_PER_DAY];
+            runStart[m] = owner[m] != previous;
+            uniform &= !runStart[m];
+        }
+        if (uniform) {
+            runStart[0] = true;
+        }
+
+        int[] phaseStarts = new int[MINUTES_PER_HOUR];
+        long[][] slotPrefix = new long[MINUTES_PER_HOUR][];
+        long[][] firstSlotExtra = new long[MINUTES_PER_HOUR][];
+        int classes = 0;
+        for (int t = 0; t < MINUTES_PER_HOUR; t++) {
+            long[] prefix = new long[CompiledTariff.SLOTS_PER_DAY + 1];
+            long[] extra = new long[CompiledTariff.SLOTS_PER_DAY];
+            for (int j = 0; j < CompiledTariff.SLOTS_PER_DAY; j++) {
+                int minute = j * MINUTES_PER_HOUR + t;
+                int index = owner[minute];
+                long slotAmount = prices[index];
+                if (modes[index] == CompiledTariff.MODE_FLAT && !startsRun(runStart, minute)) {
+                    // 同一定额时段内的后续槽位不再收费，仅在停车的第一个槽位补收一次
+                    slotAmount = 0L;
+                    extra[j] = prices[index];
+                }
+                prefix[j + 1] = prefix[j] + slotAmount;
+            }
+            if (classes > 0
+                    && Arrays.equals(prefix, slotPrefix[classes - 1])
+                    && Arrays.equals(extra, firstSlotExtra[classes - 1])) {
+                continue;
+            }
+            phaseStarts[classes] = t * 60;
+            slotPrefix[classes] = prefix;
+            firstSlotExtra[classes] = extra;
+            classes++;
+        }
+
+        return new CompiledTariff(ruleId, ruleName, chargeMode, freeMinutes, unitPrice,
+                maxAmountPerSession, maxAmountPerDay,
+                Arrays.copyOf(phaseStarts, classes),
+                Arrays.copyOf(slotPrefix, classes),
+                Arrays.copyOf(firstSlotExtra, classes));
+    }
+
+    /**
+     * 上一个槽位开始之后、本槽位开始之前（含）是否出现了新的连续时段
+     */
+    private static boolean startsRun(boolean[] runStart, int minute) {
+        for (int k = 0; k < MINUTES_PER_HOUR; k++) {
+            if (runStart[(minute - k + MINUTES_PER_DAY) % MINUTES_PER_DAY]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int modeOf(ChargeRule rule) {
+        Integer chargeMode = rule.getChargeMode();
+        if (chargeMode == null) {
+            return CompiledTariff.MODE_HOURLY;
+        }
+        if (chargeMode != CompiledTariff.MODE_HOURLY && chargeMode != CompiledTariff.MODE_FLAT) {
+            throw new BusinessException("不支持的计费模式: " + chargeMode + ",id=" + rule.getId());
+        }
+        return chargeMode;
+    }
+
+    /**
+     * 封顶金额：null 表示不封顶
+     */
+    private static long capOf(Integer cap) {
+        return cap != null ? cap : CompiledTariff.NO_CAP;
+    }
+}
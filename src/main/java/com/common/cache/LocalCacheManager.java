@@ -0,0 +1,153 @@
+package com.common.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 本地缓存管理
+ * 管理各区域的一级缓存，并通过 Redis pub/sub 在节点间广播失效消息：
+ * 任一节点删除或改写缓存时，其他节点的同一本地缓存条目随之失效
+ *
+ * 消息格式：节点ID|区域|key，key 为 * 表示清空整个区域
+ */
+@Slf4j
+@Component
+public class LocalCacheManager implements MessageListener {
+
+    /**
+     * 失效消息频道
+     */
+    public static final String INVALIDATION_CHANNEL = "cache:local:invalidate";
+
+    private static final String ALL_KEYS = "*";
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 当前节点ID，用于忽略自己发出的消息
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<String, LocalCacheRegion> regions = new ConcurrentHashMap<>();
+
+    /**
+     * 非 Caffeine 区域的本地数据（如计费规则快照）收到其他节点失效消息时的回调，参数为 key
+     */
+    private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final LocalCacheProperties properties;
+
+    public LocalCacheManager(StringRedisTemplate stringRedisTemplate, LocalCacheProperties properties) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * 获取（不存在则按配置创建）缓存区域
+     */
+    public LocalCacheRegion region(String name) {
+        return regions.computeIfAbsent(name, n -> new LocalCacheRegion(
+                n, properties.maxSizeOf(n), properties.ttlSecondsOf(n), properties.isEnabled()));
+    }
+
+    /**
+     * 本节点失效，并通知其他节点失效
+     */
+    public void invalidate(String region, String key) {
+        LocalCacheRegion cacheRegion = regions.get(region);
+        if (cacheRegion != null) {
+            cacheRegion.invalidate(key);
+        }
+        publish(region, key);
+    }
+
+    /**
+     * 只通知其他节点失效（本节点刚写入了最新值）
+     */
+    public void invalidateRemote(String region, String key) {
+        publish(region, key);
+    }
+
+    /**
+     * 清空区域，并通知其他节点清空
+     */
+    public void invalidateAll(String region) {
+        LocalCacheRegion cacheRegion = regions.get(region);
+        if (cacheRegion != null) {
+            cacheRegion.invalidateAll();
+        }
+        publish(region, ALL_KEYS);
+    }
+
+    /**
+     * 订阅其他节点对某区域发出的失效消息（本节点发出的消息不会回调）
+     */
+    public void addInvalidationListener(String region, Consumer<String> listener) {
+        listeners.computeIfAbsent(region, r -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    private void publish(String region, String key) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + SEPARATOR + region + SEPARATOR + key);
+        } catch (Exception e) {
+            // 广播失败时其他节点最多在本地缓存过期后读到新值
+            log.error("发送本地缓存失效消息失败: region={}, key={}", region, key, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 3);
+        if (parts.length != 3) {
+            log.warn("忽略格式错误的本地缓存失效消息: {}", body);
+            return;
+        }
+        if (nodeId.equals(parts[0])) {
+            return;
+        }
+        List<Consumer<String>> regionListeners = listeners.get(parts[1]);
+        if (regionListeners != null) {
+            for (Consumer<String> listener : regionListeners) {
+                try {
+                    listener.accept(parts[2]);
+                } catch (Exception e) {
+                    log.error("处理本地缓存失效消息失败: region={}, key={}", parts[1], parts[2], e);
+                }
+            }
+        }
+        LocalCacheRegion cacheRegion = regions.get(parts[1]);
+        if (cacheRegion == null) {
+            return;
+        }
+        if (ALL_KEYS.equals(parts[2])) {
+            cacheRegion.invalidateAll();
+        } else {
+            cacheRegion.invalidate(parts[2]);
+        }
+        log.debug("收到本地缓存失效消息: region={}, key={}", parts[1], parts[2]);
+    }
+
+    /**
+     * 各区域统计，key 为区域名
+     */
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        regions.forEach((name, region) -> result.put(name, region.stats()));
+        return result;
+    }
+}
@@ -0,0 +1,108 @@
+package com.common.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 本地缓存（一级缓存）配置
+ *
+ * <pre>
+ * cache:
+ *   local:
+ *     regions:
+ *       parkingIot:
+ *         max-size: 2000
+ *         ttl-seconds: 300
+ * </pre>
+ * 未配置的区域使用默认值
+ */
+@Component
+@ConfigurationProperties(prefix = "cache.local")
+public class LocalCacheProperties {
+
+    /**
+     * 是否启用本地缓存，关闭后所有读取直接访问 Redis
+     */
+    private boolean enabled = true;
+
+    /**
+     * 默认最大条目数
+     */
+    private long defaultMaxSize = 1000L;
+
+    /**
+     * 默认过期时间（秒），应小于对应 Redis 缓存的过期时间
+     */
+    private long defaultTtlSeconds = 60L;
+
+    /**
+     * 各区域配置，key 为区域名
+     */
+    private Map<String, Region> regions = new HashMap<>();
+
+    public static class Region {
+        private Long maxSize;
+        private Long ttlSeconds;
+
+        public Long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(Long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Long getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public void setTtlSeconds(Long ttlSeconds) {
+            this.ttlSeconds = ttlSeconds;
+        }
+    }
+
+    public long maxSizeOf(String region) {
+        Region config = regions.get(region);
+        return config != null && config.getMaxSize() != null ? config.getMaxSize() : defaultMaxSize;
+    }
+
+    public long ttlSecondsOf(String region) {
+        Region config = regions.get(region);
+        return config != null && config.getTtlSeconds() != null ? config.getTtlSeconds() : defaultTtlSeconds;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getDefaultMaxSize() {
+        return defaultMaxSize;
+    }
+
+    public void setDefaultMaxSize(long defaultMaxSize) {
+        this.defaultMaxSize = defaultMaxSize;
+    }
+
+    public long getDefaultTtlSeconds() {
+        return defaultTtlSeconds;
+    }
+
+    public void setDefaultTtlSeconds(long defaultTtlSeconds) {
+        this.defaultTtlSeconds = defaultTtlSeconds;
+    }
+
+    public Map<String, Region> getRegions() {
+        return regions;
+    }
+
+    public void setRegions(Map<String, Region> regions) {
+        this.regions = regions;
+    }
+}
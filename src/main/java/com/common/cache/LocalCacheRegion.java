@@ -0,0 +1,105 @@
+package com.common.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地缓存区域（一级缓存）
+ * 有界（按条目数淘汰）+ 写入后定时过期，未命中时回源到二级缓存（Redis），并记录回源耗时
+ * 缓存的值是共享对象，调用方不能修改
+ */
+public class LocalCacheRegion {
+
+    private final String name;
+
+    private final long maxSize;
+
+    private final long ttlSeconds;
+
+    private final boolean enabled;
+
+    private final Cache<String, Object> cache;
+
+    /**
+     * 回源（Redis）次数与累计耗时
+     */
+    private final LongAdder remoteLoads = new LongAdder();
+    private final LongAdder remoteNanos = new LongAdder();
+
+    public LocalCacheRegion(String name, long maxSize, long ttlSeconds, boolean enabled) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlSeconds = ttlSeconds;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 先查本地缓存，未命中时调用 remoteLoader 回源，回源结果非 null 时写入本地缓存
+     */
+    public Object get(String key, Function<String, Object> remoteLoader) {
+        if (enabled) {
+            Object value = cache.getIfPresent(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        long start = System.nanoTime();
+        Object value = remoteLoader.apply(key);
+        remoteNanos.add(System.nanoTime() - start);
+        remoteLoads.increment();
+        if (value != null && enabled) {
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    public void put(String key, Object value) {
+        if (enabled && value != null) {
+            cache.put(key, value);
+        }
+    }
+
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 区域统计：命中率、淘汰数、当前条目数、回源次数与平均耗时
+     */
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        long loads = remoteLoads.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("maxSize", maxSize);
+        result.put("ttlSeconds", ttlSeconds);
+        result.put("size", cache.estimatedSize());
+        result.put("requestCount", stats.requestCount());
+        result.put("hitCount", stats.hitCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("remoteLoadCount", loads);
+        result.put("remoteLoadAvgMicros", loads > 0 ? remoteNanos.sum() / loads / 1000 : 0L);
+        return result;
+    }
+}
@@ -1,14 +1,18 @@
 package com.common.config;
 
+import com.common.cache.LocalCacheManager;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -27,10 +31,7 @@ public class RedisConfig {
         template.setConnectionFactory(connectionFactory);
 
         // 使用 Jackson2JsonRedisSerializer 来序列化和反序列化 redis 的 value 值
-        ObjectMapper om = new ObjectMapper();
-        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
-        om.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
-        Jackson2JsonRedisSerializer<Object> jackson2JsonRedisSerializer = new Jackson2JsonRedisSerializer<>(om, Object.class);
+        Jackson2JsonRedisSerializer<Object> jackson2JsonRedisSerializer = valueSerializer();
 
         StringRedisSerializer stringRedisSerializer = new StringRedisSerializer();
 
@@ -46,4 +47,28 @@ public class RedisConfig {
 
         return template;
     }
+
+    /**
+     * Redis value 序列化器（基准测试也通过此方法构造，保证与线上一致）
+     */
+    public static Jackson2JsonRedisSerializer<Object> valueSerializer() {
+        ObjectMapper om = new ObjectMapper();
+        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        om.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        // 支持 LocalDate / LocalDateTime（计费规则、预览结果等缓存对象含时间字段）
+        om.registerModule(new JavaTimeModule());
+        return new Jackson2JsonRedisSerializer<>(om, Object.class);
+    }
+
+    /**
+     * Redis 消息监听容器：订阅本地缓存失效广播
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       LocalCacheManager localCacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(localCacheManager, new ChannelTopic(LocalCacheManager.INVALIDATION_CHANNEL));
+        return container;
+    }
 }
@@ -0,0 +1,12 @@
+package com.common.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务（发件箱分发等）
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,222 @@
+package com.common.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 业务单号生成器（收费订单 CO、充值单 RC 共用）
+ *
+ * 格式：前缀 + yyyyMMddHHmmss + 2位节点号 + 4位序号，与原"前缀 + 14位时间 + 6位随机数"长度一致
+ * 1. 同一节点每秒最多 10000 个序号，用完后等待下一秒，不借用未来的秒：时间部分不超过实际时间，
+ *    节点重启后从当前时间开始分配，不会与重启前的单号重复；单号严格递增
+ * 2. 不同节点节点号不同，因此集群内不会重复（最多 100 个节点）
+ * 3. 序号用 AtomicLong CAS 推进，无锁；时间部分按秒缓存，只在跨秒时重新计算
+ * 4. 系统时钟回拨不超过 MAX_CLOCK_BACKWARD_SECONDS 秒时等待时钟追上，超过时拒绝生成
+ *
+ * 节点号优先取配置 order-no.worker-id（0~99），未配置时启动时从 Redis 自增分配
+ */
+@Slf4j
+@Component
+public class OrderNoGenerator {
+
+    /**
+     * 收费订单号前缀
+     */
+    public static final String CHARGE_ORDER_PREFIX = "CO";
+
+    /**
+     * 充值单号前缀
+     */
+    public static final String RECHARGE_PREFIX = "RC";
+
+    static final int MAX_WORKERS = 100;
+
+    static final int SEQUENCE_PER_SECOND = 10000;
+
+    /**
+     * 可等待的最大时钟回拨秒数
+     */
+    static final long MAX_CLOCK_BACKWARD_SECONDS = 5L;
+
+    private static final String WORKER_SEQ_KEY = "order-no:worker:seq";
+
+    private static final int TIME_DIGITS = 14;
+
+    private final int workerId;
+
+    private final LongSupplier epochMilliClock;
+
+    /**
+     * 等待指定毫秒数（测试中替换为推进模拟时钟）
+     */
+    private final LongConsumer sleeper;
+
+    private final ZoneId zoneId = ZoneId.systemDefault();
+
+    /**
+     * 最近一次分配的 秒 * SEQUENCE_PER_SECOND + 序号
+     */
+    private final AtomicLong lastIssued = new AtomicLong();
+
+    /**
+     * 最近一秒的时间部分缓存
+     */
+    private volatile TimeDigits timeDigits = new TimeDigits(Long.MIN_VALUE, null);
+
+    private static final class TimeDigits {
+        private final long second;
+        private final char[] digits;
+
+        private TimeDigits(long second, char[] digits) {
+            this.second = second;
+            this.digits = digits;
+        }
+    }
+
+    @Autowired
+    public OrderNoGenerator(RedisService redisService, @Value("${order-no.worker-id:-1}") int workerId) {
+        this(workerId >= 0 ? checkWorkerId(workerId) : allocateWorkerId(redisService),
+                System::currentTimeMillis, OrderNoGenerator::sleep);
+    }
+
+    OrderNoGenerator(int workerId, LongSupplier epochMilliClock, LongConsumer sleeper) {
+        this.workerId = checkWorkerId(workerId);
+        this.epochMilliClock = epochMilliClock;
+        this.sleeper = sleeper;
+        log.info("业务单号生成器初始化: workerId={}", this.workerId);
+    }
+
+    /**
+     * 生成收费订单号：CO + yyyyMMddHHmmss + 6位
+     */
+    public String nextChargeOrderNo() {
+        return next(CHARGE_ORDER_PREFIX);
+    }
+
+    /**
+     * 生成充值单号：RC + yyyyMMddHHmmss + 6位
+     */
+    public String nextRechargeNo() {
+        return next(RECHARGE_PREFIX);
+    }
+
+    /**
+     * 生成 前缀 + yyyyMMddHHmmss + 2位节点号 + 4位序号
+     */
+    public String next(String prefix) {
+        long issued = nextIssued();
+        long second = issued / SEQUENCE_PER_SECOND;
+        int sequence = (int) (issued % SEQUENCE_PER_SECOND);
+
+        int prefixLength = prefix.length();
+        char[] chars = new char[prefixLength + TIME_DIGITS + 6];
+        prefix.getChars(0, prefixLength, chars, 0);
+        System.arraycopy(timeDigits(second), 0, chars, prefixLength, TIME_DIGITS);
+        int pos = prefixLength + TIME_DIGITS;
+        pos = putDigits(chars, pos, workerId, 2);
+        putDigits(chars, pos, sequence, 4);
+        return new String(chars);
+    }
+
+    public int getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * 分配下一个 秒 * SEQUENCE_PER_SECOND + 序号，秒不超过当前时间
+     * 时钟未前进时在上一个值基础上递增；本秒序号用完或时钟回拨时等待时钟追上，而不是借用未来的秒
+     */
+    private long nextIssued() {
+        while (true) {
+            long nowMillis = epochMilliClock.getAsLong();
+            long nowSecond = Math.floorDiv(nowMillis, 1000L);
+            long prev = lastIssued.get();
+            long next = Math.max(nowSecond * SEQUENCE_PER_SECOND, prev + 1);
+            long second = next / SEQUENCE_PER_SECOND;
+            if (second <= nowSecond) {
+                if (lastIssued.compareAndSet(prev, next)) {
+                    return next;
+                }
+                continue;
+            }
+            if (second - nowSecond > MAX_CLOCK_BACKWARD_SECONDS) {
+                throw new IllegalStateException("系统时钟回拨超过" + MAX_CLOCK_BACKWARD_SECONDS
+                        + "秒，暂停生成业务单号: lastSecond=" + prev / SEQUENCE_PER_SECOND + ", nowSecond=" + nowSecond);
+            }
+            sleeper.accept(second * 1000L - nowMillis);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待生成业务单号时被中断", e);
+        }
+    }
+
+    private char[] timeDigits(long second) {
+        TimeDigits cached = timeDigits;
+        if (cached.second == second) {
+            return cached.digits;
+        }
+        ZoneOffset offset = zoneId.getRules().getOffset(Instant.ofEpochSecond(second));
+        LocalDateTime time = LocalDateTime.ofEpochSecond(second, 0, offset);
+        char[] digits = new char[TIME_DIGITS];
+        int pos = putDigits(digits, 0, time.getYear(), 4);
+        pos = putDigits(digits, pos, time.getMonthValue(), 2);
+        pos = putDigits(digits, pos, time.getDayOfMonth(), 2);
+        pos = putDigits(digits, pos, time.getHour(), 2);
+        pos = putDigits(digits, pos, time.getMinute(), 2);
+        putDigits(digits, pos, time.getSecond(), 2);
+        // 并发跨秒时各线程各自计算，结果相同，最后写入者生效即可
+        timeDigits = new TimeDigits(second, digits);
+        return digits;
+    }
+
+    /**
+     * 把 value 按固定位数（左补 0）写入 chars，返回写入后的位置
+     */
+    private static int putDigits(char[] chars, int pos, int value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + width;
+    }
+
+    private static int checkWorkerId(int workerId) {
+        if (workerId < 0 || workerId >= MAX_WORKERS) {
+            throw new IllegalArgumentException("order-no.worker-id 取值范围为 0~" + (MAX_WORKERS - 1) + ": " + workerId);
+        }
+        return workerId;
+    }
+
+    /**
+     * 未配置节点号时从 Redis 自增分配；Redis 不可用时随机选取（此时无法保证跨节点唯一）
+     */
+    private static int allocateWorkerId(RedisService redisService) {
+        try {
+            long seq = redisService.incr(WORKER_SEQ_KEY, 1);
+            int workerId = (int) Math.floorMod(seq, (long) MAX_WORKERS);
+            log.warn("未配置 order-no.worker-id，从 Redis 分配节点号: {}（生产环境建议为每个节点显式配置）", workerId);
+            return workerId;
+        } catch (Exception e) {
+            int workerId = ThreadLocalRandom.current().nextInt(MAX_WORKERS);
+            log.error("从 Redis 分配业务单号节点号失败，随机使用: {}", workerId, e);
+            return workerId;
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.common.utils;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Component;
 
@@ -403,6 +406,66 @@ public class RedisService {
         }
     }
 
+    /**
+     * 批量获取多张hash表中的项（管道一次往返）
+     *
+     * @param keys  键列表
+     * @param items 与 keys 一一对应的项
+     * @return 与 keys 一一对应的值列表，不存在的对应 null
+     */
+    public List<Object> hgetPipelined(List<String> keys, List<String> items) {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (int i = 0; i < keys.size(); i++) {
+                    ops.opsForHash().get(keys.get(i), items.get(i));
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 批量向多张hash表中放入数据并设置时间（管道一次往返）
+     *
+     * @param keys   键列表
+     * @param items  与 keys 一一对应的项
+     * @param values 与 keys 一一对应的值
+     * @param times  与 keys 一一对应的时间(秒) 小于等于0 不设置过期时间
+     * @return true成功 false失败
+     */
+    public boolean hsetPipelined(List<String> keys, List<String> items, List<Object> values, long[] times) {
+        try {
+            if (keys == null || keys.isEmpty()) {
+                return false;
+            }
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    for (int i = 0; i < keys.size(); i++) {
+                        Object value = values.get(i) != null ? values.get(i) : "";
+                        ops.opsForHash().put(keys.get(i), items.get(i), value);
+                        if (times[i] > 0) {
+                            ops.expire(keys.get(i), times[i], TimeUnit.SECONDS);
+                        }
+                    }
+                    return null;
+                }
+            });
+            return true;
+        } catch (Exception e) {
+            log.error("批量设置Hash项缓存失败: size={}", keys.size(), e);
+            return false;
+        }
+    }
+
     /**
      * 删除hash表中的值
      *
@@ -0,0 +1,91 @@
+package com.common.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 同 key 并发请求合并（单 JVM 内）
+ * 同一 key 同一时刻只有一个调用者（leader）真正执行任务，其余并发调用者等待并共享 leader 的结果或异常；
+ * 任务结束后 key 立即释放，之后的调用重新执行
+ *
+ * @param <K> key 类型
+ * @param <V> 结果类型
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 真正执行任务的次数
+     */
+    private final LongAdder executions = new LongAdder();
+
+    /**
+     * 被合并（共享结果、未执行任务）的调用次数
+     */
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * 执行任务；同 key 已有任务在执行时等待其结果
+     * 任务抛出的 RuntimeException / Error 原样抛给所有等待者
+     */
+    public V execute(K key, Supplier<V> task) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        executions.increment();
+        try {
+            V value = task.get();
+            created.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * 统计：执行次数、合并次数、当前进行中的 key 数
+     */
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("executions", executions.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("inFlight", (long) inFlight.size());
+        return stats;
+    }
+}
@@ -0,0 +1,40 @@
+package com.inout.controller;
+
+import com.common.result.Result;
+import com.inout.entity.DTO.GateEventDTO;
+import com.inout.service.GateEventService;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 道闸过车事件接入接口：入队后立即返回，入场记录 / 出场结算由后台按车场顺序处理
+ */
+@RestController
+@RequestMapping("/api/gate/events")
+public class GateEventController {
+
+    private final GateEventService gateEventService;
+
+    public GateEventController(GateEventService gateEventService) {
+        this.gateEventService = gateEventService;
+    }
+
+    /**
+     * 上报一批过车事件（可以只有一条）
+     * 返回被拒绝（分区队列已满）的事件下标，设备应稍后按原顺序重报这些事件
+     */
+    @PostMapping
+    public Result<Map<String, Object>> submit(@RequestBody List<GateEventDTO> events) {
+        return Result.success(gateEventService.submit(events));
+    }
+
+    /**
+     * 各分区积压深度与队首等待时间
+     */
+    @GetMapping("/stats")
+    public Result<Map<String, Object>> stats() {
+        return Result.success(gateEventService.stats());
+    }
+}
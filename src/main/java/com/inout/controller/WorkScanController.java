@@ -1,15 +1,21 @@
 package com.inout.controller;
 
-import com.parking.entity.ParkingRecord;
-import com.parking.mapper.ParkingRecordMapper;
 import com.common.exception.BusinessException;
 import com.common.result.Result;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import com.inout.entity.DTO.ScanReportRequest;
 import com.inout.entity.DTO.ScannedCarDTO;
+import com.inout.service.WorkScanService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.*;
+import java.util.Iterator;
+import java.util.Map;
 
 /**
  * 工作端巡检接口：根据扫描结果自动推算入场 / 出场
@@ -18,108 +24,73 @@ import java.util.*;
 @RequestMapping("/api/work/scan")
 public class WorkScanController {
 
-    private final ParkingRecordMapper parkingRecordMapper;
+    /**
+     * 流式上报的请求体类型：每行一个 ScannedCarDTO（也接受空白分隔的连续 JSON 对象）
+     */
+    private static final String NDJSON = "application/x-ndjson";
 
-    public WorkScanController(ParkingRecordMapper parkingRecordMapper) {
-        this.parkingRecordMapper = parkingRecordMapper;
+    private final WorkScanService workScanService;
+    private final ObjectMapper objectMapper;
+
+    public WorkScanController(WorkScanService workScanService, ObjectMapper objectMapper) {
+        this.workScanService = workScanService;
+        this.objectMapper = objectMapper;
     }
 
     /**
      * 巡检上报接口：
      * 1. 本次扫描看到的车中，新的车 -> 生成入场记录
      * 2. 上次还在场，这次没看到的车 -> 认为已离场，补出场时间
+     * 整个上报在一个事务里批量写入，见 WorkScanServiceImpl
      */
     @PostMapping("/report")
     public Result<Map<String, Object>> report(@RequestBody ScanReportRequest request) {
-        // 1. 基本校验
-        if (request.getZoneId() == null) {
-            throw new BusinessException("zoneId(路段ID)不能为空");
-        }
-        if (request.getScanTime() == null) {
-            throw new BusinessException("scanTime(扫描时间)不能为空");
-        }
-        if (request.getCars() == null) {
-            throw new BusinessException("cars(车辆列表)不能为空");
-        }
-
-        Long zoneId = request.getZoneId();
-        LocalDateTime scanTime = request.getScanTime();
-        List<ScannedCarDTO> cars = request.getCars();
-
-        // 2. 取当前扫描的车牌集合
-        Set<String> currentPlateSet = new HashSet<>();
-        for (ScannedCarDTO car : cars) {
-            if (car.getPlateNumber() != null && !car.getPlateNumber().isEmpty()) {
-                currentPlateSet.add(car.getPlateNumber());
-            }
-        }
-
-        // 3. 查询当前路段所有“在场”的记录
-        List<ParkingRecord> currentRecords = parkingRecordMapper.selectCurrentByParkingIotId(zoneId);
-        Map<String, ParkingRecord> plateToRecord = new HashMap<>();
-        for (ParkingRecord record : currentRecords) {
-            if (record.getPlateNumber() != null) {
-                plateToRecord.put(record.getPlateNumber(), record);
-            }
-        }
-
-        int newInCount = 0;
-        int leaveCount = 0;
+        return Result.success(workScanService.report(request));
+    }
 
-        // 4. 处理“消失的车” -> 出场（从在场列表里有，但本次扫描没看到）
-        for (ParkingRecord record : currentRecords) {
-            String plate = record.getPlateNumber();
-            if (!currentPlateSet.contains(plate)) {
-                // 认为这辆车已经离场，补出场时间
-                record.setOutTime(scanTime);
-                record.setStatus("FINISHED");
-                parkingRecordMapper.updateById(record);
-                leaveCount++;
-            }
+    /**
+     * 流式巡检上报（扫描车大路段上报）：路段、扫描时间等放在查询参数里，请求体为 NDJSON，可分块传输
+     * 车辆边读边处理，不会整体加载到内存；入场 / 离场判断与 /report 相同，请求体读完后结算离场
+     */
+    @PostMapping(value = "/report/stream", consumes = NDJSON)
+    public Result<Map<String, Object>> reportStream(
+            @RequestParam("zoneId") Long zoneId,
+            @RequestParam("scanTime") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime scanTime,
+            @RequestParam(value = "inspectorName", required = false) String inspectorName,
+            HttpServletRequest request) throws IOException {
+        try (MappingIterator<ScannedCarDTO> cars = objectMapper.readerFor(ScannedCarDTO.class)
+                .readValues(request.getInputStream())) {
+            return Result.success(workScanService.reportStream(zoneId, scanTime, inspectorName, lines(cars)));
         }
+    }
 
-        // 5. 处理“新出现的车” -> 入场（本次扫描看到，但之前不在场）
-        for (ScannedCarDTO car : cars) {
-            String plate = car.getPlateNumber();
-            if (plate == null || plate.isEmpty()) {
-                continue;
-            }
-            // 之前已经在场的车，不需要新建记录
-            if (plateToRecord.containsKey(plate)) {
-                continue;
+    /**
+     * 把逐行解析错误转换为业务异常（带行号）
+     */
+    private static Iterator<ScannedCarDTO> lines(MappingIterator<ScannedCarDTO> cars) {
+        return new Iterator<ScannedCarDTO>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return cars.hasNext();
+                } catch (RuntimeJsonMappingException e) {
+                    throw invalidLine(cars, e);
+                }
             }
 
-            // 新车 -> 创建入场记录
-            ParkingRecord newRecord = new ParkingRecord();
-            newRecord.setPlateNumber(plate);
-            newRecord.setParkingIotId(zoneId);
-            newRecord.setInTime(scanTime);
-            newRecord.setOutTime(null);
-            newRecord.setPaidAmount(null);
-            newRecord.setStatus("IN");
-
-            // 备注里可以带上车位和巡检人信息
-            StringBuilder remark = new StringBuilder("工作端巡检入场");
-            if (car.getSlotNo() != null && !car.getSlotNo().isEmpty()) {
-                remark.append("，车位：").append(car.getSlotNo());
+            @Override
+            public ScannedCarDTO next() {
+                try {
+                    return cars.next();
+                } catch (RuntimeJsonMappingException e) {
+                    throw invalidLine(cars, e);
+                }
             }
-            if (request.getInspectorName() != null && !request.getInspectorName().isEmpty()) {
-                remark.append("，巡检人：").append(request.getInspectorName());
-            }
-            newRecord.setRemark(remark.toString());
-
-            parkingRecordMapper.insert(newRecord);
-            newInCount++;
-        }
-
-        // 6. 返回本次处理的简单统计
-        Map<String, Object> data = new HashMap<>();
-        data.put("zoneId", zoneId);
-        data.put("scanTime", scanTime);
-        data.put("newInCount", newInCount);
-        data.put("leaveCount", leaveCount);
-        data.put("currentScanCarCount", currentPlateSet.size());
+        };
+    }
 
-        return Result.success(data);
+    private static BusinessException invalidLine(MappingIterator<ScannedCarDTO> cars, RuntimeException e) {
+        return new BusinessException("车辆数据格式错误，第" + cars.getCurrentLocation().getLineNr() + "行: "
+                + e.getMessage());
     }
-}
\ No newline at end of file
+}
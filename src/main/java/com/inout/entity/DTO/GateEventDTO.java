@@ -0,0 +1,96 @@
+package com.inout.entity.DTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * 道闸过车事件（入场 / 出场），由道闸、相机等设备上报
+ */
+public class GateEventDTO {
+
+    public static final String TYPE_ENTRY = "ENTRY";
+    public static final String TYPE_EXIT = "EXIT";
+
+    /**
+     * 事件类型（必填）：ENTRY 入场 / EXIT 出场
+     */
+    private String type;
+
+    /**
+     * 车场 / 路段ID（必填），同一车场的事件按上报顺序处理
+     */
+    private Long parkingIotId;
+
+    /**
+     * 车牌号（必填）
+     */
+    private String plateNumber;
+
+    /**
+     * 过车时间（必填），入场事件为入场时间，出场事件为出场时间
+     */
+    private LocalDateTime eventTime;
+
+    /**
+     * 车辆类型（可选，入场事件写入入场记录 vehicle_type，出场结算按该车型匹配计费规则）
+     */
+    private String vehicleType;
+
+    /**
+     * 用户ID（可选，出场事件用于会员优惠）
+     */
+    private Long userId;
+
+    /**
+     * 优惠规则编码（可选，出场事件使用）
+     */
+    private String discountRuleCode;
+
+    public String getType() {
+        return type;
+    }
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getParkingIotId() {
+        return parkingIotId;
+    }
+    public void setParkingIotId(Long parkingIotId) {
+        this.parkingIotId = parkingIotId;
+    }
+
+    public String getPlateNumber() {
+        return plateNumber;
+    }
+    public void setPlateNumber(String plateNumber) {
+        this.plateNumber = plateNumber;
+    }
+
+    public LocalDateTime getEventTime() {
+        return eventTime;
+    }
+    public void setEventTime(LocalDateTime eventTime) {
+        this.eventTime = eventTime;
+    }
+
+    public String getVehicleType() {
+        return vehicleType;
+    }
+    public void setVehicleType(String vehicleType) {
+        this.vehicleType = vehicleType;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getDiscountRuleCode() {
+        return discountRuleCode;
+    }
+    public void setDiscountRuleCode(String discountRuleCode) {
+        this.discountRuleCode = discountRuleCode;
+    }
+}
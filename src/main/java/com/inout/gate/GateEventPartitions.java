@@ -0,0 +1,212 @@
+package com.inout.gate;
+
+import com.inout.entity.DTO.GateEventDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 按车场分区的过车事件内存队列
+ * 事件按 parkingIotId 散列到固定分区，每个分区一个有界队列和一个专属工作线程：
+ * 同一车场的事件总在同一分区、由同一线程按接收顺序处理，不同车场在不同分区上并行
+ *
+ * 队列满时 offer 立即返回 false，由调用方拒绝该事件；处理抛出的异常只记录日志和计数，不影响后续事件。
+ * 事件只在内存中，进程退出时 shutdown 会在等待时间内处理完积压，仍未处理的事件丢弃并记录日志
+ *
+ * 指标：gate.ingest.queue.depth、gate.ingest.oldest.age（分区队首事件已等待的毫秒数）按 partition 标签；
+ * gate.ingest.lag（接收到开始处理）、gate.ingest.process（处理耗时）、gate.ingest.failed
+ */
+@Slf4j
+public class GateEventPartitions {
+
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(30);
+
+    private final Partition[] partitions;
+    private final Consumer<GateEventDTO> handler;
+    private final Timer lagTimer;
+    private final Timer processTimer;
+    private final Counter failedCounter;
+    private volatile boolean running;
+
+    public GateEventPartitions(int partitionCount, int queueCapacity, Consumer<GateEventDTO> handler,
+                               MeterRegistry meterRegistry) {
+        this.handler = handler;
+        this.partitions = new Partition[Math.max(1, partitionCount)];
+        for (int i = 0; i < partitions.length; i++) {
+            Partition partition = new Partition(i, Math.max(1, queueCapacity));
+            partitions[i] = partition;
+            String tag = String.valueOf(i);
+            Gauge.builder("gate.ingest.queue.depth", partition, p -> p.queue.size())
+                    .description("分区内等待处理的过车事件数")
+                    .tag("partition", tag)
+                    .register(meterRegistry);
+            Gauge.builder("gate.ingest.oldest.age", partition, Partition::headAgeMillis)
+                    .description("分区队首事件已等待的时间")
+                    .tag("partition", tag)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+        }
+        this.lagTimer = timer("gate.ingest.lag", "过车事件从接收到开始处理的等待时间", meterRegistry);
+        this.processTimer = timer("gate.ingest.process", "单个过车事件的处理耗时", meterRegistry);
+        this.failedCounter = Counter.builder("gate.ingest.failed")
+                .description("处理失败的过车事件数")
+                .register(meterRegistry);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (Partition partition : partitions) {
+            Thread worker = new Thread(() -> drain(partition), "gate-ingest-" + partition.index);
+            worker.setDaemon(true);
+            partition.worker = worker;
+            worker.start();
+        }
+    }
+
+    /**
+     * 事件进入所属车场的分区，不阻塞
+     *
+     * @return 分区队列已满或已关闭时返回 false
+     */
+    public boolean offer(GateEventDTO event) {
+        if (!running) {
+            return false;
+        }
+        return partitions[partitionOf(event.getParkingIotId())].queue.offer(new Entry(event));
+    }
+
+    public int partitionOf(Long parkingIotId) {
+        // 车场ID通常连续，先打散再取模
+        long h = parkingIotId * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(h ^ (h >>> 32), (long) partitions.length);
+    }
+
+    public int partitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * 各分区积压与处理情况：partition、depth、oldestAgeMillis、processed
+     */
+    public List<Map<String, Object>> stats() {
+        List<Map<String, Object>> stats = new ArrayList<>(partitions.length);
+        for (Partition partition : partitions) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("partition", partition.index);
+            item.put("depth", partition.queue.size());
+            item.put("oldestAgeMillis", (long) partition.headAgeMillis());
+            item.put("processed", partition.processed.sum());
+            stats.add(item);
+        }
+        return stats;
+    }
+
+    /**
+     * 停止接收新事件，在 awaitMillis 内处理完积压后停止工作线程
+     */
+    public void shutdown(long awaitMillis) {
+        synchronized (this) {
+            running = false;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(awaitMillis);
+        for (Partition partition : partitions) {
+            Thread worker = partition.worker;
+            if (worker == null) {
+                continue;
+            }
+            try {
+                worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            worker.interrupt();
+        }
+        for (Partition partition : partitions) {
+            int dropped = partition.queue.size();
+            partition.queue.clear();
+            if (dropped > 0) {
+                log.warn("过车事件分区关闭时仍有未处理事件，已丢弃: partition={}, count={}", partition.index, dropped);
+            }
+        }
+    }
+
+    private void drain(Partition partition) {
+        while (running || !partition.queue.isEmpty()) {
+            Entry entry;
+            try {
+                entry = partition.queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (entry == null) {
+                continue;
+            }
+            long start = System.nanoTime();
+            lagTimer.record(start - entry.acceptedAt, TimeUnit.NANOSECONDS);
+            try {
+                handler.accept(entry.event);
+            } catch (Throwable e) {
+                failedCounter.increment();
+                GateEventDTO event = entry.event;
+                log.warn("过车事件处理失败: type={}, parkingIotId={}, plate={}, eventTime={}, error={}",
+                        event.getType(), event.getParkingIotId(), event.getPlateNumber(), event.getEventTime(),
+                        e.getMessage());
+            } finally {
+                processTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                partition.processed.increment();
+            }
+        }
+    }
+
+    private static Timer timer(String name, String description, MeterRegistry meterRegistry) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(meterRegistry);
+    }
+
+    private static final class Partition {
+        private final int index;
+        private final ArrayBlockingQueue<Entry> queue;
+        private final LongAdder processed = new LongAdder();
+        private volatile Thread worker;
+
+        private Partition(int index, int capacity) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private double headAgeMillis() {
+            Entry head = queue.peek();
+            return head == null ? 0D : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - head.acceptedAt);
+        }
+    }
+
+    private static final class Entry {
+        private final GateEventDTO event;
+        private final long acceptedAt = System.nanoTime();
+
+        private Entry(GateEventDTO event) {
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.inout.presence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 车牌近似匹配索引（容忍 OCR 误识别）
+ *
+ * 距离为带权编辑距离，以半步计：易混字符互换（0/O、8/B、2/Z）1，其他替换、插入、删除 2，
+ * 距离不超过 2 视为同一车牌，即一次任意编辑，或两处易混字符互换。
+ *
+ * 索引为删除邻域：每个车牌先把易混字符归一（O->0、B->8、Z->2），再登记归一后的车牌及其每个删除一个字符的变体；
+ * 查询时用查询车牌的同样变体取候选，再逐个计算精确距离。车牌只有 7~8 个字符，一次查询约十次哈希查找，
+ * 与索引中的车牌数基本无关；构建开销与车牌数成正比（每个车牌约十个变体），调用方负责限制车牌数
+ */
+public final class FuzzyPlateIndex {
+
+    /**
+     * 视为同一车牌的最大距离（半步）
+     */
+    static final int MAX_COST = 2;
+
+    private static final int CONFUSABLE_COST = 1;
+    private static final int EDIT_COST = 2;
+
+    private final Map<String, List<String>> variants = new HashMap<>();
+
+    public FuzzyPlateIndex(Collection<String> plates) {
+        for (String plate : plates) {
+            for (String key : keys(plate)) {
+                List<String> bucket = variants.computeIfAbsent(key, k -> new ArrayList<>(1));
+                if (!bucket.contains(plate)) {
+                    bucket.add(plate);
+                }
+            }
+        }
+    }
+
+    /**
+     * 查找与 plate 近似的唯一车牌
+     *
+     * @return 距离最小且唯一的车牌；没有或有多个同样近的车牌时返回 null（宁可新建入场，也不合并两辆车）
+     */
+    public String match(String plate) {
+        String best = null;
+        int bestCost = MAX_COST + 1;
+        boolean ambiguous = false;
+        for (String key : keys(plate)) {
+            List<String> bucket = variants.get(key);
+            if (bucket == null) {
+                continue;
+            }
+            for (String candidate : bucket) {
+                if (candidate.equals(best)) {
+                    continue;
+                }
+                int cost = distance(plate, candidate);
+                if (cost < bestCost) {
+                    best = candidate;
+                    bestCost = cost;
+                    ambiguous = false;
+                } else if (cost == bestCost && cost <= MAX_COST) {
+                    ambiguous = true;
+                }
+            }
+        }
+        return ambiguous ? null : best;
+    }
+
+    /**
+     * 把本次新出现的车牌纠正为本次未扫到的在场车牌
+     * 同一在场车牌被多个新车牌匹配时都不纠正
+     *
+     * @param arrivedPlates 扫到但不在场的车牌
+     * @param unseenPlates  在场但本次未扫到的车牌
+     * @return 新车牌 -> 在场车牌
+     */
+    public static Map<String, String> correct(Collection<String> arrivedPlates, Collection<String> unseenPlates) {
+        Map<String, String> corrections = new LinkedHashMap<>();
+        if (arrivedPlates.isEmpty() || unseenPlates.isEmpty()) {
+            return corrections;
+        }
+        FuzzyPlateIndex index = new FuzzyPlateIndex(unseenPlates);
+        Map<String, Integer> claims = new HashMap<>();
+        for (String plate : arrivedPlates) {
+            String match = index.match(plate);
+            if (match != null) {
+                corrections.put(plate, match);
+                claims.merge(match, 1, Integer::sum);
+            }
+        }
+        corrections.values().removeIf(match -> claims.get(match) > 1);
+        return corrections;
+    }
+
+    /**
+     * 带权编辑距离（半步），超过 MAX_COST 时提前返回
+     */
+    static int distance(String a, String b) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) * EDIT_COST > MAX_COST) {
+            return MAX_COST + 1;
+        }
+        int[] prev = new int[m + 1];
+        int[] curr = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            prev[j] = j * EDIT_COST;
+        }
+        for (int i = 1; i <= n; i++) {
+            curr[0] = i * EDIT_COST;
+            int rowMin = curr[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int sub = ca == cb ? 0 : (canonical(ca) == canonical(cb) ? CONFUSABLE_COST : EDIT_COST);
+                int cost = Math.min(prev[j - 1] + sub, Math.min(prev[j], curr[j - 1]) + EDIT_COST);
+                curr[j] = cost;
+                rowMin = Math.min(rowMin, cost);
+            }
+            if (rowMin > MAX_COST) {
+                return MAX_COST + 1;
+            }
+            int[] tmp = prev;
+            prev = curr;
+            curr = tmp;
+        }
+        return prev[m];
+    }
+
+    /**
+     * 归一后的车牌及其每个删除一个字符的变体
+     */
+    private static List<String> keys(String plate) {
+        char[] chars = plate.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = canonical(chars[i]);
+        }
+        String normalized = new String(chars);
+        List<String> keys = new ArrayList<>(chars.length + 1);
+        keys.add(normalized);
+        for (int i = 0; i < chars.length; i++) {
+            keys.add(normalized.substring(0, i) + normalized.substring(i + 1));
+        }
+        return keys;
+    }
+
+    /**
+     * 易混字符归一：O->0、B->8、Z->2
+     */
+    private static char canonical(char c) {
+        switch (c) {
+            case 'O':
+                return '0';
+            case 'B':
+                return '8';
+            case 'Z':
+                return '2';
+            default:
+                return c;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.inout.presence;
+
+import com.parking.entity.ParkingRecord;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一次巡检与路段在场车辆的差异
+ * - 离场：连续未扫到达到阈值的车牌，及其在场记录ID和出场时间（最后一次扫到的时间）；
+ * - 疑似离场：本次未扫到但未达到阈值，仍保持在场；
+ * - 恢复：之前疑似离场、本次又扫到的车牌数（每辆省去一次出场更新和一次重新入场插入）；
+ * - 入场：扫到但不在场的车牌
+ * 另带本次巡检之后的离场迟滞状态，供下一次巡检使用
+ */
+public final class ZoneDiff {
+
+    private final List<String> departedPlates;
+    private final List<Long> departedRecordIds;
+    private final List<LocalDateTime> departedOutTimes;
+    private final List<String> arrivedPlates;
+    private final List<String> missingPlates;
+    private final int recoveredCount;
+    private final ZoneMisses misses;
+
+    /**
+     * @param departedOutTimes 与 departedRecordIds 一一对应
+     */
+    public ZoneDiff(List<String> departedPlates, List<Long> departedRecordIds, List<LocalDateTime> departedOutTimes,
+                    List<String> arrivedPlates, List<String> missingPlates, int recoveredCount) {
+        this(departedPlates, departedRecordIds, departedOutTimes, arrivedPlates, missingPlates, recoveredCount,
+                ZoneMisses.empty());
+    }
+
+    /**
+     * @param departedOutTimes 与 departedRecordIds 一一对应
+     * @param misses           本次巡检之后的离场迟滞状态
+     */
+    public ZoneDiff(List<String> departedPlates, List<Long> departedRecordIds, List<LocalDateTime> departedOutTimes,
+                    List<String> arrivedPlates, List<String> missingPlates, int recoveredCount, ZoneMisses misses) {
+        this.departedPlates = departedPlates;
+        this.departedRecordIds = departedRecordIds;
+        this.departedOutTimes = departedOutTimes;
+        this.arrivedPlates = arrivedPlates;
+        this.missingPlates = missingPlates;
+        this.recoveredCount = recoveredCount;
+        this.misses = misses;
+    }
+
+    /**
+     * 由数据库中的在场记录计算差异，没有离场迟滞状态（每个未扫到的车牌都算第一次未扫到）
+     */
+    public static ZoneDiff compute(List<ParkingRecord> currentRecords, Collection<String> scannedPlates,
+                                   LocalDateTime scanTime, int missThreshold) {
+        return compute(currentRecords, scannedPlates, scanTime, missThreshold, ZoneMisses.empty());
+    }
+
+    /**
+     * 由数据库中的在场记录和上一次的离场迟滞状态计算差异（在场集合未加载或 Redis 不可用时使用）
+     * 规则与 Redis 中一致：未扫到的车牌连续未扫到次数加一，达到阈值时离场，出场时间为最后一次扫到的时间
+     * （第一次未扫到时即上一次巡检时间，没有巡检记录时为本次巡检时间）；又扫到的疑似离场车牌计为恢复；
+     * 车牌为空的记录不会被扫到，直接离场（出场时间为本次巡检时间）
+     *
+     * @param currentRecords 路段 status='IN' 的记录
+     * @param scannedPlates  本次扫描的车牌（已去重、非空）
+     * @param missThreshold  连续未扫到多少次判定离场
+     * @param previous       上一次巡检之后的离场迟滞状态
+     */
+    public static ZoneDiff compute(List<ParkingRecord> currentRecords, Collection<String> scannedPlates,
+                                   LocalDateTime scanTime, int missThreshold, ZoneMisses previous) {
+        Set<String> scanned = scannedPlates instanceof Set ? (Set<String>) scannedPlates : new HashSet<>(scannedPlates);
+        LocalDateTime firstMissSeen = previous.getLastScan() != null ? previous.getLastScan() : scanTime;
+        Set<String> present = new HashSet<>();
+        Map<String, ZoneMisses.Miss> nextMisses = new LinkedHashMap<>();
+        Map<String, LocalDateTime> departedAt = new HashMap<>();
+        List<String> departedPlates = new ArrayList<>();
+        List<Long> departedIds = new ArrayList<>();
+        List<LocalDateTime> departedOutTimes = new ArrayList<>();
+        for (ParkingRecord record : currentRecords) {
+            String plate = record.getPlateNumber();
+            if (plate == null) {
+                departedIds.add(record.getId());
+                departedOutTimes.add(scanTime);
+                continue;
+            }
+            present.add(plate);
+            if (scanned.contains(plate)) {
+                continue;
+            }
+            // 同一车牌多条在场记录只判定一次
+            LocalDateTime outTime = departedAt.get(plate);
+            if (outTime == null && !nextMisses.containsKey(plate)) {
+                ZoneMisses.Miss before = previous.get(plate);
+                int count = before != null ? before.getCount() + 1 : 1;
+                LocalDateTime seen = before != null ? before.getLastSeen() : firstMissSeen;
+                if (count >= missThreshold) {
+                    outTime = seen;
+                    departedAt.put(plate, seen);
+                    departedPlates.add(plate);
+                } else {
+                    nextMisses.put(plate, new ZoneMisses.Miss(count, seen));
+                }
+            }
+            if (outTime != null) {
+                departedIds.add(record.getId());
+                departedOutTimes.add(outTime);
+            }
+        }
+        int recovered = 0;
+        for (String plate : previous.getMisses().keySet()) {
+            if (scanned.contains(plate) && present.contains(plate)) {
+                recovered++;
+            }
+        }
+        List<String> arrived = new ArrayList<>();
+        for (String plate : scannedPlates) {
+            if (!present.contains(plate)) {
+                arrived.add(plate);
+            }
+        }
+        return new ZoneDiff(departedPlates, departedIds, departedOutTimes, arrived,
+                new ArrayList<>(nextMisses.keySet()), recovered, new ZoneMisses(nextMisses, scanTime));
+    }
+
+    /**
+     * 离场记录按出场时间分组（同一出场时间一条 UPDATE）
+     */
+    public Map<LocalDateTime, List<Long>> departuresByOutTime() {
+        Map<LocalDateTime, List<Long>> grouped = new LinkedHashMap<>();
+        for (int i = 0; i < departedRecordIds.size(); i++) {
+            grouped.computeIfAbsent(departedOutTimes.get(i), k -> new ArrayList<>()).add(departedRecordIds.get(i));
+        }
+        return grouped;
+    }
+
+    public List<String> getDepartedPlates() {
+        return departedPlates;
+    }
+
+    public List<Long> getDepartedRecordIds() {
+        return departedRecordIds;
+    }
+
+    public List<LocalDateTime> getDepartedOutTimes() {
+        return departedOutTimes;
+    }
+
+    public List<String> getArrivedPlates() {
+        return arrivedPlates;
+    }
+
+    public List<String> getMissingPlates() {
+        return missingPlates;
+    }
+
+    public int getRecoveredCount() {
+        return recoveredCount;
+    }
+
+    public ZoneMisses getMisses() {
+        return misses;
+    }
+}
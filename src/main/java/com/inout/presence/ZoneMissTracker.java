@@ -0,0 +1,55 @@
+package com.inout.presence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内的路段离场迟滞状态，Redis（ZonePresenceStore）为共享备份
+ * 每次巡检计算差异后记录本次之后的状态；数据库兜底时取 Redis 与进程内较新的一份，
+ * Redis 不可用时只用进程内状态，连续未扫到的车辆照常按阈值离场，不会因 Redis 故障一直停留在场
+ * 每个路段只保留最新一份状态，条目数不超过路段数
+ */
+@Slf4j
+@Component
+public class ZoneMissTracker {
+
+    private final ZonePresenceStore zonePresenceStore;
+
+    private final Map<Long, ZoneMisses> zones = new ConcurrentHashMap<>();
+
+    public ZoneMissTracker(ZonePresenceStore zonePresenceStore) {
+        this.zonePresenceStore = zonePresenceStore;
+    }
+
+    /**
+     * 进程内记录的上一次巡检时间，用于判断 Redis 中的在场集合是否落后；没有时返回 null
+     */
+    public LocalDateTime lastScan(Long zoneId) {
+        ZoneMisses misses = zones.get(zoneId);
+        return misses != null ? misses.getLastScan() : null;
+    }
+
+    /**
+     * 数据库兜底计算差异时使用的状态：Redis 可用时取 Redis 与进程内较新的一份，否则只用进程内状态
+     */
+    public ZoneMisses load(Long zoneId) {
+        ZoneMisses local = zones.getOrDefault(zoneId, ZoneMisses.empty());
+        try {
+            return ZoneMisses.newer(local, zonePresenceStore.loadMisses(zoneId));
+        } catch (RuntimeException e) {
+            log.warn("读取 Redis 离场迟滞状态失败，使用进程内状态: zoneId={}, error={}", zoneId, e.getMessage());
+            return local;
+        }
+    }
+
+    /**
+     * 巡检写入成功后记录本次之后的状态（不覆盖更新的状态）
+     */
+    public void record(Long zoneId, ZoneMisses misses) {
+        zones.merge(zoneId, misses, (current, next) -> ZoneMisses.newer(next, current));
+    }
+}
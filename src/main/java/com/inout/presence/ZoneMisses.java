@@ -0,0 +1,77 @@
+package com.inout.presence;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 路段离场迟滞状态（不可变）：疑似离场车牌 -> 连续未扫到次数和最后一次扫到的时间，以及产生该状态的巡检时间
+ * 每次巡检计算差异后得到新状态，同时保存在本进程（ZoneMissTracker）和 Redis（ZonePresenceStore）
+ */
+public final class ZoneMisses {
+
+    private static final ZoneMisses EMPTY = new ZoneMisses(Collections.emptyMap(), null);
+
+    private final Map<String, Miss> misses;
+
+    /**
+     * 上一次巡检时间，没有巡检记录时为 null
+     */
+    private final LocalDateTime lastScan;
+
+    public ZoneMisses(Map<String, Miss> misses, LocalDateTime lastScan) {
+        this.misses = Collections.unmodifiableMap(misses);
+        this.lastScan = lastScan;
+    }
+
+    public static ZoneMisses empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 两份状态中较新的一份（按巡检时间，相同时取 first）
+     */
+    public static ZoneMisses newer(ZoneMisses first, ZoneMisses second) {
+        if (second == null || second.lastScan == null) {
+            return first != null ? first : EMPTY;
+        }
+        if (first == null || first.lastScan == null || first.lastScan.isBefore(second.lastScan)) {
+            return second;
+        }
+        return first;
+    }
+
+    public Miss get(String plate) {
+        return misses.get(plate);
+    }
+
+    public Map<String, Miss> getMisses() {
+        return misses;
+    }
+
+    public LocalDateTime getLastScan() {
+        return lastScan;
+    }
+
+    /**
+     * 单个疑似离场车牌的状态
+     */
+    public static final class Miss {
+
+        private final int count;
+        private final LocalDateTime lastSeen;
+
+        public Miss(int count, LocalDateTime lastSeen) {
+            this.count = count;
+            this.lastSeen = lastSeen;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public LocalDateTime getLastSeen() {
+            return lastSeen;
+        }
+    }
+}
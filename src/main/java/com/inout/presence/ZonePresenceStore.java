@@ -0,0 +1,511 @@
+package com.inout.presence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 路段在场车辆集合与离场迟滞状态（Redis）
+ * 每个路段的 key（同一 hash tag，集群下落在同一槽）：
+ * - scan:presence:{zoneId}:plates  在场车牌 SET（含疑似离场的车牌）
+ * - scan:presence:{zoneId}:ids     车牌 -> 在场记录ID HASH（同一车牌多条在场记录时逗号分隔），
+ *                                  另有标记字段 #loaded 表示集合已从数据库加载
+ * - scan:presence:{zoneId}:misses  疑似离场车牌 -> "连续未扫到次数|最后一次扫到的时间" HASH
+ * - scan:presence:{zoneId}:lastScan 上一次巡检时间
+ * - scan:presence:{zoneId}:stream  流式上报中已扫描的车牌 SET
+ *
+ * 巡检差异在 Redis 内用 SDIFF 计算，只把变化的车牌和记录ID传回应用。未扫到的车牌先记为疑似离场，
+ * 连续未扫到达到阈值才离场，出场时间为最后一次扫到的时间（第一次未扫到时即上一次巡检时间）；期间又扫到则清除疑似状态。
+ * 差异计算会同时推进疑似离场状态，数据库写入提交后再用 apply 移除离场、加入入场车牌，写入失败时由调用方 invalidate。
+ * 在场车牌和记录ID只在从数据库重建时设置过期时间，过期后下一次巡检重新从数据库加载，
+ * 其他途径（支付完成、人工修改）造成的在场状态变化最迟在过期后纠正。
+ * 疑似离场状态和上一次巡检时间使用更长的过期时间、每次巡检时刷新，invalidate 不删除；
+ * 差异计算返回本次之后的疑似离场状态，应用同时保存在进程内（ZoneMissTracker），Redis 不可用时数据库兜底沿用进程内状态，
+ * 重建时写入数据库兜底算出的状态。进程内状态比 Redis 中的上一次巡检时间更新时（Redis 不可用期间有过巡检），
+ * 在场集合已落后于数据库，diff / beginStream 按未加载处理，由调用方从数据库重建
+ */
+@Slf4j
+@Component
+public class ZonePresenceStore {
+
+    private static final String KEY_PREFIX = "scan:presence:{";
+    private static final String LOADED_FIELD = "#loaded";
+    private static final String ID_SEPARATOR = ",";
+
+    /**
+     * 离场迟滞：KEYS[1] plates, KEYS[2] ids, KEYS[3] 本次已扫描车牌, KEYS[4] misses, KEYS[5] lastScan；
+     * ARGV[1] 阈值, ARGV[2] 本次巡检时间, ARGV[3] 迟滞状态过期秒数
+     * 得到 departed / ids / seenAt（离场车牌、记录ID、最后扫到时间）、missing / states（疑似离场车牌及其状态）、recovered（恢复数），
+     * 清除已不在场车牌的疑似状态，并把本次巡检时间记为上一次巡检时间
+     */
+    private static final String MISS_BODY =
+            "local threshold = tonumber(ARGV[1]) " +
+            "local now = ARGV[2] " +
+            "local prev = redis.call('GET', KEYS[5]) or now " +
+            "local recovered = 0 " +
+            "for _, p in ipairs(redis.call('HKEYS', KEYS[4])) do " +
+            "  if redis.call('SISMEMBER', KEYS[3], p) == 1 then " +
+            "    redis.call('HDEL', KEYS[4], p) " +
+            "    recovered = recovered + 1 " +
+            "  elseif redis.call('SISMEMBER', KEYS[1], p) == 0 then " +
+            "    redis.call('HDEL', KEYS[4], p) " +
+            "  end " +
+            "end " +
+            "local departed, ids, seenAt, missing, states = {}, {}, {}, {}, {} " +
+            "for _, p in ipairs(redis.call('SDIFF', KEYS[1], KEYS[3])) do " +
+            "  local count, seen = 1, prev " +
+            "  local state = redis.call('HGET', KEYS[4], p) " +
+            "  if state then " +
+            "    local sep = string.find(state, '|', 1, true) " +
+            "    count = tonumber(string.sub(state, 1, sep - 1)) + 1 " +
+            "    seen = string.sub(state, sep + 1) " +
+            "  end " +
+            "  if count >= threshold then " +
+            "    departed[#departed + 1] = p " +
+            "    ids[#ids + 1] = redis.call('HGET', KEYS[2], p) or '' " +
+            "    seenAt[#seenAt + 1] = seen " +
+            "    redis.call('HDEL', KEYS[4], p) " +
+            "  else " +
+            "    redis.call('HSET', KEYS[4], p, count .. '|' .. seen) " +
+            "    missing[#missing + 1] = p " +
+            "    states[#states + 1] = count .. '|' .. seen " +
+            "  end " +
+            "end " +
+            "if #missing > 0 then redis.call('EXPIRE', KEYS[4], ARGV[3]) end " +
+            "redis.call('SET', KEYS[5], now, 'EX', ARGV[3]) ";
+
+    /**
+     * 在场集合落后于进程内状态时返回 staleResult：lastScan 早于 notBefore（进程内上一次巡检时间，0 表示没有）
+     */
+    private static String staleCheck(int lastScanKey, int notBeforeArg, String staleResult) {
+        return "local notBefore = tonumber(ARGV[" + notBeforeArg + "]) " +
+                "if notBefore > 0 then " +
+                "  local last = redis.call('GET', KEYS[" + lastScanKey + "]) " +
+                "  if not last or tonumber(last) < notBefore then return " + staleResult + " end " +
+                "end ";
+    }
+
+    /**
+     * KEYS: plates, ids, 临时扫描集合, misses, lastScan；
+     * ARGV: 阈值, 本次巡检时间, 迟滞状态过期秒数, 进程内上一次巡检时间, 本次扫描车牌
+     * 返回 {离场车牌, 记录ID, 最后扫到时间, 入场车牌, 疑似离场车牌, 恢复数, 疑似离场状态}，集合未加载或已落后时返回 nil
+     */
+    private static final String DIFF_SCRIPT =
+            "if redis.call('HEXISTS', KEYS[2], '" + LOADED_FIELD + "') == 0 then return false end " +
+            staleCheck(5, 4, "false") +
+            "redis.call('DEL', KEYS[3]) " +
+            "for i = 5, #ARGV do redis.call('SADD', KEYS[3], ARGV[i]) end " +
+            "local arrived = redis.call('SDIFF', KEYS[3], KEYS[1]) " +
+            MISS_BODY +
+            "redis.call('DEL', KEYS[3]) " +
+            "return {departed, ids, seenAt, arrived, missing, recovered, states}";
+
+    /**
+     * 只读预查：KEYS: plates, ids, 临时扫描集合；ARGV: 本次扫描车牌
+     * 返回 {扫到但不在场的车牌, 在场但未扫到的车牌}（前者为空时不返回后者），集合未加载时返回 nil
+     */
+    private static final String PREVIEW_SCRIPT =
+            "if redis.call('HEXISTS', KEYS[2], '" + LOADED_FIELD + "') == 0 then return false end " +
+            "redis.call('DEL', KEYS[3]) " +
+            "for i = 1, #ARGV do redis.call('SADD', KEYS[3], ARGV[i]) end " +
+            "local arrived = redis.call('SDIFF', KEYS[3], KEYS[1]) " +
+            "local unseen = {} " +
+            "if #arrived > 0 then unseen = redis.call('SDIFF', KEYS[1], KEYS[3]) end " +
+            "redis.call('DEL', KEYS[3]) " +
+            "return {arrived, unseen}";
+
+    /**
+     * KEYS: plates, ids；ARGV: 离场车牌数 n, n 个离场车牌, 之后为 (入场车牌, 记录ID) 对
+     * 集合已过期或被删除时不写入，等下一次巡检从数据库重建
+     */
+    private static final String APPLY_SCRIPT =
+            "if redis.call('HEXISTS', KEYS[2], '" + LOADED_FIELD + "') == 0 then return 0 end " +
+            "local n = tonumber(ARGV[1]) " +
+            "for i = 2, n + 1 do redis.call('SREM', KEYS[1], ARGV[i]) redis.call('HDEL', KEYS[2], ARGV[i]) end " +
+            "for i = n + 2, #ARGV, 2 do redis.call('SADD', KEYS[1], ARGV[i]) redis.call('HSET', KEYS[2], ARGV[i], ARGV[i + 1]) end " +
+            "return 1";
+
+    /**
+     * KEYS: plates, ids, misses, lastScan；
+     * ARGV: 过期秒数, 迟滞状态过期秒数, 本次巡检时间, 在场车牌数 n, n 个 (车牌, 记录ID) 对, 之后为 (疑似离场车牌, 状态) 对
+     * 疑似离场状态由调用方按数据库兜底的规则算出（已含 Redis 与进程内较新的一份），整体替换
+     */
+    private static final String REBUILD_SCRIPT =
+            "redis.call('DEL', KEYS[1], KEYS[2], KEYS[3]) " +
+            "local n = tonumber(ARGV[4]) " +
+            "for i = 5, 4 + n * 2, 2 do redis.call('SADD', KEYS[1], ARGV[i]) redis.call('HSET', KEYS[2], ARGV[i], ARGV[i + 1]) end " +
+            "for i = 5 + n * 2, #ARGV, 2 do redis.call('HSET', KEYS[3], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('HSET', KEYS[2], '" + LOADED_FIELD + "', '1') " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "redis.call('EXPIRE', KEYS[2], ARGV[1]) " +
+            "redis.call('EXPIRE', KEYS[3], ARGV[2]) " +
+            "redis.call('SET', KEYS[4], ARGV[3], 'EX', ARGV[2]) " +
+            "return 1";
+
+    /**
+     * 流式上报开始：KEYS: ids, stream, lastScan；ARGV: 进程内上一次巡检时间；集合未加载或已落后时返回 0
+     */
+    private static final String BEGIN_STREAM_SCRIPT =
+            "if redis.call('HEXISTS', KEYS[1], '" + LOADED_FIELD + "') == 0 then return 0 end " +
+            staleCheck(3, 1, "0") +
+            "redis.call('DEL', KEYS[2]) " +
+            "return 1";
+
+    /**
+     * 流式上报一块：KEYS: plates, ids, stream；ARGV: 过期秒数, 本块车牌
+     * 返回 {本次流中首次出现且不在场的车牌, 本次流中首次出现的车牌数}，集合未加载时返回 nil
+     */
+    private static final String ADD_SCANNED_SCRIPT =
+            "if redis.call('HEXISTS', KEYS[2], '" + LOADED_FIELD + "') == 0 then return false end " +
+            "local arrived = {} " +
+            "local added = 0 " +
+            "for i = 2, #ARGV do " +
+            "  if redis.call('SADD', KEYS[3], ARGV[i]) == 1 then " +
+            "    added = added + 1 " +
+            "    if redis.call('SISMEMBER', KEYS[1], ARGV[i]) == 0 then arrived[#arrived + 1] = ARGV[i] end " +
+            "  end " +
+            "end " +
+            "redis.call('EXPIRE', KEYS[3], ARGV[1]) " +
+            "return {arrived, added}";
+
+    /**
+     * 流式上报结束：KEYS: plates, ids, stream, misses, lastScan；ARGV: 阈值, 本次巡检时间, 迟滞状态过期秒数
+     * 返回值同 DIFF_SCRIPT（入场为空，已在 ADD_SCANNED_SCRIPT 中返回），集合未加载时返回 nil
+     */
+    private static final String FINISH_STREAM_SCRIPT =
+            "if redis.call('HEXISTS', KEYS[2], '" + LOADED_FIELD + "') == 0 then return false end " +
+            MISS_BODY +
+            "redis.call('DEL', KEYS[3]) " +
+            "return {departed, ids, seenAt, {}, missing, recovered, states}";
+
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> DIFF = new DefaultRedisScript<>(DIFF_SCRIPT, List.class);
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> PREVIEW = new DefaultRedisScript<>(PREVIEW_SCRIPT, List.class);
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> ADD_SCANNED = new DefaultRedisScript<>(ADD_SCANNED_SCRIPT, List.class);
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> FINISH_STREAM = new DefaultRedisScript<>(FINISH_STREAM_SCRIPT, List.class);
+    private static final DefaultRedisScript<Long> BEGIN_STREAM = new DefaultRedisScript<>(BEGIN_STREAM_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> APPLY = new DefaultRedisScript<>(APPLY_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> REBUILD = new DefaultRedisScript<>(REBUILD_SCRIPT, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 在场集合过期时间（秒），即与数据库对账的最长间隔
+     */
+    private final long ttlSeconds;
+
+    /**
+     * 疑似离场状态和上一次巡检时间的过期时间（秒），每次巡检刷新，应远大于巡检间隔和 ttlSeconds
+     */
+    private final long stateTtlSeconds;
+
+    public ZonePresenceStore(StringRedisTemplate stringRedisTemplate,
+                             @Value("${scan.presence.ttl-seconds:3600}") long ttlSeconds,
+                             @Value("${scan.presence.state-ttl-seconds:86400}") long stateTtlSeconds) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.ttlSeconds = ttlSeconds;
+        this.stateTtlSeconds = stateTtlSeconds;
+    }
+
+    /**
+     * 只读预查本次扫描的新车牌和未扫到的在场车牌，用于在计算差异前纠正误识别的车牌
+     *
+     * @return 集合未加载时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public ScanPreview preview(Long zoneId, Collection<String> scannedPlates) {
+        List<Object> result = stringRedisTemplate.execute(PREVIEW,
+                Arrays.asList(platesKey(zoneId), idsKey(zoneId), scanKey(zoneId)), scannedPlates.toArray());
+        if (result == null) {
+            return null;
+        }
+        return new ScanPreview((List<String>) result.get(0), (List<String>) result.get(1));
+    }
+
+    /**
+     * 计算本次扫描与在场集合的差异，并推进疑似离场状态（在场车牌、记录ID在 apply 时才修改）
+     *
+     * @param scannedPlates 本次扫描的车牌（已去重、非空）
+     * @param missThreshold 连续未扫到多少次判定离场
+     * @param notBefore     进程内的上一次巡检时间，Redis 中的更早时视为集合已落后；没有时为 null
+     * @return 集合未加载或已落后时返回 null；集合与记录ID不一致时删除集合并返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public ZoneDiff diff(Long zoneId, Collection<String> scannedPlates, LocalDateTime scanTime, int missThreshold,
+                         LocalDateTime notBefore) {
+        Object[] args = new Object[scannedPlates.size() + 4];
+        args[0] = String.valueOf(missThreshold);
+        args[1] = String.valueOf(toEpochSecond(scanTime));
+        args[2] = String.valueOf(stateTtlSeconds);
+        args[3] = notBeforeArg(notBefore);
+        int i = 4;
+        for (String plate : scannedPlates) {
+            args[i++] = plate;
+        }
+        List<Object> result = stringRedisTemplate.execute(DIFF,
+                Arrays.asList(platesKey(zoneId), idsKey(zoneId), scanKey(zoneId), missesKey(zoneId), lastScanKey(zoneId)),
+                args);
+        return result != null ? toDiff(zoneId, result, scanTime) : null;
+    }
+
+    /**
+     * 开始一次流式上报：清空上一次残留的已扫描集合
+     *
+     * @param notBefore 进程内的上一次巡检时间，见 diff
+     * @return 在场集合未加载或已落后时返回 false
+     */
+    public boolean beginStream(Long zoneId, LocalDateTime notBefore) {
+        Long result = stringRedisTemplate.execute(BEGIN_STREAM,
+                Arrays.asList(idsKey(zoneId), streamKey(zoneId), lastScanKey(zoneId)), notBeforeArg(notBefore));
+        return result != null && result == 1L;
+    }
+
+    /**
+     * 流式上报累积一块车牌
+     *
+     * @param plates 本块车牌（块内已去重、非空）
+     * @return 本次流中首次出现且不在场的车牌（即入场），以及首次出现的车牌数；在场集合已失效时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public ScannedChunk addScanned(Long zoneId, Collection<String> plates) {
+        Object[] args = new Object[plates.size() + 1];
+        args[0] = String.valueOf(ttlSeconds);
+        int i = 1;
+        for (String plate : plates) {
+            args[i++] = plate;
+        }
+        List<Object> result = stringRedisTemplate.execute(ADD_SCANNED,
+                Arrays.asList(platesKey(zoneId), idsKey(zoneId), streamKey(zoneId)), args);
+        if (result == null) {
+            return null;
+        }
+        return new ScannedChunk((List<String>) result.get(0), ((Number) result.get(1)).intValue());
+    }
+
+    /**
+     * 结束流式上报：在场但整个流中没有出现的车牌按迟滞规则判定离场
+     *
+     * @return 差异（入场为空，已在 addScanned 中返回）；在场集合已失效或不一致时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public ZoneDiff finishStream(Long zoneId, LocalDateTime scanTime, int missThreshold) {
+        List<Object> result = stringRedisTemplate.execute(FINISH_STREAM,
+                Arrays.asList(platesKey(zoneId), idsKey(zoneId), streamKey(zoneId), missesKey(zoneId), lastScanKey(zoneId)),
+                String.valueOf(missThreshold), String.valueOf(toEpochSecond(scanTime)), String.valueOf(stateTtlSeconds));
+        return result != null ? toDiff(zoneId, result, scanTime) : null;
+    }
+
+    /**
+     * 还原离场记录ID、出场时间和疑似离场状态；集合与记录ID不一致时删除集合并返回 null
+     */
+    @SuppressWarnings("unchecked")
+    private ZoneDiff toDiff(Long zoneId, List<Object> result, LocalDateTime scanTime) {
+        List<String> departed = (List<String>) result.get(0);
+        List<String> idValues = (List<String>) result.get(1);
+        List<String> seenAt = (List<String>) result.get(2);
+        List<Long> departedIds = new ArrayList<>(departed.size());
+        List<LocalDateTime> departedOutTimes = new ArrayList<>(departed.size());
+        for (int i = 0; i < idValues.size(); i++) {
+            String value = idValues.get(i);
+            if (value == null || value.isEmpty()) {
+                log.warn("路段在场集合缺少记录ID，重建: zoneId={}, plate={}", zoneId, departed.get(i));
+                invalidate(zoneId);
+                return null;
+            }
+            LocalDateTime outTime = fromEpochSecond(seenAt.get(i));
+            for (String id : value.split(ID_SEPARATOR)) {
+                departedIds.add(Long.valueOf(id));
+                departedOutTimes.add(outTime);
+            }
+        }
+        List<String> missing = (List<String>) result.get(4);
+        List<String> states = (List<String>) result.get(6);
+        Map<String, ZoneMisses.Miss> misses = new LinkedHashMap<>(missing.size() * 2);
+        for (int i = 0; i < missing.size(); i++) {
+            misses.put(missing.get(i), decodeMiss(states.get(i)));
+        }
+        return new ZoneDiff(departed, departedIds, departedOutTimes, (List<String>) result.get(3),
+                missing, ((Number) result.get(5)).intValue(), new ZoneMisses(misses, scanTime));
+    }
+
+    /**
+     * 读取 Redis 中的疑似离场状态和上一次巡检时间（数据库兜底时与进程内状态比较新旧）
+     */
+    public ZoneMisses loadMisses(Long zoneId) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(missesKey(zoneId));
+        String lastScan = stringRedisTemplate.opsForValue().get(lastScanKey(zoneId));
+        Map<String, ZoneMisses.Miss> misses = new LinkedHashMap<>(entries.size() * 2);
+        entries.forEach((plate, state) -> misses.put((String) plate, decodeMiss((String) state)));
+        return new ZoneMisses(misses, lastScan != null ? fromEpochSecond(lastScan) : null);
+    }
+
+    /**
+     * 数据库写入提交后同步在场集合：移除离场车牌，加入入场车牌及其记录ID
+     */
+    public void apply(Long zoneId, Collection<String> departedPlates, Map<String, Long> arrivedRecordIds) {
+        if (departedPlates.isEmpty() && arrivedRecordIds.isEmpty()) {
+            return;
+        }
+        List<String> args = new ArrayList<>(1 + departedPlates.size() + arrivedRecordIds.size() * 2);
+        args.add(String.valueOf(departedPlates.size()));
+        args.addAll(departedPlates);
+        arrivedRecordIds.forEach((plate, id) -> {
+            args.add(plate);
+            args.add(String.valueOf(id));
+        });
+        stringRedisTemplate.execute(APPLY, Arrays.asList(platesKey(zoneId), idsKey(zoneId)), args.toArray());
+    }
+
+    /**
+     * 用数据库中的在场记录重建路段在场集合，疑似离场状态整体替换为数据库兜底算出的状态
+     *
+     * @param presentRecordIds 车牌 -> 该车牌的在场记录ID（含疑似离场车牌）
+     * @param misses           本次巡检之后的疑似离场状态
+     * @param scanTime         本次巡检时间
+     */
+    public void rebuild(Long zoneId, Map<String, List<Long>> presentRecordIds, ZoneMisses misses,
+                        LocalDateTime scanTime) {
+        List<String> args = new ArrayList<>(4 + (presentRecordIds.size() + misses.getMisses().size()) * 2);
+        args.add(String.valueOf(ttlSeconds));
+        args.add(String.valueOf(stateTtlSeconds));
+        args.add(String.valueOf(toEpochSecond(scanTime)));
+        args.add(String.valueOf(presentRecordIds.size()));
+        presentRecordIds.forEach((plate, ids) -> {
+            args.add(plate);
+            args.add(joinIds(ids));
+        });
+        misses.getMisses().forEach((plate, miss) -> {
+            args.add(plate);
+            args.add(encodeMiss(miss));
+        });
+        stringRedisTemplate.execute(REBUILD,
+                Arrays.asList(platesKey(zoneId), idsKey(zoneId), missesKey(zoneId), lastScanKey(zoneId)), args.toArray());
+    }
+
+    /**
+     * 删除路段在场集合，下一次巡检从数据库重建（保留疑似离场状态）
+     */
+    public void invalidate(Long zoneId) {
+        stringRedisTemplate.delete(Arrays.asList(platesKey(zoneId), idsKey(zoneId), streamKey(zoneId)));
+    }
+
+    /**
+     * 巡检时间在 Redis 中的编码（只用于还原，不涉及时区换算）
+     */
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fromEpochSecond(String value) {
+        return LocalDateTime.ofEpochSecond(Long.parseLong(value), 0, ZoneOffset.UTC);
+    }
+
+    private static String notBeforeArg(LocalDateTime notBefore) {
+        return notBefore != null ? String.valueOf(toEpochSecond(notBefore)) : "0";
+    }
+
+    /**
+     * 疑似离场状态编码："连续未扫到次数|最后一次扫到的时间"
+     */
+    private static String encodeMiss(ZoneMisses.Miss miss) {
+        return miss.getCount() + "|" + toEpochSecond(miss.getLastSeen());
+    }
+
+    private static ZoneMisses.Miss decodeMiss(String state) {
+        int sep = state.indexOf('|');
+        return new ZoneMisses.Miss(Integer.parseInt(state.substring(0, sep)), fromEpochSecond(state.substring(sep + 1)));
+    }
+
+    private static String joinIds(List<Long> ids) {
+        StringBuilder sb = new StringBuilder();
+        for (Long id : ids) {
+            if (sb.length() > 0) {
+                sb.append(ID_SEPARATOR);
+            }
+            sb.append(id);
+        }
+        return sb.toString();
+    }
+
+    private static String platesKey(Long zoneId) {
+        return KEY_PREFIX + zoneId + "}:plates";
+    }
+
+    private static String idsKey(Long zoneId) {
+        return KEY_PREFIX + zoneId + "}:ids";
+    }
+
+    private static String scanKey(Long zoneId) {
+        return KEY_PREFIX + zoneId + "}:scan";
+    }
+
+    private static String missesKey(Long zoneId) {
+        return KEY_PREFIX + zoneId + "}:misses";
+    }
+
+    private static String lastScanKey(Long zoneId) {
+        return KEY_PREFIX + zoneId + "}:lastScan";
+    }
+
+    private static String streamKey(Long zoneId) {
+        return KEY_PREFIX + zoneId + "}:stream";
+    }
+
+    /**
+     * 预查结果：扫到但不在场的车牌、在场但未扫到的车牌
+     */
+    public static final class ScanPreview {
+
+        private final List<String> arrivedPlates;
+        private final List<String> unseenPlates;
+
+        ScanPreview(List<String> arrivedPlates, List<String> unseenPlates) {
+            this.arrivedPlates = arrivedPlates;
+            this.unseenPlates = unseenPlates;
+        }
+
+        public List<String> getArrivedPlates() {
+            return arrivedPlates;
+        }
+
+        public List<String> getUnseenPlates() {
+            return unseenPlates;
+        }
+    }
+
+    /**
+     * 流式上报一块的结果
+     */
+    public static final class ScannedChunk {
+
+        private final List<String> arrivedPlates;
+        private final int newlyScanned;
+
+        ScannedChunk(List<String> arrivedPlates, int newlyScanned) {
+            this.arrivedPlates = arrivedPlates;
+            this.newlyScanned = newlyScanned;
+        }
+
+        public List<String> getArrivedPlates() {
+            return arrivedPlates;
+        }
+
+        public int getNewlyScanned() {
+            return newlyScanned;
+        }
+    }
+}
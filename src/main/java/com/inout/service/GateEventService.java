@@ -0,0 +1,25 @@
+package com.inout.service;
+
+import com.inout.entity.DTO.GateEventDTO;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 道闸过车事件接入：事件进入按车场分区的内存队列后立即确认，由后台工作线程异步写入入场记录 / 出场结算
+ */
+public interface GateEventService {
+
+    /**
+     * 接收一批过车事件（同一车场的事件按列表顺序处理）
+     * 分区队列已满时拒绝该事件，同一批中该车场之后的事件也一并拒绝，避免乱序；被拒绝的事件由设备稍后重报
+     *
+     * @return accepted、rejected、rejectedIndexes（被拒绝事件在入参中的下标）
+     */
+    Map<String, Object> submit(List<GateEventDTO> events);
+
+    /**
+     * 各分区积压情况：partitions（每个分区的 depth、oldestAgeMillis、processed）、totalDepth、maxOldestAgeMillis
+     */
+    Map<String, Object> stats();
+}
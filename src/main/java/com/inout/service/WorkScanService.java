@@ -0,0 +1,33 @@
+package com.inout.service;
+
+import com.inout.entity.DTO.ScanReportRequest;
+import com.inout.entity.DTO.ScannedCarDTO;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 工作端巡检服务：根据扫描结果推算入场 / 出场
+ */
+public interface WorkScanService {
+
+    /**
+     * 处理一次巡检上报
+     * 1. 本次扫描看到的车中，新的车 -> 生成入场记录
+     * 2. 上次还在场，这次没看到的车 -> 认为已离场，补出场时间
+     *
+     * @return 本次处理的统计：zoneId、scanTime、newInCount、leaveCount、currentScanCarCount
+     */
+    Map<String, Object> report(ScanReportRequest request);
+
+    /**
+     * 流式处理一次巡检上报（大路段的扫描车上报），入场 / 离场判断与 report 相同：
+     * 车辆逐块读取，每块的新车随即入场；流结束后才结算离场（中途失败时已入场的记录保留，不会误判离场）
+     *
+     * @param cars 扫描到的车辆，按需读取，不会整体加载到内存
+     * @return 统计字段与 report 相同
+     */
+    Map<String, Object> reportStream(Long zoneId, LocalDateTime scanTime, String inspectorName,
+                                     Iterator<ScannedCarDTO> cars);
+}
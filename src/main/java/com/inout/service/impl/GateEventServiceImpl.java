@@ -0,0 +1,244 @@
+package com.inout.service.impl;
+
+import com.charge.entity.DTO.CalculateFeeRequest;
+import com.charge.service.ChargeService;
+import com.common.exception.BusinessException;
+import com.inout.entity.DTO.GateEventDTO;
+import com.inout.gate.GateEventPartitions;
+import com.inout.presence.ZonePresenceStore;
+import com.inout.service.GateEventService;
+import com.parking.entity.ParkingRecord;
+import com.parking.mapper.ParkingRecordMapper;
+import com.parking.occupancy.OccupancyCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 过车事件接入实现
+ * 请求线程只做校验和入队（GateEventPartitions），不访问数据库；同一车场的事件由同一工作线程按顺序处理：
+ * - 入场：车牌在该车场已有在场记录时视为重复上报，忽略；否则插入在场记录，并加入路段在场集合（巡检不再把它当作新车）
+ * - 出场：取该车牌在该车场、入场时间不晚于出场时间的最近一条在场记录，走 ChargeService 出场结算；
+ *   结算按 (入场记录, 出场时间) 幂等，设备重报不会重复生成订单
+ * 处理结果计数：gate.event.outcome（type、outcome = applied / duplicate / unmatched）
+ */
+@Slf4j
+@Service
+public class GateEventServiceImpl implements GateEventService {
+
+    /**
+     * 单次请求最多事件数
+     */
+    private static final int MAX_EVENTS_PER_REQUEST = 1000;
+
+    /**
+     * 关闭时等待积压处理完的最长时间（毫秒）
+     */
+    private static final long SHUTDOWN_AWAIT_MILLIS = 10_000L;
+
+    private final ParkingRecordMapper parkingRecordMapper;
+    private final ChargeService chargeService;
+    private final ZonePresenceStore zonePresenceStore;
+    private final OccupancyCounter occupancyCounter;
+    private final GateEventPartitions partitions;
+
+    private final Counter entryApplied;
+    private final Counter entryDuplicate;
+    private final Counter exitApplied;
+    private final Counter exitUnmatched;
+
+    public GateEventServiceImpl(ParkingRecordMapper parkingRecordMapper,
+                                ChargeService chargeService,
+                                ZonePresenceStore zonePresenceStore,
+                                OccupancyCounter occupancyCounter,
+                                MeterRegistry meterRegistry,
+                                @Value("${gate.ingest.partitions:0}") int partitionCount,
+                                @Value("${gate.ingest.queue-capacity:10000}") int queueCapacity) {
+        this.parkingRecordMapper = parkingRecordMapper;
+        this.chargeService = chargeService;
+        this.zonePresenceStore = zonePresenceStore;
+        this.occupancyCounter = occupancyCounter;
+        int count = partitionCount > 0 ? partitionCount : Runtime.getRuntime().availableProcessors();
+        this.partitions = new GateEventPartitions(count, queueCapacity, this::handle, meterRegistry);
+        this.entryApplied = outcome(meterRegistry, GateEventDTO.TYPE_ENTRY, "applied");
+        this.entryDuplicate = outcome(meterRegistry, GateEventDTO.TYPE_ENTRY, "duplicate");
+        this.exitApplied = outcome(meterRegistry, GateEventDTO.TYPE_EXIT, "applied");
+        this.exitUnmatched = outcome(meterRegistry, GateEventDTO.TYPE_EXIT, "unmatched");
+    }
+
+    @PostConstruct
+    public void start() {
+        partitions.start();
+        log.info("过车事件接入已启动: partitions={}", partitions.partitionCount());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partitions.shutdown(SHUTDOWN_AWAIT_MILLIS);
+    }
+
+    @Override
+    public Map<String, Object> submit(List<GateEventDTO> events) {
+        if (events == null || events.isEmpty()) {
+            throw new BusinessException("过车事件不能为空");
+        }
+        if (events.size() > MAX_EVENTS_PER_REQUEST) {
+            throw new BusinessException("单次最多上报" + MAX_EVENTS_PER_REQUEST + "条过车事件");
+        }
+        // 先整体校验，格式错误的请求不入队任何事件
+        for (int i = 0; i < events.size(); i++) {
+            validate(events.get(i), i);
+        }
+
+        List<Integer> rejectedIndexes = new ArrayList<>();
+        Set<Long> rejectedLots = new HashSet<>();
+        for (int i = 0; i < events.size(); i++) {
+            GateEventDTO event = events.get(i);
+            if (rejectedLots.contains(event.getParkingIotId()) || !partitions.offer(event)) {
+                rejectedLots.add(event.getParkingIotId());
+                rejectedIndexes.add(i);
+            }
+        }
+        if (!rejectedIndexes.isEmpty()) {
+            log.warn("过车事件分区队列已满，拒绝 {} 条: lots={}", rejectedIndexes.size(), rejectedLots);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("accepted", events.size() - rejectedIndexes.size());
+        result.put("rejected", rejectedIndexes.size());
+        result.put("rejectedIndexes", rejectedIndexes);
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        List<Map<String, Object>> byPartition = partitions.stats();
+        long totalDepth = 0;
+        long maxOldestAge = 0;
+        for (Map<String, Object> item : byPartition) {
+            totalDepth += ((Number) item.get("depth")).longValue();
+            maxOldestAge = Math.max(maxOldestAge, ((Number) item.get("oldestAgeMillis")).longValue());
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalDepth", totalDepth);
+        stats.put("maxOldestAgeMillis", maxOldestAge);
+        stats.put("partitions", byPartition);
+        return stats;
+    }
+
+    private static void validate(GateEventDTO event, int index) {
+        String prefix = "第" + (index + 1) + "条过车事件";
+        if (event == null) {
+            throw new BusinessException(prefix + "为空");
+        }
+        String type = event.getType() != null ? event.getType().trim().toUpperCase() : null;
+        if (!GateEventDTO.TYPE_ENTRY.equals(type) && !GateEventDTO.TYPE_EXIT.equals(type)) {
+            throw new BusinessException(prefix + "类型不正确，应为 ENTRY 或 EXIT");
+        }
+        event.setType(type);
+        if (event.getParkingIotId() == null) {
+            throw new BusinessException(prefix + "缺少车场ID");
+        }
+        if (event.getPlateNumber() == null || event.getPlateNumber().trim().isEmpty()) {
+            throw new BusinessException(prefix + "缺少车牌号");
+        }
+        event.setPlateNumber(event.getPlateNumber().trim());
+        if (event.getEventTime() == null) {
+            throw new BusinessException(prefix + "缺少过车时间");
+        }
+    }
+
+    /**
+     * 工作线程上处理单个事件
+     */
+    private void handle(GateEventDTO event) {
+        if (GateEventDTO.TYPE_ENTRY.equals(event.getType())) {
+            enter(event);
+        } else {
+            exit(event);
+        }
+    }
+
+    private void enter(GateEventDTO event) {
+        Long parkingIotId = event.getParkingIotId();
+        String plate = event.getPlateNumber();
+        for (ParkingRecord record : parkingRecordMapper.selectCurrentByPlateNumber(plate)) {
+            if (parkingIotId.equals(record.getParkingIotId())) {
+                entryDuplicate.increment();
+                log.debug("重复入场事件已忽略: parkingIotId={}, plate={}, recordId={}",
+                        parkingIotId, plate, record.getId());
+                return;
+            }
+        }
+
+        ParkingRecord record = new ParkingRecord();
+        record.setPlateNumber(plate);
+        record.setVehicleType(event.getVehicleType());
+        record.setParkingIotId(parkingIotId);
+        record.setInTime(event.getEventTime());
+        record.setStatus("IN");
+        record.setRemark("道闸入场");
+        parkingRecordMapper.insert(record);
+        occupancyCounter.adjustAfterCommit(parkingIotId, 1);
+        entryApplied.increment();
+
+        try {
+            zonePresenceStore.apply(parkingIotId, Collections.emptyList(),
+                    Collections.singletonMap(plate, record.getId()));
+        } catch (Exception e) {
+            // 集合过期后从数据库重建时会包含这条记录
+            log.warn("道闸入场同步在场集合失败: parkingIotId={}, plate={}, error={}",
+                    parkingIotId, plate, e.getMessage());
+        }
+    }
+
+    private void exit(GateEventDTO event) {
+        Long parkingIotId = event.getParkingIotId();
+        LocalDateTime exitTime = event.getEventTime();
+        ParkingRecord inRecord = null;
+        for (ParkingRecord record : parkingRecordMapper.selectCurrentByPlateNumber(event.getPlateNumber())) {
+            if (!parkingIotId.equals(record.getParkingIotId())
+                    || record.getInTime() == null || record.getInTime().isAfter(exitTime)) {
+                continue;
+            }
+            if (inRecord == null || record.getInTime().isAfter(inRecord.getInTime())) {
+                inRecord = record;
+            }
+        }
+        if (inRecord == null) {
+            exitUnmatched.increment();
+            log.warn("出场事件未找到在场记录: parkingIotId={}, plate={}, exitTime={}",
+                    parkingIotId, event.getPlateNumber(), exitTime);
+            return;
+        }
+
+        CalculateFeeRequest request = new CalculateFeeRequest();
+        request.setInRecordId(inRecord.getId());
+        request.setExitTime(exitTime);
+        request.setUserId(event.getUserId());
+        request.setDiscountRuleCode(event.getDiscountRuleCode());
+        chargeService.calculateParkingFee(request);
+        exitApplied.increment();
+    }
+
+    private static Counter outcome(MeterRegistry meterRegistry, String type, String outcome) {
+        return Counter.builder("gate.event.outcome")
+                .description("过车事件处理结果")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,569 @@
+package com.inout.service.impl;
+
+import com.common.exception.BusinessException;
+import com.common.service.DistributedLockService;
+import com.inout.entity.DTO.ScanReportRequest;
+import com.inout.entity.DTO.ScannedCarDTO;
+import com.inout.presence.FuzzyPlateIndex;
+import com.inout.presence.ZoneDiff;
+import com.inout.presence.ZoneMissTracker;
+import com.inout.presence.ZonePresenceStore;
+import com.inout.service.WorkScanService;
+import com.parking.entity.ParkingRecord;
+import com.parking.mapper.ParkingRecordMapper;
+import com.parking.occupancy.OccupancyCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 巡检服务实现
+ * 差异计算：优先使用 Redis 中的路段在场集合（ZonePresenceStore，SDIFF），热路径上不查询数据库；
+ * 集合未加载、Redis 不可用或未拿到路段锁时回退为查询数据库在场记录，在 Java 中计算差异，之后重建集合
+ * 写入：整个上报在一个事务里，离场车辆一条 UPDATE ... WHERE id IN，新车一条多行 INSERT（超过 MAX_BATCH_ROWS 时按块拆分），
+ * 数据库只处理发生变化的行；事务提交后再同步在场集合
+ * 离场迟滞：连续 scan.departure.miss-threshold 次未扫到才结束在场记录，出场时间为最后一次扫到的时间，
+ * 识别漏扫、遮挡不再产生“出场 + 重新入场”的写入；状态保存在进程内（ZoneMissTracker）并同步到 Redis（ZonePresenceStore），
+ * Redis 不可用时数据库兜底沿用进程内状态，照常按阈值离场
+ * 车牌纠正：扫到但不在场的车牌先与本次未扫到的在场车牌做近似匹配（FuzzyPlateIndex，容忍一处误识别），
+ * 唯一匹配时视为该在场车辆被扫到，不新建入场记录、也不计一次未扫到；索引按次只用未扫到的车牌构建（通常远少于在场车辆），
+ * 未扫到的车牌超过 scan.correction.max-unseen 时（多为只扫了路段的一部分）不纠正，单次上报的纠正开销有上限
+ * 流式上报：每 STREAM_CHUNK_SIZE 辆车为一块，块内新车一个短事务入场并加入在场集合，已扫描车牌累积在 Redis，
+ * 流结束后一次结算离场；内存中只保留当前块（回退数据库时另有路段在场记录和已扫描车牌）
+ */
+@Slf4j
+@Service
+public class WorkScanServiceImpl implements WorkScanService {
+
+    /**
+     * 单条批量语句最多行数，避免超大路段生成过长的 SQL
+     */
+    private static final int MAX_BATCH_ROWS = 500;
+
+    /**
+     * 流式上报每块车辆数
+     */
+    private static final int STREAM_CHUNK_SIZE = 500;
+
+    /**
+     * 同一路段的巡检上报串行处理（在场集合的读改写不能交错）：key 前缀、过期时间（秒）、等待时间（秒）
+     */
+    private static final String ZONE_LOCK_PREFIX = "scan:zone:";
+    private static final long ZONE_LOCK_EXPIRE = 30L;
+    private static final long ZONE_LOCK_WAIT = 5L;
+
+    private final ParkingRecordMapper parkingRecordMapper;
+    private final ZonePresenceStore zonePresenceStore;
+    private final ZoneMissTracker zoneMissTracker;
+    private final DistributedLockService distributedLockService;
+    private final TransactionTemplate transactionTemplate;
+    private final OccupancyCounter occupancyCounter;
+
+    /**
+     * 连续未扫到多少次判定离场，1 表示一次未扫到即离场
+     */
+    private final int missThreshold;
+
+    /**
+     * 疑似离场后又扫到而省去的写入数（每辆车一次出场更新 + 一次重新入场插入）
+     */
+    private final Counter writesAvoided;
+
+    /**
+     * 判定离场的在场记录数
+     */
+    private final Counter departures;
+
+    /**
+     * 按近似匹配纠正的车牌数
+     */
+    private final Counter platesCorrected;
+
+    /**
+     * 参与近似匹配的未扫到车牌数上限，超过时本次不纠正
+     */
+    private final int correctionMaxUnseen;
+
+    /**
+     * 未扫到的车牌超过上限而跳过纠正的上报数
+     */
+    private final Counter correctionsSkipped;
+
+    public WorkScanServiceImpl(ParkingRecordMapper parkingRecordMapper,
+                               ZonePresenceStore zonePresenceStore,
+                               ZoneMissTracker zoneMissTracker,
+                               DistributedLockService distributedLockService,
+                               TransactionTemplate transactionTemplate,
+                               OccupancyCounter occupancyCounter,
+                               MeterRegistry meterRegistry,
+                               @Value("${scan.departure.miss-threshold:3}") int missThreshold,
+                               @Value("${scan.correction.max-unseen:2000}") int correctionMaxUnseen) {
+        this.parkingRecordMapper = parkingRecordMapper;
+        this.zonePresenceStore = zonePresenceStore;
+        this.zoneMissTracker = zoneMissTracker;
+        this.distributedLockService = distributedLockService;
+        this.transactionTemplate = transactionTemplate;
+        this.occupancyCounter = occupancyCounter;
+        this.missThreshold = Math.max(1, missThreshold);
+        this.correctionMaxUnseen = correctionMaxUnseen;
+        this.writesAvoided = Counter.builder("scan.departure.writes.avoided")
+                .description("离场迟滞省去的出场更新和重新入场插入数")
+                .register(meterRegistry);
+        this.departures = Counter.builder("scan.departure.closed")
+                .description("巡检判定离场的在场记录数")
+                .register(meterRegistry);
+        this.platesCorrected = Counter.builder("scan.plate.corrected")
+                .description("按近似匹配纠正为在场车牌的扫描车牌数")
+                .register(meterRegistry);
+        this.correctionsSkipped = Counter.builder("scan.plate.correction.skipped")
+                .description("未扫到的在场车牌超过上限而跳过车牌纠正的上报数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Map<String, Object> report(ScanReportRequest request) {
+        // 1. 基本校验
+        if (request.getZoneId() == null) {
+            throw new BusinessException("zoneId(路段ID)不能为空");
+        }
+        if (request.getScanTime() == null) {
+            throw new BusinessException("scanTime(扫描时间)不能为空");
+        }
+        if (request.getCars() == null) {
+            throw new BusinessException("cars(车辆列表)不能为空");
+        }
+
+        Long zoneId = request.getZoneId();
+        LocalDateTime scanTime = request.getScanTime();
+
+        // 2. 当前扫描的车牌（去重，同一车牌以第一次出现的车位为准）
+        Map<String, ScannedCarDTO> scannedCars = new LinkedHashMap<>();
+        for (ScannedCarDTO car : request.getCars()) {
+            if (car.getPlateNumber() != null && !car.getPlateNumber().isEmpty()) {
+                scannedCars.putIfAbsent(car.getPlateNumber(), car);
+            }
+        }
+
+        String lockKey = ZONE_LOCK_PREFIX + zoneId;
+        String lockValue = distributedLockService.tryLock(lockKey, ZONE_LOCK_EXPIRE, ZONE_LOCK_WAIT);
+        try {
+            // 3. 纠正误识别车牌后计算差异：在场集合 -> 数据库兜底
+            Map<String, String> corrections = new LinkedHashMap<>();
+            ZoneDiff diff = lockValue != null ? diffWithPresence(zoneId, scannedCars, scanTime, corrections) : null;
+            List<ParkingRecord> currentRecords = null;
+            if (diff == null) {
+                currentRecords = parkingRecordMapper.selectCurrentByParkingIotId(zoneId);
+                correctWithRecords(zoneId, scannedCars, currentRecords, corrections);
+                diff = ZoneDiff.compute(currentRecords, scannedCars.keySet(), scanTime, missThreshold,
+                        zoneMissTracker.load(zoneId));
+            }
+
+            // 4. “新出现的车” -> 入场记录
+            List<ParkingRecord> newRecords = new ArrayList<>(diff.getArrivedPlates().size());
+            for (String plate : diff.getArrivedPlates()) {
+                newRecords.add(newInRecord(scannedCars.get(plate), zoneId, scanTime, request.getInspectorName()));
+            }
+
+            // 5. 一个事务内批量写入：连续未扫到达到阈值的车补出场时间，新车入场
+            ZoneDiff changes = diff;
+            write(zoneId, () -> {
+                finishDepartures(zoneId, changes);
+                insertArrivals(zoneId, newRecords);
+            });
+            recordHysteresis(zoneId, diff);
+
+            // 6. 同步在场集合
+            syncPresence(zoneId, lockValue != null, diff, currentRecords, arrivedIds(newRecords), scanTime);
+
+            // 7. 返回本次处理的简单统计
+            Map<String, Object> data = stats(zoneId, scanTime, newRecords.size(), diff, scannedCars.size());
+            data.put("correctedCount", corrections.size());
+            return data;
+        } finally {
+            if (lockValue != null) {
+                distributedLockService.unlock(lockKey, lockValue);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> reportStream(Long zoneId, LocalDateTime scanTime, String inspectorName,
+                                            Iterator<ScannedCarDTO> cars) {
+        if (zoneId == null) {
+            throw new BusinessException("zoneId(路段ID)不能为空");
+        }
+        if (scanTime == null) {
+            throw new BusinessException("scanTime(扫描时间)不能为空");
+        }
+
+        // 流式上报耗时较长，必须独占路段：未拿到锁时不回退，避免与其他上报交错
+        String lockKey = ZONE_LOCK_PREFIX + zoneId;
+        String lockValue = distributedLockService.tryLock(lockKey, ZONE_LOCK_EXPIRE, ZONE_LOCK_WAIT);
+        if (lockValue == null) {
+            throw new BusinessException("该路段正在处理巡检上报，请稍后重试");
+        }
+        try {
+            StreamScan scan = new StreamScan(zoneId, scanTime, inspectorName);
+            Map<String, ScannedCarDTO> chunk = new LinkedHashMap<>();
+            while (cars.hasNext()) {
+                ScannedCarDTO car = cars.next();
+                if (car == null || car.getPlateNumber() == null || car.getPlateNumber().isEmpty()) {
+                    continue;
+                }
+                chunk.putIfAbsent(car.getPlateNumber(), car);
+                if (chunk.size() == STREAM_CHUNK_SIZE) {
+                    scan.accept(chunk);
+                    chunk.clear();
+                    distributedLockService.extendLock(lockKey, lockValue, ZONE_LOCK_EXPIRE);
+                }
+            }
+            scan.accept(chunk);
+            return scan.finish();
+        } finally {
+            distributedLockService.unlock(lockKey, lockValue);
+        }
+    }
+
+    /**
+     * 一次流式上报的状态
+     * 在场集合可用时入场 / 离场判断都在 Redis 中完成；否则加载路段在场记录，在内存中记录已扫描车牌，结束时重建集合
+     * 在场集合在流中途失效时终止上报：已入场的记录保留，本次不结算离场
+     */
+    private final class StreamScan {
+
+        private final Long zoneId;
+        private final LocalDateTime scanTime;
+        private final String inspectorName;
+
+        /**
+         * 回退数据库时的路段在场记录、在场车牌、已扫描车牌、本次入场车牌 -> 记录ID；使用在场集合时为 null
+         */
+        private final List<ParkingRecord> currentRecords;
+        private final Set<String> presentPlates;
+        private final Set<String> seenPlates;
+        private final Map<String, Long> arrivedRecordIds;
+
+        private int newInCount;
+        private int scannedCount;
+
+        StreamScan(Long zoneId, LocalDateTime scanTime, String inspectorName) {
+            this.zoneId = zoneId;
+            this.scanTime = scanTime;
+            this.inspectorName = inspectorName;
+            if (beginPresenceStream(zoneId, zoneMissTracker.lastScan(zoneId))) {
+                currentRecords = null;
+                presentPlates = null;
+                seenPlates = null;
+                arrivedRecordIds = null;
+            } else {
+                currentRecords = parkingRecordMapper.selectCurrentByParkingIotId(zoneId);
+                presentPlates = new HashSet<>();
+                for (ParkingRecord record : currentRecords) {
+                    if (record.getPlateNumber() != null) {
+                        presentPlates.add(record.getPlateNumber());
+                    }
+                }
+                seenPlates = new HashSet<>();
+                arrivedRecordIds = new LinkedHashMap<>();
+            }
+        }
+
+        void accept(Map<String, ScannedCarDTO> chunk) {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<String> arrivedPlates;
+            if (currentRecords == null) {
+                ZonePresenceStore.ScannedChunk scanned = presenceCall(() -> zonePresenceStore.addScanned(zoneId, chunk.keySet()));
+                arrivedPlates = scanned.getArrivedPlates();
+                scannedCount += scanned.getNewlyScanned();
+            } else {
+                arrivedPlates = new ArrayList<>();
+                for (String plate : chunk.keySet()) {
+                    if (seenPlates.add(plate)) {
+                        scannedCount++;
+                        if (!presentPlates.contains(plate)) {
+                            arrivedPlates.add(plate);
+                        }
+                    }
+                }
+            }
+            if (arrivedPlates.isEmpty()) {
+                return;
+            }
+
+            List<ParkingRecord> newRecords = new ArrayList<>(arrivedPlates.size());
+            for (String plate : arrivedPlates) {
+                newRecords.add(newInRecord(chunk.get(plate), zoneId, scanTime, inspectorName));
+            }
+            write(zoneId, () -> insertArrivals(zoneId, newRecords));
+            newInCount += newRecords.size();
+
+            if (currentRecords == null) {
+                Map<String, Long> ids = arrivedIds(newRecords);
+                presenceCall(() -> {
+                    zonePresenceStore.apply(zoneId, new ArrayList<>(), ids);
+                    return Boolean.TRUE;
+                });
+            } else {
+                arrivedRecordIds.putAll(arrivedIds(newRecords));
+            }
+        }
+
+        Map<String, Object> finish() {
+            ZoneDiff diff = currentRecords == null
+                    ? presenceCall(() -> zonePresenceStore.finishStream(zoneId, scanTime, missThreshold))
+                    : ZoneDiff.compute(currentRecords, seenPlates, scanTime, missThreshold, zoneMissTracker.load(zoneId));
+            write(zoneId, () -> finishDepartures(zoneId, diff));
+            recordHysteresis(zoneId, diff);
+
+            syncPresence(zoneId, true, diff, currentRecords,
+                    currentRecords == null ? new LinkedHashMap<>() : arrivedRecordIds, scanTime);
+            return stats(zoneId, scanTime, newInCount, diff, scannedCount);
+        }
+
+        /**
+         * 在场集合读写；失效（返回 null）或异常时删除集合并终止本次上报
+         */
+        private <T> T presenceCall(Supplier<T> call) {
+            T result;
+            try {
+                result = call.get();
+            } catch (RuntimeException e) {
+                log.warn("路段在场集合读写失败，终止流式上报: zoneId={}, error={}", zoneId, e.getMessage());
+                result = null;
+            }
+            if (result == null) {
+                invalidatePresence(zoneId);
+                throw new BusinessException("路段在场集合已失效，本次巡检未结算离场，请重新上报");
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 开始流式上报；在场集合未加载或 Redis 异常时返回 false，由调用方回退到数据库
+     */
+    private boolean beginPresenceStream(Long zoneId, LocalDateTime notBefore) {
+        try {
+            return zonePresenceStore.beginStream(zoneId, notBefore);
+        } catch (RuntimeException e) {
+            log.warn("路段在场集合读取失败，回退数据库: zoneId={}, error={}", zoneId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 在事务中写入数据库；失败时删除在场集合（差异计算已推进了疑似离场状态），下一次巡检从数据库重建
+     */
+    private void write(Long zoneId, Runnable writes) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> writes.run());
+        } catch (RuntimeException e) {
+            invalidatePresence(zoneId);
+            throw e;
+        }
+    }
+
+    /**
+     * 判定离场的记录补出场时间：同一出场时间（最后扫到的时间）一条 UPDATE，按块拆分（需在事务内调用）
+     * 占用计数按实际更新的行数减少，事务提交后生效
+     */
+    private void finishDepartures(Long zoneId, ZoneDiff diff) {
+        int[] finished = new int[1];
+        diff.departuresByOutTime().forEach((outTime, ids) -> {
+            for (int from = 0; from < ids.size(); from += MAX_BATCH_ROWS) {
+                finished[0] += parkingRecordMapper.finishByIds(
+                        ids.subList(from, Math.min(from + MAX_BATCH_ROWS, ids.size())), outTime);
+            }
+        });
+        occupancyCounter.adjustAfterCommit(zoneId, -finished[0]);
+    }
+
+    /**
+     * 写入成功后记录本次之后的离场迟滞状态，并统计恢复数和离场数
+     */
+    private void recordHysteresis(Long zoneId, ZoneDiff diff) {
+        zoneMissTracker.record(zoneId, diff.getMisses());
+        if (diff.getRecoveredCount() > 0) {
+            writesAvoided.increment(2.0 * diff.getRecoveredCount());
+        }
+        if (!diff.getDepartedRecordIds().isEmpty()) {
+            departures.increment(diff.getDepartedRecordIds().size());
+        }
+    }
+
+    /**
+     * 新车入场，按块拆分多行插入并回填ID（需在事务内调用），占用计数在事务提交后增加
+     */
+    private void insertArrivals(Long zoneId, List<ParkingRecord> newRecords) {
+        for (int from = 0; from < newRecords.size(); from += MAX_BATCH_ROWS) {
+            parkingRecordMapper.insertBatch(
+                    newRecords.subList(from, Math.min(from + MAX_BATCH_ROWS, newRecords.size())));
+        }
+        occupancyCounter.adjustAfterCommit(zoneId, newRecords.size());
+    }
+
+    private static Map<String, Long> arrivedIds(List<ParkingRecord> newRecords) {
+        Map<String, Long> ids = new LinkedHashMap<>(newRecords.size() * 2);
+        for (ParkingRecord record : newRecords) {
+            ids.put(record.getPlateNumber(), record.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * 统计：在原有字段外增加 pendingLeaveCount（本次未扫到、尚未达到离场阈值的车辆数）
+     */
+    private static Map<String, Object> stats(Long zoneId, LocalDateTime scanTime,
+                                             int newInCount, ZoneDiff diff, int scanCarCount) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("zoneId", zoneId);
+        data.put("scanTime", scanTime);
+        data.put("newInCount", newInCount);
+        data.put("leaveCount", diff.getDepartedRecordIds().size());
+        data.put("pendingLeaveCount", diff.getMissingPlates().size());
+        data.put("currentScanCarCount", scanCarCount);
+        return data;
+    }
+
+    /**
+     * 用 Redis 在场集合计算差异；集合未加载、落后于进程内状态或 Redis 异常时返回 null，由调用方回退到数据库
+     */
+    private ZoneDiff diffWithPresence(Long zoneId, Map<String, ScannedCarDTO> scannedCars, LocalDateTime scanTime,
+                                      Map<String, String> corrections) {
+        try {
+            ZonePresenceStore.ScanPreview preview = zonePresenceStore.preview(zoneId, scannedCars.keySet());
+            if (preview == null) {
+                return null;
+            }
+            correct(zoneId, scannedCars, preview.getArrivedPlates(), preview.getUnseenPlates(), corrections);
+            return zonePresenceStore.diff(zoneId, scannedCars.keySet(), scanTime, missThreshold,
+                    zoneMissTracker.lastScan(zoneId));
+        } catch (RuntimeException e) {
+            log.warn("路段在场集合读取失败，回退数据库: zoneId={}, error={}", zoneId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 数据库兜底时的车牌纠正：新车牌、未扫到的车牌由在场记录得出
+     */
+    private void correctWithRecords(Long zoneId, Map<String, ScannedCarDTO> scannedCars,
+                                    List<ParkingRecord> currentRecords, Map<String, String> corrections) {
+        Set<String> present = new HashSet<>();
+        List<String> unseen = new ArrayList<>();
+        for (ParkingRecord record : currentRecords) {
+            String plate = record.getPlateNumber();
+            if (plate != null && present.add(plate) && !scannedCars.containsKey(plate)) {
+                unseen.add(plate);
+            }
+        }
+        List<String> arrived = new ArrayList<>();
+        for (String plate : scannedCars.keySet()) {
+            if (!present.contains(plate)) {
+                arrived.add(plate);
+            }
+        }
+        correct(zoneId, scannedCars, arrived, unseen, corrections);
+    }
+
+    /**
+     * 把与未扫到的在场车牌近似的新车牌替换为在场车牌（之后按该在场车辆被扫到处理）
+     * 未扫到的车牌超过 correctionMaxUnseen 时跳过，索引构建开销不随路段规模增长
+     */
+    private void correct(Long zoneId, Map<String, ScannedCarDTO> scannedCars, List<String> arrived,
+                         List<String> unseen, Map<String, String> corrections) {
+        if (!arrived.isEmpty() && unseen.size() > correctionMaxUnseen) {
+            correctionsSkipped.increment();
+            log.debug("未扫到的在场车牌过多，跳过车牌纠正: zoneId={}, unseen={}, limit={}",
+                    zoneId, unseen.size(), correctionMaxUnseen);
+            return;
+        }
+        Map<String, String> matched = FuzzyPlateIndex.correct(arrived, unseen);
+        if (matched.isEmpty()) {
+            return;
+        }
+        matched.forEach((scanned, present) -> {
+            scannedCars.putIfAbsent(present, scannedCars.remove(scanned));
+            log.debug("巡检车牌纠正: zoneId={}, {} -> {}", zoneId, scanned, present);
+        });
+        corrections.putAll(matched);
+        platesCorrected.increment(matched.size());
+    }
+
+    /**
+     * 事务提交后同步在场集合
+     * - 差异来自在场集合：增量更新；
+     * - 差异来自数据库：用本次写入后的在场记录重建；
+     * - 未拿到路段锁：可能与其他节点交错，删除集合，下一次巡检重建
+     * 同步失败不影响本次上报（数据库已提交），删除集合后下一次巡检重建
+     */
+    private void syncPresence(Long zoneId, boolean locked, ZoneDiff diff,
+                              List<ParkingRecord> currentRecords, Map<String, Long> arrivedIds,
+                              LocalDateTime scanTime) {
+        try {
+            if (!locked) {
+                zonePresenceStore.invalidate(zoneId);
+            } else if (currentRecords == null) {
+                zonePresenceStore.apply(zoneId, diff.getDepartedPlates(), arrivedIds);
+            } else {
+                Map<String, List<Long>> present = new LinkedHashMap<>();
+                Set<Long> departedIds = new HashSet<>(diff.getDepartedRecordIds());
+                for (ParkingRecord record : currentRecords) {
+                    if (record.getPlateNumber() != null && !departedIds.contains(record.getId())) {
+                        present.computeIfAbsent(record.getPlateNumber(), k -> new ArrayList<>(1)).add(record.getId());
+                    }
+                }
+                arrivedIds.forEach((plate, id) -> present.computeIfAbsent(plate, k -> new ArrayList<>(1)).add(id));
+                zonePresenceStore.rebuild(zoneId, present, diff.getMisses(), scanTime);
+            }
+        } catch (RuntimeException e) {
+            log.warn("路段在场集合同步失败: zoneId={}, error={}", zoneId, e.getMessage());
+            invalidatePresence(zoneId);
+        }
+    }
+
+    private void invalidatePresence(Long zoneId) {
+        try {
+            zonePresenceStore.invalidate(zoneId);
+        } catch (RuntimeException ignored) {
+            // Redis 不可用时集合也无法被读取，恢复后由过期时间兜底
+        }
+    }
+
+    private ParkingRecord newInRecord(ScannedCarDTO car, Long zoneId, LocalDateTime scanTime, String inspectorName) {
+        ParkingRecord newRecord = new ParkingRecord();
+        newRecord.setPlateNumber(car.getPlateNumber());
+        newRecord.setParkingIotId(zoneId);
+        newRecord.setInTime(scanTime);
+        newRecord.setOutTime(null);
+        newRecord.setPaidAmount(null);
+        newRecord.setStatus("IN");
+
+        // 备注里可以带上车位和巡检人信息
+        StringBuilder remark = new StringBuilder("工作端巡检入场");
+        if (car.getSlotNo() != null && !car.getSlotNo().isEmpty()) {
+            remark.append("，车位：").append(car.getSlotNo());
+        }
+        if (inspectorName != null && !inspectorName.isEmpty()) {
+            remark.append("，巡检人：").append(inspectorName);
+        }
+        newRecord.setRemark(remark.toString());
+        return newRecord;
+    }
+}
@@ -0,0 +1,45 @@
+package com.parking.controller;
+
+import com.common.exception.BusinessException;
+import com.common.result.Result;
+import com.parking.occupancy.OccupancyCounter;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 车场实时占用数查询（读内存计数，不访问数据库）
+ */
+@RestController
+@RequestMapping("/api/parking/occupancy")
+public class OccupancyController {
+
+    private final OccupancyCounter occupancyCounter;
+
+    public OccupancyController(OccupancyCounter occupancyCounter) {
+        this.occupancyCounter = occupancyCounter;
+    }
+
+    /**
+     * 单个车场的在场车辆数
+     */
+    @GetMapping
+    public Result<Map<String, Object>> get(@RequestParam("parkingIotId") Long parkingIotId) {
+        if (parkingIotId == null) {
+            throw new BusinessException("车场ID不能为空");
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("parkingIotId", parkingIotId);
+        data.put("occupied", occupancyCounter.get(parkingIotId));
+        return Result.success(data);
+    }
+
+    /**
+     * 全部有在场车辆的车场：车场ID -> 在场车辆数
+     */
+    @GetMapping("/all")
+    public Result<Map<Long, Long>> all() {
+        return Result.success(occupancyCounter.getAll());
+    }
+}
@@ -0,0 +1,27 @@
+package com.parking.entity;
+
+/**
+ * 车场在场车辆数（parking_record 中 status = 'IN' 的记录数）
+ */
+public class LotOccupancy {
+
+    private Long parkingIotId;
+
+    private Long occupied;
+
+    public Long getParkingIotId() {
+        return parkingIotId;
+    }
+
+    public void setParkingIotId(Long parkingIotId) {
+        this.parkingIotId = parkingIotId;
+    }
+
+    public Long getOccupied() {
+        return occupied;
+    }
+
+    public void setOccupied(Long occupied) {
+        this.occupied = occupied;
+    }
+}
@@ -4,6 +4,8 @@ import io.lettuce.core.dynamic.annotation.Param;
 import org.apache.ibatis.annotations.Mapper;
 import com.parking.entity.ParkingIot;
 
+import java.util.List;
+
 
 @Mapper
 public interface ParkingIotMapper {
@@ -11,4 +13,9 @@ public interface ParkingIotMapper {
     ParkingIot selectById(@Param("id") Long id);
     ParkingIot selectByCode(@Param("code") String code);
 
+    /**
+     * 全部车场（计费规则快照加载车场每日封顶）
+     */
+    List<ParkingIot> selectAll();
+
 }
@@ -1,10 +1,12 @@
 package com.parking.mapper;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import com.parking.entity.LotOccupancy;
 import com.parking.entity.ParkingRecord;
 
 
@@ -32,4 +34,25 @@ public interface ParkingRecordMapper {
      * 查询某车牌当前在场的停车记录（status='IN'）
      */
     List<ParkingRecord> selectCurrentByPlateNumber(@Param("plateNumber") String plateNumber);
+
+    /**
+     * 按ID批量查询停车记录（批量预览计费，ids 不能为空）
+     */
+    List<ParkingRecord> selectByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 多行插入，回填自增ID（巡检入场，列表不能为空）
+     */
+    int insertBatch(List<ParkingRecord> records);
+
+    /**
+     * 批量结束在场记录：补出场时间并置为 FINISHED（巡检离场，ids 不能为空）
+     * 只更新仍为 IN 的记录
+     */
+    int finishByIds(@Param("ids") List<Long> ids, @Param("outTime") LocalDateTime outTime);
+
+    /**
+     * 按车场统计在场记录数（status='IN'），只返回有在场车辆的车场（占用计数对账）
+     */
+    List<LotOccupancy> countCurrentByLot();
 }
@@ -0,0 +1,70 @@
+package com.parking.occupancy;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 各车场尚未刷到 Redis 的占用增量
+ * 每个车场一个 LongAdder（内部按线程分段计数），入场 / 离场线程并发累加时不争用同一个缓存行；
+ * 刷新线程 drain 取走并清零，刷新失败时 restore 放回，增量不会丢失
+ */
+public class LotCounters {
+
+    private final ConcurrentHashMap<Long, LongAdder> deltas = new ConcurrentHashMap<>();
+
+    public void add(Long parkingIotId, long delta) {
+        if (parkingIotId == null || delta == 0) {
+            return;
+        }
+        LongAdder adder = deltas.get(parkingIotId);
+        if (adder == null) {
+            adder = deltas.computeIfAbsent(parkingIotId, k -> new LongAdder());
+        }
+        adder.add(delta);
+    }
+
+    /**
+     * 车场尚未刷出的增量
+     */
+    public long pending(Long parkingIotId) {
+        LongAdder adder = deltas.get(parkingIotId);
+        return adder != null ? adder.sum() : 0L;
+    }
+
+    /**
+     * 全部车场尚未刷出的增量（不清零）
+     */
+    public Map<Long, Long> pendingAll() {
+        Map<Long, Long> result = new HashMap<>();
+        deltas.forEach((lot, adder) -> {
+            long sum = adder.sum();
+            if (sum != 0) {
+                result.put(lot, sum);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 取走全部非零增量并清零；与 add 并发时，清零后的累加留到下一次 drain
+     */
+    public Map<Long, Long> drain() {
+        Map<Long, Long> drained = new HashMap<>();
+        deltas.forEach((lot, adder) -> {
+            long sum = adder.sumThenReset();
+            if (sum != 0) {
+                drained.put(lot, sum);
+            }
+        });
+        return drained;
+    }
+
+    /**
+     * 放回 drain 取走但未能刷出的增量
+     */
+    public void restore(Map<Long, Long> drained) {
+        drained.forEach(this::add);
+    }
+}
@@ -0,0 +1,196 @@
+package com.parking.occupancy;
+
+import com.common.service.DistributedLockService;
+import com.parking.entity.LotOccupancy;
+import com.parking.mapper.ParkingRecordMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 车场实时占用数（在场记录数，即 status = 'IN' 的 parking_record 条数）
+ * - 入场 / 离场时调用 adjustAfterCommit，事务提交后才计入本节点的内存增量（LotCounters），回滚不计入；
+ * - 每 occupancy.flush-ms 把本节点增量用一次 Lua 调用 HINCRBY 到 Redis hash parking:occupancy（车场ID -> 在场数），
+ *   同时取回整个 hash 作为本地快照；读取 = 快照 + 本节点未刷出的增量，不访问数据库，也不访问 Redis；
+ * - 每 occupancy.reconcile-ms 由一个节点（分布式锁）按数据库 GROUP BY 结果重写 hash，纠正直接改库、进程崩溃丢失增量等造成的偏差，
+ *   偏差绝对值累计到 parking.occupancy.drift。对账瞬间其他节点尚未刷出的增量可能被重复或遗漏计入，偏差不超过一个刷新周期内的变化，下一次对账纠正
+ */
+@Slf4j
+@Component
+public class OccupancyCounter {
+
+    private static final String KEY = "parking:occupancy";
+
+    private static final String RECONCILE_LOCK = "parking:occupancy:reconcile";
+    private static final long RECONCILE_LOCK_EXPIRE = 60L;
+
+    /**
+     * KEYS: hash；ARGV: (车场ID, 增量) 对；返回累加后的整个 hash
+     */
+    private static final String FLUSH_SCRIPT =
+            "for i = 1, #ARGV, 2 do redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "return redis.call('HGETALL', KEYS[1])";
+
+    /**
+     * KEYS: hash；ARGV: (车场ID, 在场数) 对；整体替换
+     */
+    private static final String RECONCILE_SCRIPT =
+            "redis.call('DEL', KEYS[1]) " +
+            "for i = 1, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "return 1";
+
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> FLUSH = new DefaultRedisScript<>(FLUSH_SCRIPT, List.class);
+    private static final DefaultRedisScript<Long> RECONCILE = new DefaultRedisScript<>(RECONCILE_SCRIPT, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ParkingRecordMapper parkingRecordMapper;
+    private final DistributedLockService distributedLockService;
+    private final LotCounters pending = new LotCounters();
+    private final Counter drift;
+
+    /**
+     * 最近一次从 Redis 取回的各车场在场数
+     */
+    private volatile Map<Long, Long> snapshot = Collections.emptyMap();
+
+    public OccupancyCounter(StringRedisTemplate stringRedisTemplate,
+                            ParkingRecordMapper parkingRecordMapper,
+                            DistributedLockService distributedLockService,
+                            MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.parkingRecordMapper = parkingRecordMapper;
+        this.distributedLockService = distributedLockService;
+        this.drift = Counter.builder("parking.occupancy.drift")
+                .description("对账时计数与数据库在场数的偏差（绝对值累计）")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 在场数变化；在事务内调用时提交后才生效
+     *
+     * @param delta 入场为正，离场为负
+     */
+    public void adjustAfterCommit(Long parkingIotId, long delta) {
+        if (parkingIotId == null || delta == 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pending.add(parkingIotId, delta);
+                }
+            });
+        } else {
+            pending.add(parkingIotId, delta);
+        }
+    }
+
+    /**
+     * 车场当前在场数
+     */
+    public long get(Long parkingIotId) {
+        long count = snapshot.getOrDefault(parkingIotId, 0L) + pending.pending(parkingIotId);
+        return Math.max(0L, count);
+    }
+
+    /**
+     * 全部有在场车辆的车场，按车场ID排序
+     */
+    public Map<Long, Long> getAll() {
+        Map<Long, Long> merged = new TreeMap<>(snapshot);
+        pending.pendingAll().forEach((lot, delta) -> merged.merge(lot, delta, Long::sum));
+        merged.values().removeIf(count -> count <= 0);
+        return merged;
+    }
+
+    /**
+     * 刷出本节点增量并刷新快照
+     */
+    @Scheduled(fixedDelayString = "${occupancy.flush-ms:1000}")
+    public void flush() {
+        Map<Long, Long> drained = pending.drain();
+        List<String> args = new ArrayList<>(drained.size() * 2);
+        drained.forEach((lot, delta) -> {
+            args.add(String.valueOf(lot));
+            args.add(String.valueOf(delta));
+        });
+        List<?> result;
+        try {
+            result = stringRedisTemplate.execute(FLUSH, Collections.singletonList(KEY), args.toArray());
+        } catch (Exception e) {
+            pending.restore(drained);
+            log.warn("刷新车场占用计数失败，增量保留到下一次: lots={}, error={}", drained.size(), e.getMessage());
+            return;
+        }
+        snapshot = parse(result);
+    }
+
+    /**
+     * 与数据库对账
+     */
+    @Scheduled(initialDelayString = "${occupancy.reconcile-initial-delay-ms:5000}",
+            fixedDelayString = "${occupancy.reconcile-ms:300000}")
+    public void reconcile() {
+        String lockValue = distributedLockService.tryLock(RECONCILE_LOCK, RECONCILE_LOCK_EXPIRE);
+        if (lockValue == null) {
+            return;
+        }
+        try {
+            flush();
+            Map<Long, Long> before = snapshot;
+            Map<Long, Long> actual = new HashMap<>();
+            List<String> args = new ArrayList<>();
+            for (LotOccupancy lot : parkingRecordMapper.countCurrentByLot()) {
+                actual.put(lot.getParkingIotId(), lot.getOccupied());
+                args.add(String.valueOf(lot.getParkingIotId()));
+                args.add(String.valueOf(lot.getOccupied()));
+            }
+            stringRedisTemplate.execute(RECONCILE, Collections.singletonList(KEY), args.toArray());
+            snapshot = actual;
+
+            long diff = 0;
+            for (Map.Entry<Long, Long> e : actual.entrySet()) {
+                diff += Math.abs(e.getValue() - before.getOrDefault(e.getKey(), 0L));
+            }
+            for (Map.Entry<Long, Long> e : before.entrySet()) {
+                if (!actual.containsKey(e.getKey())) {
+                    diff += Math.abs(e.getValue());
+                }
+            }
+            if (diff > 0) {
+                drift.increment(diff);
+                log.info("车场占用计数已按数据库纠正: lots={}, drift={}", actual.size(), diff);
+            }
+        } catch (Exception e) {
+            log.error("车场占用计数对账失败", e);
+        } finally {
+            distributedLockService.unlock(RECONCILE_LOCK, lockValue);
+        }
+    }
+
+    private static Map<Long, Long> parse(List<?> flat) {
+        if (flat == null || flat.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Long> counts = new HashMap<>(flat.size());
+        for (int i = 0; i + 1 < flat.size(); i += 2) {
+            counts.put(Long.valueOf(String.valueOf(flat.get(i))), Long.valueOf(String.valueOf(flat.get(i + 1))));
+        }
+        return counts;
+    }
+}
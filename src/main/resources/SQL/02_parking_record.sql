@@ -1,6 +1,7 @@
 CREATE TABLE IF NOT EXISTS parking_record (
     id              BIGINT          NOT NULL AUTO_INCREMENT COMMENT '主键ID',
     plate_number    VARCHAR(20)     NOT NULL COMMENT '车牌号',
+    vehicle_type    VARCHAR(20)     NULL COMMENT '车辆类型：SMALL/LARGE/NEW_ENERGY，对应charge_rule.car_type，为空按ALL规则计费',
     parking_lot_id  BIGINT          NOT NULL COMMENT '车场ID，关联parking_lot.id',
     in_time         DATETIME        NOT NULL COMMENT '入场时间',
     out_time        DATETIME        NULL COMMENT '出场时间，未出场为NULL',
@@ -13,5 +14,5 @@ CREATE TABLE IF NOT EXISTS parking_record (
 
     PRIMARY KEY (id),
     KEY idx_plate_number (plate_number),
-    KEY idx_parking_lot (parking_lot_id)
+    KEY idx_parking_lot_out_time (parking_lot_id, out_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='入场记录表';
\ No newline at end of file
@@ -7,7 +7,7 @@ CREATE TABLE IF NOT EXISTS charge_rule (
     car_type                VARCHAR(20)     NOT NULL DEFAULT 'ALL' COMMENT '车辆类型：ALL/SMALL/LARGE/NEW_ENERGY',
     
     -- 计费模式：先只支持 1-按时长统一单价
-    charge_mode             TINYINT UNSIGNED NOT NULL DEFAULT 1 COMMENT '计费模式：1-按时长统一单价',
+    charge_mode             TINYINT UNSIGNED NOT NULL DEFAULT 1 COMMENT '计费模式：1-按时长统一单价，2-时段定额（每个连续时段收取一次单价）',
     
     -- 基础规则
     free_minutes            INT             NOT NULL DEFAULT 30 COMMENT '首免分钟数',
@@ -22,7 +22,7 @@ CREATE TABLE IF NOT EXISTS charge_rule (
     effective_end_date      DATE            NULL COMMENT '规则生效结束日期',
     
     -- 时段限制（例如：08:00-22:00，后续可扩展为多时段 JSON）
-    effective_time_range    VARCHAR(50)     NULL COMMENT '如：08:00-22:00',
+    effective_time_range    VARCHAR(50)     NULL COMMENT '如：08:00-22:00，跨零点如 22:00-08:00，为空表示全天',
     
     priority                INT             NOT NULL DEFAULT 0 COMMENT '优先级，数值越大越优先',
     status                  TINYINT UNSIGNED NOT NULL DEFAULT 1 COMMENT '1-启用，0-禁用',
@@ -0,0 +1,19 @@
+-- 事件发件箱表：与业务数据在同一事务中写入，由后台分发器批量投递（至少一次，同车场按 lot_seq 顺序）
+CREATE TABLE IF NOT EXISTS event_outbox (
+    id                BIGINT       NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+    event_type        VARCHAR(50)  NOT NULL COMMENT '事件类型：EXIT_SETTLED/ORDER_CHANGED等',
+    parking_iot_id    BIGINT       NOT NULL DEFAULT 0 COMMENT '所属车场ID（顺序分区），0表示未关联车场',
+    lot_seq           BIGINT       NULL COMMENT '车场内序号（在写入事务内持有车场序号行锁分配，即同车场提交顺序）',
+    aggregate_id      BIGINT       NULL COMMENT '业务主键（入场记录ID/订单ID，按事件类型而定）',
+    payload           VARCHAR(2000) NULL COMMENT '事件内容（JSON）',
+    status            TINYINT      NOT NULL DEFAULT 0 COMMENT '状态：0-待投递，1-已投递，2-投递失败次数超限',
+    attempts          INT          NOT NULL DEFAULT 0 COMMENT '已失败次数',
+    next_attempt_time DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '下次可投递时间（失败后按指数退避）',
+    last_error        VARCHAR(500) NULL COMMENT '最近一次失败原因',
+    created_time      DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_time      DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (id),
+    KEY idx_status_id (status, id),
+    KEY idx_status_lot_seq (status, parking_iot_id, lot_seq),
+    KEY idx_status_updated (status, updated_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='事件发件箱表';
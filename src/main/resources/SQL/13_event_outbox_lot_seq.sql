@@ -0,0 +1,26 @@
+-- 发件箱车场序号表：写入事件时在业务事务内 +1 并持有行锁直到提交，同车场事件的 lot_seq 顺序即提交顺序
+-- 事务回滚时序号一并回滚，同车场序号连续无空洞
+CREATE TABLE IF NOT EXISTS outbox_lot_sequence (
+    parking_iot_id    BIGINT       NOT NULL COMMENT '车场ID，0表示未关联车场',
+    last_seq          BIGINT       NOT NULL DEFAULT 0 COMMENT '已分配的最大序号',
+    PRIMARY KEY (parking_iot_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='发件箱车场序号表';
+
+-- 已有 event_outbox 表补充 lot_seq 列和索引（可重复执行）
+SET @ddl = (SELECT IF(COUNT(*) = 0,
+    'ALTER TABLE event_outbox ADD COLUMN lot_seq BIGINT NULL COMMENT ''车场内序号（在写入事务内持有车场序号行锁分配，即同车场提交顺序）'' AFTER parking_iot_id',
+    'SELECT 1')
+    FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'event_outbox' AND column_name = 'lot_seq');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = (SELECT IF(COUNT(*) = 0,
+    'ALTER TABLE event_outbox ADD KEY idx_status_lot_seq (status, parking_iot_id, lot_seq)',
+    'SELECT 1')
+    FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'event_outbox' AND index_name = 'idx_status_lot_seq');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
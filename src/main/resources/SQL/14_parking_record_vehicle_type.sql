@@ -0,0 +1,9 @@
+-- 已有 parking_record 表补充 vehicle_type 列（可重复执行）
+SET @ddl = (SELECT IF(COUNT(*) = 0,
+    'ALTER TABLE parking_record ADD COLUMN vehicle_type VARCHAR(20) NULL COMMENT ''车辆类型：SMALL/LARGE/NEW_ENERGY，对应charge_rule.car_type，为空按ALL规则计费'' AFTER plate_number',
+    'SELECT 1')
+    FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'parking_record' AND column_name = 'vehicle_type');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,9 @@
+-- 已有 parking_record 表补充 (parking_lot_id, out_time) 索引，计费模拟按车场 + 出场时间范围扫描（可重复执行）
+SET @ddl = (SELECT IF(COUNT(*) = 0,
+    'ALTER TABLE parking_record ADD KEY idx_parking_lot_out_time (parking_lot_id, out_time)',
+    'SELECT 1')
+    FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'parking_record' AND index_name = 'idx_parking_lot_out_time');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
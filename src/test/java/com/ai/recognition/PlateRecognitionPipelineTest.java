@@ -0,0 +1,152 @@
+package com.ai.recognition;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 车牌识别流水线测试：结果与逐张识别一致、批大小不超上限、队列满时拒绝、关闭时结束积压和组批中的请求
+ */
+class PlateRecognitionPipelineTest {
+
+    private final StubPlateRecognizer stub = new StubPlateRecognizer();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private PlateRecognitionPipeline pipeline;
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    private PlateRecognitionPipeline start(PlateRecognizer recognizer, int capacity, int batchSize, int workers) {
+        pipeline = new PlateRecognitionPipeline(recognizer, registry, capacity, batchSize, 2, workers, 0);
+        pipeline.start();
+        return pipeline;
+    }
+
+    @Test
+    void resultsMatchDirectRecognition() throws Exception {
+        AtomicInteger maxBatch = new AtomicInteger();
+        start(paths -> {
+            maxBatch.accumulateAndGet(paths.size(), Math::max);
+            return stub.recognize(paths);
+        }, 4096, 8, 4);
+
+        List<CompletableFuture<PlateRecognition>> futures = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            futures.add(pipeline.submit("/data/gate/" + i + ".jpg"));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            PlateRecognition result = futures.get(i).get(10, TimeUnit.SECONDS);
+            String path = "/data/gate/" + i + ".jpg";
+            assertEquals(path, result.getImagePath());
+            assertEquals(stub.recognize(List.of(path)).get(0).getPlateNumber(), result.getPlateNumber());
+        }
+        assertTrue(maxBatch.get() <= 8);
+        assertEquals(2000L, registry.get(PlateRecognitionPipeline.STAGE_METRIC).tag("stage", "end_to_end").timer().count());
+    }
+
+    @Test
+    void stubIsDeterministic() {
+        PlateRecognition first = stub.recognize(List.of("/a.jpg")).get(0);
+        PlateRecognition second = new StubPlateRecognizer().recognize(List.of("/a.jpg")).get(0);
+        assertEquals(first.getPlateNumber(), second.getPlateNumber());
+        assertEquals(7, first.getPlateNumber().length());
+        assertTrue(first.getPlateNumber().chars().noneMatch(c -> c == 'I' || c == 'O'));
+    }
+
+    @Test
+    void fullQueueRejects() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        start(paths -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return stub.recognize(paths);
+        }, 4, 1, 1);
+
+        // 1 个工作线程、2 个在途批次、调度线程手上 1 个，之后才开始占用队列
+        List<CompletableFuture<PlateRecognition>> futures = new ArrayList<>();
+        int rejected = 0;
+        for (int i = 0; i < 50; i++) {
+            CompletableFuture<PlateRecognition> future = pipeline.submit("/p/" + i);
+            futures.add(future);
+            if (future.isCompletedExceptionally()) {
+                rejected++;
+            }
+            Thread.sleep(2);
+        }
+        assertTrue(rejected > 0);
+        assertEquals((double) rejected, registry.get("ai.plate.rejected").counter().count());
+
+        release.countDown();
+        int completed = 0;
+        for (CompletableFuture<PlateRecognition> future : futures) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                completed++;
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+        }
+        assertEquals(50, completed + rejected);
+    }
+
+    @Test
+    void recognizerFailureFailsWholeBatch() {
+        start(paths -> {
+            throw new IllegalStateException("model unavailable");
+        }, 16, 4, 1);
+        CompletableFuture<PlateRecognition> future = pipeline.submit("/x");
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> future.get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void shutdownWhileLingeringRejectsCollectedBatch() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        pipeline = new PlateRecognitionPipeline(paths -> {
+            calls.incrementAndGet();
+            return stub.recognize(paths);
+        }, registry, 16, 8, 60_000, 1, 0);
+        pipeline.start();
+        CompletableFuture<PlateRecognition> first = pipeline.submit("/linger/1");
+        CompletableFuture<PlateRecognition> second = pipeline.submit("/linger/2");
+        // 调度线程取走请求后在 linger 时间内等待凑批
+        Thread.sleep(200);
+
+        pipeline.shutdown();
+        for (CompletableFuture<PlateRecognition> future : List.of(first, second)) {
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> future.get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(0, calls.get());
+        assertEquals(2.0, registry.get("ai.plate.rejected").counter().count());
+    }
+
+    @Test
+    void submitAfterShutdownIsRejected() {
+        start(stub, 16, 4, 1);
+        pipeline.shutdown();
+        assertTrue(pipeline.submit("/late").isCompletedExceptionally());
+    }
+}
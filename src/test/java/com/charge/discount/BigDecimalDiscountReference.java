@@ -0,0 +1,147 @@
+package com.charge.discount;
+
+import com.charge.entity.DiscountRule;
+import com.charge.entity.Member;
+import com.charge.entity.OrderDiscount;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 原 ChargeServiceImpl.calculateDiscounts 的 BigDecimal 实现（去掉缓存/数据库加载），
+ * 作为 DiscountCalculator 的对照基准（单元测试和基准测试共用）
+ */
+public final class BigDecimalDiscountReference {
+
+    long originalAmount;
+    long totalDiscountAmount;
+    long payableAmount;
+    List<OrderDiscount> discountRecords = new ArrayList<>();
+
+    private BigDecimalDiscountReference(long originalAmount) {
+        this.originalAmount = originalAmount;
+        this.payableAmount = originalAmount;
+    }
+
+    public long getPayableAmount() {
+        return payableAmount;
+    }
+
+    public static BigDecimalDiscountReference calculate(long originalAmount, Member member, DiscountRule rule) {
+        BigDecimalDiscountReference result = new BigDecimalDiscountReference(originalAmount);
+
+        if (originalAmount <= 0) {
+            return result;
+        }
+
+        long base = originalAmount;
+
+        // ============ Step1: 会员优惠 ============
+        if (member != null && member.getStatus() != null && member.getStatus() == 1) {
+            Integer freeParking = member.getFreeParking();
+            if (freeParking != null && freeParking == 1) {
+                long memberDiscount = base;
+                if (memberDiscount > 0) {
+                    OrderDiscount od = new OrderDiscount();
+                    od.setSourceType("MEMBER");
+                    od.setRuleCode(null);
+                    od.setRuleName("会员免费停车");
+                    od.setDiscountType("FREE");
+                    od.setDiscountValue(100);
+                    od.setDiscountAmount(memberDiscount);
+                    result.discountRecords.add(od);
+
+                    result.totalDiscountAmount += memberDiscount;
+                    base -= memberDiscount;
+                }
+            } else if (member.getDiscountRate() != null && member.getDiscountRate().compareTo(BigDecimal.ONE) < 0) {
+                BigDecimal rate = member.getDiscountRate();
+                BigDecimal baseDec = BigDecimal.valueOf(base);
+                long memberPay = baseDec.multiply(rate)
+                        .setScale(0, RoundingMode.DOWN)
+                        .longValue();
+                if (memberPay < 0) {
+                    memberPay = 0;
+                }
+                long memberDiscount = base - memberPay;
+                if (memberDiscount > 0) {
+                    OrderDiscount od = new OrderDiscount();
+                    od.setSourceType("MEMBER");
+                    od.setRuleCode(null);
+                    od.setRuleName("会员折扣");
+                    od.setDiscountType("PERCENT");
+                    od.setDiscountValue(rate.multiply(BigDecimal.valueOf(100))
+                            .setScale(0, RoundingMode.DOWN)
+                            .intValue());
+                    od.setDiscountAmount(memberDiscount);
+                    result.discountRecords.add(od);
+
+                    result.totalDiscountAmount += memberDiscount;
+                    base = memberPay;
+                }
+            }
+        }
+
+        if (base <= 0) {
+            result.payableAmount = 0;
+            return result;
+        }
+
+        // ============ Step2: 规则 / 券 优惠（discount_rule） ============
+        if (rule != null) {
+            String type = rule.getDiscountType();
+            Integer value = rule.getDiscountValue();
+            Integer max = rule.getMaxDiscount();
+
+            long ruleDiscount = 0L;
+
+            if ("PERCENT".equalsIgnoreCase(type)) {
+                if (value != null && value > 0 && value < 100) {
+                    BigDecimal percent = BigDecimal.valueOf(value)
+                            .divide(BigDecimal.valueOf(100), 4, RoundingMode.HALF_UP);
+                    long pay = BigDecimal.valueOf(base)
+                            .multiply(percent)
+                            .setScale(0, RoundingMode.DOWN)
+                            .longValue();
+                    if (pay < 0) {
+                        pay = 0;
+                    }
+                    ruleDiscount = base - pay;
+                }
+            } else if ("FIXED".equalsIgnoreCase(type)) {
+                if (value != null && value > 0) {
+                    ruleDiscount = value.longValue();
+                }
+            }
+
+            if (ruleDiscount > base) {
+                ruleDiscount = base;
+            }
+            if (max != null && max > 0 && ruleDiscount > max.longValue()) {
+                ruleDiscount = max.longValue();
+            }
+
+            if (ruleDiscount > 0) {
+                OrderDiscount od = new OrderDiscount();
+                od.setSourceType("RULE");
+                od.setRuleCode(rule.getRuleCode());
+                od.setRuleName(rule.getRuleName());
+                od.setDiscountType(type);
+                od.setDiscountValue(value);
+                od.setDiscountAmount(ruleDiscount);
+                result.discountRecords.add(od);
+
+                result.totalDiscountAmount += ruleDiscount;
+                base -= ruleDiscount;
+            }
+        }
+
+        if (base < 0) {
+            base = 0;
+        }
+        result.payableAmount = base;
+        return result;
+    }
+}
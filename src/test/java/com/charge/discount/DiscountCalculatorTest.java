@@ -0,0 +1,199 @@
+package com.charge.discount;
+
+import com.charge.entity.DiscountRule;
+import com.charge.entity.Member;
+import com.charge.entity.OrderDiscount;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 定点数优惠计算与原 BigDecimal 实现的逐位对照测试
+ */
+class DiscountCalculatorTest {
+
+    private static final long[] EDGE_BASES = {
+            1L, 2L, 3L, 99L, 100L, 101L, 9999L, 10000L, 10001L,
+            Integer.MAX_VALUE, Integer.MAX_VALUE + 1L,
+            Long.MAX_VALUE / 10000, Long.MAX_VALUE / 100, Long.MAX_VALUE - 1, Long.MAX_VALUE
+    };
+
+    private static Member member(BigDecimal rate, Integer freeParking, Integer status) {
+        Member member = new Member();
+        member.setId(1L);
+        member.setUserId(1L);
+        member.setDiscountRate(rate);
+        member.setFreeParking(freeParking);
+        member.setStatus(status);
+        return member;
+    }
+
+    private static DiscountRule rule(String type, Integer value, Integer max) {
+        DiscountRule rule = new DiscountRule();
+        rule.setId(1L);
+        rule.setRuleCode("R1");
+        rule.setRuleName("测试规则");
+        rule.setDiscountType(type);
+        rule.setDiscountValue(value);
+        rule.setMaxDiscount(max);
+        return rule;
+    }
+
+    private static void assertSame(long originalAmount, Member member, DiscountRule rule) {
+        BigDecimalDiscountReference expected = BigDecimalDiscountReference.calculate(originalAmount, member, rule);
+        DiscountOutcome actual = DiscountCalculator.calculate(originalAmount, member,
+                rule != null ? rule.getRuleCode() : null, code -> rule);
+        String context = "amount=" + originalAmount
+                + ", rate=" + (member != null ? member.getDiscountRate() : null)
+                + ", rule=" + (rule != null ? rule.getDiscountType() + "/" + rule.getDiscountValue()
+                + "/" + rule.getMaxDiscount() : null);
+
+        assertEquals(expected.originalAmount, actual.getOriginalAmount(), context);
+        assertEquals(expected.totalDiscountAmount, actual.getTotalDiscountAmount(), context);
+        assertEquals(expected.payableAmount, actual.getPayableAmount(), context);
+
+        List<OrderDiscount> records = actual.toOrderDiscounts();
+        assertEquals(expected.discountRecords.size(), records.size());
+        for (int i = 0; i < records.size(); i++) {
+            OrderDiscount e = expected.discountRecords.get(i);
+            OrderDiscount a = records.get(i);
+            assertEquals(e.getSourceType(), a.getSourceType(), context);
+            assertEquals(e.getRuleCode(), a.getRuleCode(), context);
+            assertEquals(e.getRuleName(), a.getRuleName(), context);
+            assertEquals(e.getDiscountType(), a.getDiscountType(), context);
+            assertEquals(e.getDiscountValue(), a.getDiscountValue(), context);
+            assertEquals(e.getDiscountAmount(), a.getDiscountAmount(), context);
+        }
+    }
+
+    @Test
+    void memberRateSweepMatchesBigDecimal() {
+        // DECIMAL(5,2) 能表示的全部小于 1 的折扣系数（含负数） x 0 ~ 20000 分
+        for (int cents = -100; cents < 100; cents++) {
+            Member member = member(BigDecimal.valueOf(cents, 2), 0, 1);
+            for (long base = 0; base <= 20000; base++) {
+                assertSame(base, member, null);
+            }
+            for (long base : EDGE_BASES) {
+                assertSame(base, member, null);
+            }
+        }
+    }
+
+    @Test
+    void memberRateWithMoreDecimalPlacesMatchesBigDecimal() {
+        String[] rates = {
+                "0.8555", "0.0001", "0.9999", "0.850000", "0.12345", "0.999999999",
+                "-0.00001", "1E-10", "0E-8", "0.5E+0", "-1.5", "-99999999999"
+        };
+        for (String rate : rates) {
+            Member member = member(new BigDecimal(rate), null, 1);
+            for (long base = 0; base <= 5000; base++) {
+                assertSame(base, member, null);
+            }
+            for (long base : EDGE_BASES) {
+                assertSame(base, member, null);
+            }
+        }
+    }
+
+    @Test
+    void memberFlagsMatchBigDecimal() {
+        BigDecimal[] rates = {null, new BigDecimal("0.80"), BigDecimal.ONE, new BigDecimal("1.20")};
+        Integer[] flags = {null, 0, 1, 2};
+        for (BigDecimal rate : rates) {
+            for (Integer freeParking : flags) {
+                for (Integer status : flags) {
+                    Member member = member(rate, freeParking, status);
+                    for (long base : EDGE_BASES) {
+                        assertSame(base, member, rule("FIXED", 300, null));
+                    }
+                    assertSame(0L, member, null);
+                    assertSame(-1L, member, null);
+                }
+            }
+        }
+    }
+
+    @Test
+    void percentRuleSweepMatchesBigDecimal() {
+        Integer[] maxes = {null, -1, 0, 1, 50, 1000};
+        for (int value = -1; value <= 101; value++) {
+            for (Integer max : maxes) {
+                DiscountRule rule = rule(value % 2 == 0 ? "PERCENT" : "percent", value, max);
+                for (long base = 0; base <= 5000; base++) {
+                    assertSame(base, null, rule);
+                }
+                for (long base : EDGE_BASES) {
+                    assertSame(base, null, rule);
+                }
+            }
+        }
+    }
+
+    @Test
+    void fixedAndUnknownRulesMatchBigDecimal() {
+        Integer[] values = {null, -100, 0, 1, 299, 300, 301, 5000, Integer.MAX_VALUE};
+        Integer[] maxes = {null, 0, 200, 400};
+        String[] types = {"FIXED", "fixed", "FREE", null};
+        for (String type : types) {
+            for (Integer value : values) {
+                for (Integer max : maxes) {
+                    DiscountRule rule = rule(type, value, max);
+                    for (long base = 0; base <= 1000; base++) {
+                        assertSame(base, null, rule);
+                    }
+                    for (long base : EDGE_BASES) {
+                        assertSame(base, null, rule);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void randomizedPipelineMatchesBigDecimal() {
+        SplittableRandom random = new SplittableRandom(20250301L);
+        String[] types = {"PERCENT", "FIXED", "percent", "OTHER"};
+        for (int i = 0; i < 500_000; i++) {
+            long base = random.nextInt(4) == 0 ? random.nextLong(Long.MAX_VALUE) : random.nextLong(0, 500_000);
+            Member member = null;
+            if (random.nextBoolean()) {
+                BigDecimal rate = random.nextInt(8) == 0
+                        ? BigDecimal.valueOf(random.nextLong(-2_000_000, 2_000_000), random.nextInt(0, 9))
+                        : BigDecimal.valueOf(random.nextInt(0, 101), 2);
+                member = member(rate, random.nextInt(5) == 0 ? 1 : 0, random.nextInt(6) == 0 ? 0 : 1);
+            }
+            DiscountRule rule = null;
+            if (random.nextBoolean()) {
+                Integer max = random.nextBoolean() ? null : random.nextInt(0, 5000);
+                rule = rule(types[random.nextInt(types.length)], random.nextInt(-10, 10_000), max);
+            }
+            assertSame(base, member, rule);
+        }
+    }
+
+    @Test
+    void ruleIsNotLoadedWhenMemberCoversWholeAmount() {
+        boolean[] loaded = new boolean[1];
+        DiscountOutcome outcome = DiscountCalculator.calculate(1500L, member(null, 1, 1), "R1", code -> {
+            loaded[0] = true;
+            return rule("FIXED", 100, null);
+        });
+        assertEquals(0L, outcome.getPayableAmount());
+        assertTrue(!loaded[0]);
+    }
+
+    @Test
+    void multiplyDownDoesNotOverflow() {
+        assertEquals(Long.MAX_VALUE / 10000 * 9999 + (Long.MAX_VALUE % 10000) * 9999 / 10000,
+                DiscountCalculator.multiplyDown(Long.MAX_VALUE, 9999, 10000));
+        assertEquals(new BigDecimal(Long.MAX_VALUE).multiply(new BigDecimal("0.9999")).longValue(),
+                DiscountCalculator.multiplyDown(Long.MAX_VALUE, 9999, 10000));
+    }
+}
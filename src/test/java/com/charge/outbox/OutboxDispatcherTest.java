@@ -0,0 +1,238 @@
+package com.charge.outbox;
+
+import com.charge.entity.OutboxEvent;
+import com.charge.mapper.OutboxEventMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 发件箱分发测试：同车场按 lot_seq 顺序、失败退避、失败超限放行、分批拉取、无处理器的事件直接确认
+ */
+class OutboxDispatcherTest {
+
+    @Test
+    void failedEventBlocksItsLotOnly() {
+        InMemoryOutbox outbox = new InMemoryOutbox();
+        outbox.add(1L, "A");
+        outbox.add(1L, "B");
+        outbox.add(2L, "C");
+        RecordingHandler handler = new RecordingHandler("A");
+        OutboxDispatcher dispatcher = dispatcher(outbox, handler, 100, 10);
+
+        assertEquals(1, dispatcher.drain());
+        assertEquals(List.of("A", "C"), handler.seen);
+        OutboxEvent failed = outbox.find("A");
+        assertEquals(0, (int) failed.getStatus());
+        assertEquals(1, (int) failed.getAttempts());
+        assertTrue(failed.getNextAttemptTime().isAfter(LocalDateTime.now()));
+        assertEquals(0, (int) outbox.find("B").getStatus());
+        assertEquals(1, (int) outbox.find("C").getStatus());
+
+        // 退避期间同车场后续事件不投递
+        handler.seen.clear();
+        assertEquals(0, dispatcher.drain());
+        assertEquals(Collections.emptyList(), handler.seen);
+
+        // 到期后按顺序补投
+        handler.failing.clear();
+        failed.setNextAttemptTime(LocalDateTime.now().minusSeconds(1));
+        assertEquals(2, dispatcher.drain());
+        assertEquals(List.of("A", "B"), handler.seen);
+    }
+
+    @Test
+    void deadEventReleasesLot() {
+        InMemoryOutbox outbox = new InMemoryOutbox();
+        outbox.add(1L, "A");
+        outbox.add(1L, "B");
+        RecordingHandler handler = new RecordingHandler("A");
+        OutboxDispatcher dispatcher = dispatcher(outbox, handler, 100, 1);
+
+        assertEquals(1, dispatcher.drain());
+        assertEquals(2, (int) outbox.find("A").getStatus());
+        assertEquals(1, (int) outbox.find("B").getStatus());
+        assertEquals(1L, (long) dispatcher.stats().get("dead"));
+    }
+
+    @Test
+    void drainsAcrossBatchesAndAcknowledgesUnhandledTypes() {
+        InMemoryOutbox outbox = new InMemoryOutbox();
+        for (int i = 0; i < 5; i++) {
+            outbox.add((long) (i % 2), "E" + i);
+        }
+        OutboxEvent unhandled = outbox.add(3L, "X");
+        unhandled.setEventType("UNKNOWN");
+        RecordingHandler handler = new RecordingHandler();
+        OutboxDispatcher dispatcher = dispatcher(outbox, handler, 2, 10);
+
+        assertEquals(6, dispatcher.drain());
+        assertEquals(List.of("E0", "E2", "E1", "E3", "E4"), handler.seen);
+        assertEquals(1, (int) unhandled.getStatus());
+        assertEquals(4, outbox.markDoneCalls);
+    }
+
+    @Test
+    void sameLotFollowsLotSeqNotId() {
+        InMemoryOutbox outbox = new InMemoryOutbox();
+        // 先插入（id 小）的事务后提交，拿到更大的 lot_seq
+        OutboxEvent committedLater = outbox.add(1L, "LATER");
+        OutboxEvent committedFirst = outbox.add(1L, "FIRST");
+        committedLater.setLotSeq(2L);
+        committedFirst.setLotSeq(1L);
+        RecordingHandler handler = new RecordingHandler();
+        OutboxDispatcher dispatcher = dispatcher(outbox, handler, 100, 10);
+
+        assertEquals(2, dispatcher.drain());
+        assertEquals(List.of("FIRST", "LATER"), handler.seen);
+    }
+
+    @Test
+    void backoffDoublesUpToCap() {
+        OutboxDispatcher dispatcher = dispatcher(new InMemoryOutbox(), new RecordingHandler(), 100, 10);
+        assertEquals(2000L, dispatcher.backoffMillis(1));
+        assertEquals(4000L, dispatcher.backoffMillis(2));
+        assertEquals(8000L, dispatcher.backoffMillis(3));
+        assertEquals(512000L, dispatcher.backoffMillis(9));
+        assertEquals(600000L, dispatcher.backoffMillis(10));
+        assertEquals(600000L, dispatcher.backoffMillis(64));
+    }
+
+    private static OutboxDispatcher dispatcher(InMemoryOutbox outbox, OutboxEventHandler handler,
+                                               int batchSize, int maxAttempts) {
+        return new OutboxDispatcher(outbox, null, List.of(handler), batchSize, maxAttempts, 2000L, 600000L);
+    }
+
+    /**
+     * 处理 TEST 类型事件，记录处理顺序（以 payload 作为事件名），对 failing 中的事件抛异常
+     */
+    private static class RecordingHandler implements OutboxEventHandler {
+
+        final List<String> seen = new ArrayList<>();
+        final Set<String> failing = new HashSet<>();
+
+        RecordingHandler(String... failing) {
+            Collections.addAll(this.failing, failing);
+        }
+
+        @Override
+        public Collection<String> eventTypes() {
+            return List.of("TEST");
+        }
+
+        @Override
+        public void handle(OutboxEvent event) {
+            seen.add(event.getPayload());
+            if (failing.contains(event.getPayload())) {
+                throw new IllegalStateException("fail " + event.getPayload());
+            }
+        }
+    }
+
+    private static class InMemoryOutbox implements OutboxEventMapper {
+
+        final List<OutboxEvent> events = new ArrayList<>();
+        final Map<Long, Long> lotSeqs = new HashMap<>();
+        int markDoneCalls;
+
+        OutboxEvent add(Long parkingIotId, String name) {
+            OutboxEvent event = new OutboxEvent();
+            event.setEventType("TEST");
+            event.setParkingIotId(parkingIotId);
+            event.setPayload(name);
+            nextLotSeq(parkingIotId);
+            insert(event);
+            return event;
+        }
+
+        OutboxEvent find(String name) {
+            return events.stream().filter(e -> name.equals(e.getPayload())).findFirst().orElseThrow();
+        }
+
+        @Override
+        public int nextLotSeq(Long parkingIotId) {
+            lotSeqs.merge(parkingIotId, 1L, Long::sum);
+            return 1;
+        }
+
+        @Override
+        public int insert(OutboxEvent event) {
+            event.setId((long) events.size() + 1);
+            event.setLotSeq(lotSeqs.get(event.getParkingIotId()));
+            event.setStatus(0);
+            event.setAttempts(0);
+            event.setNextAttemptTime(LocalDateTime.now().minusSeconds(1));
+            events.add(event);
+            return 1;
+        }
+
+        @Override
+        public List<Long> selectPendingLots(int limit, Collection<Long> excludeLots) {
+            return events.stream()
+                    .filter(e -> e.getStatus() == 0)
+                    .filter(e -> excludeLots == null || !excludeLots.contains(e.getParkingIotId()))
+                    .sorted(Comparator.comparing(OutboxEvent::getId))
+                    .map(OutboxEvent::getParkingIotId)
+                    .distinct()
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public List<OutboxEvent> selectPendingByLot(Long parkingIotId, int limit) {
+            return events.stream()
+                    .filter(e -> e.getStatus() == 0)
+                    .filter(e -> Objects.equals(parkingIotId, e.getParkingIotId()))
+                    .sorted(Comparator.comparing(OutboxEvent::getLotSeq).thenComparing(OutboxEvent::getId))
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public int markDone(List<Long> ids) {
+            markDoneCalls++;
+            int updated = 0;
+            for (OutboxEvent e : events) {
+                if (ids.contains(e.getId()) && e.getStatus() == 0) {
+                    e.setStatus(1);
+                    updated++;
+                }
+            }
+            return updated;
+        }
+
+        @Override
+        public int markFailed(Long id, Integer status, Integer attempts,
+                              LocalDateTime nextAttemptTime, String lastError) {
+            for (OutboxEvent e : events) {
+                if (e.getId().equals(id)) {
+                    e.setStatus(status);
+                    e.setAttempts(attempts);
+                    e.setNextAttemptTime(nextAttemptTime);
+                    e.setLastError(lastError);
+                    return 1;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public int deleteDoneBefore(LocalDateTime before, int limit) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.charge.service.impl;
+
+import com.charge.entity.DTO.CalculateFeeRequest;
+import com.common.utils.SingleFlight;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * 出场结算合并 key：只有完全相同的请求才共享结果，出场时间、用户、优惠不同的并发请求各自结算
+ */
+class SettleKeyTest {
+
+    private static final LocalDateTime EXIT = LocalDateTime.parse("2025-03-01T10:00:00");
+
+    private static CalculateFeeRequest request(LocalDateTime exitTime, Long userId, String discountRuleCode) {
+        CalculateFeeRequest request = new CalculateFeeRequest();
+        request.setInRecordId(1L);
+        request.setExitTime(exitTime);
+        request.setUserId(userId);
+        request.setDiscountRuleCode(discountRuleCode);
+        return request;
+    }
+
+    @Test
+    void keyCoversExitTimeUserAndDiscount() {
+        SettleKey base = SettleKey.of(request(EXIT, 7L, "D1"));
+        assertEquals(base, SettleKey.of(request(EXIT, 7L, "D1")));
+        assertEquals(base.hashCode(), SettleKey.of(request(EXIT, 7L, "D1")).hashCode());
+        assertNotEquals(base, SettleKey.of(request(EXIT.plusMinutes(5), 7L, "D1")));
+        assertNotEquals(base, SettleKey.of(request(EXIT, 8L, "D1")));
+        assertNotEquals(base, SettleKey.of(request(EXIT, 7L, null)));
+    }
+
+    @Test
+    void concurrentSettlementsWithDifferentExitTimesRunSeparately() throws Exception {
+        SingleFlight<SettleKey, LocalDateTime> flight = new SingleFlight<>();
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            LocalDateTime laterExit = EXIT.plusMinutes(30);
+            Future<LocalDateTime> first = pool.submit(() -> settle(flight, request(EXIT, null, null), bothStarted));
+            Future<LocalDateTime> second = pool.submit(() -> settle(flight, request(laterExit, null, null), bothStarted));
+
+            // 两个请求同时在执行（未被合并），各自拿到自己出场时间的结果
+            assertEquals(EXIT, first.get(5, TimeUnit.SECONDS));
+            assertEquals(laterExit, second.get(5, TimeUnit.SECONDS));
+            assertEquals(2L, flight.getExecutions());
+            assertEquals(0L, flight.getCoalesced());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static LocalDateTime settle(SingleFlight<SettleKey, LocalDateTime> flight, CalculateFeeRequest request,
+                                        CountDownLatch bothStarted) {
+        return flight.execute(SettleKey.of(request), () -> {
+            bothStarted.countDown();
+            try {
+                if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("另一个结算请求被合并，未并发执行");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return request.getExitTime();
+        });
+    }
+}
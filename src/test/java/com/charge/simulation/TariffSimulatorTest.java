@@ -0,0 +1,163 @@
+package com.charge.simulation;
+
+import com.charge.entity.ChargeRule;
+import com.charge.entity.VO.TariffSimulationHourly;
+import com.charge.entity.VO.TariffSimulationResponse;
+import com.charge.tariff.CompiledTariff;
+import com.charge.tariff.TariffCompiler;
+import com.parking.entity.ParkingIot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 计费模拟测试：并行分块结果与逐条顺序计费一致，异常记录跳过，计费异常向上抛出，候选规则替换车场同 id 规则
+ */
+class TariffSimulatorTest {
+
+    private final TariffSimulator simulator = new TariffSimulator(null, null, null, null, 4);
+
+    @AfterEach
+    void tearDown() {
+        simulator.shutdown();
+    }
+
+    private static CompiledTariff tariff() {
+        ChargeRule day = new ChargeRule();
+        day.setId(1L);
+        day.setChargeMode(1);
+        day.setFreeMinutes(30);
+        day.setUnitPrice(500);
+        day.setMaxAmountPerDay(3000);
+        day.setPriority(1);
+        day.setEffectiveTimeRange("08:00-22:00");
+        ChargeRule night = new ChargeRule();
+        night.setId(2L);
+        night.setChargeMode(2);
+        night.setUnitPrice(1000);
+        return TariffCompiler.compile(List.of(day, night));
+    }
+
+    private static List<SimulatedSession> sessions(int count) {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime base = LocalDateTime.parse("2025-03-01T00:00:00");
+        List<SimulatedSession> sessions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SimulatedSession session = new SimulatedSession();
+            session.setRecordId((long) i);
+            LocalDateTime in = base.plusMinutes(random.nextInt(60 * 24 * 30));
+            session.setInTime(in);
+            session.setOutTime(in.plusMinutes(random.nextInt(60 * 24 * 3)));
+            session.setActualAmount(random.nextInt(4) == 0 ? null : (long) random.nextInt(5000));
+            sessions.add(session);
+        }
+        return sessions;
+    }
+
+    @Test
+    void parallelTotalsMatchSequential() {
+        CompiledTariff tariff = tariff();
+        // 不是整块数，覆盖最后一个不满的块
+        List<SimulatedSession> sessions = sessions(TariffSimulator.CHUNK_SIZE * 5 + 123);
+        SimulatedSession broken = sessions.get(7);
+        broken.setOutTime(broken.getInTime().minusMinutes(5));
+
+        long simulated = 0;
+        long simulatedWithOrder = 0;
+        long actual = 0;
+        long withOrder = 0;
+        long[] hourSessions = new long[24];
+        long[] hourDelta = new long[24];
+        for (SimulatedSession s : sessions) {
+            if (s == broken) {
+                continue;
+            }
+            long minutes = Math.max(1, Duration.between(s.getInTime(), s.getOutTime()).toMinutes());
+            long amount = tariff.calculate(s.getInTime(), minutes);
+            int hour = s.getOutTime().getHour();
+            simulated += amount;
+            hourSessions[hour]++;
+            if (s.getActualAmount() != null) {
+                withOrder++;
+                simulatedWithOrder += amount;
+                actual += s.getActualAmount();
+                hourDelta[hour] += amount - s.getActualAmount();
+            }
+        }
+
+        TariffSimulationResponse resp = simulator.run(sessions, (type, date) -> tariff).toResponse(1L, 0);
+        assertEquals(sessions.size() - 1, resp.getSessions());
+        assertEquals(1L, resp.getSkippedSessions());
+        assertEquals(withOrder, resp.getSessionsWithOrder());
+        assertEquals(simulated, resp.getSimulatedAmount());
+        assertEquals(actual, resp.getActualAmount());
+        assertEquals(simulatedWithOrder - actual, resp.getDeltaAmount());
+        assertEquals(24, resp.getHourly().size());
+        for (TariffSimulationHourly h : resp.getHourly()) {
+            assertEquals(hourSessions[h.getHour()], h.getSessions());
+            assertEquals(hourDelta[h.getHour()], h.getDeltaAmount());
+        }
+    }
+
+    @Test
+    void emptyRangeReturnsZeroTotals() {
+        TariffSimulationResponse resp = simulator.run(new ArrayList<>(), (type, date) -> tariff()).toResponse(1L, 0);
+        assertEquals(0L, resp.getSessions());
+        assertEquals(0L, resp.getDeltaAmount());
+    }
+
+    @Test
+    void workerFailureIsRethrown() {
+        List<SimulatedSession> sessions = sessions(TariffSimulator.CHUNK_SIZE * 3);
+        sessions.set(5, null);
+        CompiledTariff tariff = tariff();
+        assertThrows(NullPointerException.class, () -> simulator.run(sessions, (type, date) -> tariff));
+    }
+
+    @Test
+    void candidateReplacesItsRuleAmongLotRules() {
+        ChargeRule day = new ChargeRule();
+        day.setId(1L);
+        day.setParkingIotId(1L);
+        day.setChargeMode(1);
+        day.setFreeMinutes(0);
+        day.setUnitPrice(500);
+        day.setPriority(1);
+        day.setEffectiveTimeRange("08:00-22:00");
+        day.setStatus(1);
+        ChargeRule night = new ChargeRule();
+        night.setId(2L);
+        night.setParkingIotId(1L);
+        night.setChargeMode(2);
+        night.setUnitPrice(1000);
+        night.setStatus(1);
+        ChargeRule candidate = new ChargeRule();
+        candidate.setId(1L);
+        candidate.setParkingIotId(1L);
+        candidate.setChargeMode(1);
+        candidate.setFreeMinutes(0);
+        candidate.setUnitPrice(800);
+        candidate.setPriority(1);
+        candidate.setEffectiveTimeRange("08:00-22:00");
+        ParkingIot parkingIot = new ParkingIot();
+        parkingIot.setUnitPrice(400);
+        parkingIot.setMaxDailyAmount(5000);
+
+        CompiledTariff tariff = TariffSimulator.lotTariffs(candidate, List.of(day, night), parkingIot)
+                .resolve(null, LocalDate.parse("2025-03-01"));
+        // 白天按候选单价 800，夜间仍按原有的夜间定额 1000
+        LocalDateTime in = LocalDateTime.parse("2025-03-01T20:00:00");
+        assertEquals(800L * 2 + 1000L, tariff.calculate(in, 4 * 60));
+        // 车场每日封顶
+        assertEquals(5000L, tariff.calculate(LocalDateTime.parse("2025-03-01T08:00:00"), 14 * 60));
+    }
+}
@@ -0,0 +1,135 @@
+package com.charge.tariff;
+
+import com.charge.entity.ChargeRule;
+import com.common.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 规则快照测试：车型回退、优先级并列、生效日期按查询日期判断、单车场写时复制、车场每日封顶
+ */
+class ChargeRuleSnapshotTest {
+
+    private static final LocalDate DAY = LocalDate.parse("2025-03-01");
+
+    private static ChargeRule rule(long id, long lot, String carType, int priority, int unitPrice) {
+        ChargeRule rule = new ChargeRule();
+        rule.setId(id);
+        rule.setParkingIotId(lot);
+        rule.setRuleName("rule-" + id);
+        rule.setCarType(carType);
+        rule.setChargeMode(1);
+        rule.setFreeMinutes(0);
+        rule.setUnitPrice(unitPrice);
+        rule.setPriority(priority);
+        rule.setStatus(1);
+        return rule;
+    }
+
+    @Test
+    void carTypeFallsBackToAll() {
+        ChargeRuleSnapshot snapshot = ChargeRuleSnapshot.of(Arrays.asList(
+                rule(1, 10, "ALL", 0, 500),
+                rule(2, 10, "LARGE", 0, 1000)));
+
+        assertEquals(1L, snapshot.resolveTariff(10L, null, DAY).getRuleId());
+        assertEquals(1L, snapshot.resolveTariff(10L, "SMALL", DAY).getRuleId());
+        // 优先级并列时车型规则优先，车型大小写不敏感
+        assertEquals(2L, snapshot.resolveTariff(10L, "large", DAY).getRuleId());
+        assertNull(snapshot.resolveTariff(11L, null, DAY));
+    }
+
+    @Test
+    void higherPriorityAllRuleBeatsCarTypeRule() {
+        ChargeRuleSnapshot snapshot = ChargeRuleSnapshot.of(Arrays.asList(
+                rule(1, 10, "ALL", 5, 500),
+                rule(2, 10, "LARGE", 0, 1000)));
+        assertEquals(1L, snapshot.resolveTariff(10L, "LARGE", DAY).getRuleId());
+    }
+
+    @Test
+    void priorityTieBreaksOnId() {
+        ChargeRuleSnapshot snapshot = ChargeRuleSnapshot.of(Arrays.asList(
+                rule(7, 10, "ALL", 1, 500),
+                rule(3, 10, "ALL", 1, 800)));
+        assertEquals(3L, (long) snapshot.resolveRule(10L, null, DAY).getId());
+    }
+
+    @Test
+    void effectiveDatesAreCheckedAtLookup() {
+        ChargeRule base = rule(1, 10, "ALL", 0, 500);
+        ChargeRule promo = rule(2, 10, "ALL", 9, 200);
+        promo.setEffectiveStartDate(DAY);
+        promo.setEffectiveEndDate(DAY.plusDays(2));
+        ChargeRule future = rule(3, 10, "ALL", 0, 900);
+        future.setEffectiveStartDate(DAY.plusDays(10));
+        base.setEffectiveEndDate(DAY.plusDays(9));
+        ChargeRuleSnapshot snapshot = ChargeRuleSnapshot.of(Arrays.asList(base, promo, future));
+
+        assertEquals(1L, snapshot.resolveTariff(10L, null, DAY.minusDays(1)).getRuleId());
+        assertEquals(2L, snapshot.resolveTariff(10L, null, DAY).getRuleId());
+        assertEquals(2L, snapshot.resolveTariff(10L, null, DAY.plusDays(2)).getRuleId());
+        assertEquals(1L, snapshot.resolveTariff(10L, null, DAY.plusDays(3)).getRuleId());
+        assertEquals(1L, snapshot.resolveTariff(10L, null, DAY.plusDays(9)).getRuleId());
+        assertEquals(3L, snapshot.resolveTariff(10L, null, DAY.plusDays(10)).getRuleId());
+    }
+
+    @Test
+    void expiredRuleResolvesToNothing() {
+        ChargeRule rule = rule(1, 10, "ALL", 0, 500);
+        rule.setEffectiveEndDate(DAY);
+        ChargeRuleSnapshot snapshot = ChargeRuleSnapshot.of(Collections.singletonList(rule));
+        assertNotNull(snapshot.resolveTariff(10L, null, DAY));
+        assertNull(snapshot.resolveTariff(10L, null, DAY.plusDays(1)));
+    }
+
+    @Test
+    void withLotReplacesOnlyThatLot() {
+        ChargeRuleSnapshot before = ChargeRuleSnapshot.of(Arrays.asList(
+                rule(1, 10, "ALL", 0, 500),
+                rule(2, 20, "ALL", 0, 600)));
+        CompiledTariff lot20 = before.resolveTariff(20L, null, DAY);
+
+        ChargeRuleSnapshot after = before.withLot(10L, Collections.singletonList(rule(3, 10, "ALL", 0, 700)));
+        assertEquals(1L, before.resolveTariff(10L, null, DAY).getRuleId());
+        assertEquals(3L, after.resolveTariff(10L, null, DAY).getRuleId());
+        assertSame(lot20, after.resolveTariff(20L, null, DAY));
+
+        ChargeRuleSnapshot removed = after.withLot(10L, Collections.emptyList());
+        assertNull(removed.resolveTariff(10L, null, DAY));
+        assertEquals(1, removed.lotCount());
+    }
+
+    @Test
+    void lotDailyCapAppliesToEveryCarType() {
+        // 5元/小时，全天 24 小时不封顶为 12000
+        ChargeRuleSnapshot snapshot = ChargeRuleSnapshot.of(Arrays.asList(
+                rule(1, 10, "ALL", 0, 500),
+                rule(2, 10, "LARGE", 0, 500),
+                rule(3, 20, "ALL", 0, 500)), Map.of(10L, 2000));
+        assertEquals(2000L, snapshot.resolveTariff(10L, null, DAY).calculate(24 * 60));
+        assertEquals(2000L, snapshot.resolveTariff(10L, "LARGE", DAY).calculate(24 * 60));
+        assertEquals(12000L, snapshot.resolveTariff(20L, null, DAY).calculate(24 * 60));
+
+        ChargeRuleSnapshot after = snapshot.withLot(20L, Collections.singletonList(rule(3, 20, "ALL", 0, 500)), 3000);
+        assertEquals(3000L, after.resolveTariff(20L, null, DAY).calculate(24 * 60));
+    }
+
+    @Test
+    void invalidRuleFailsAtLookup() {
+        ChargeRule broken = rule(1, 10, "ALL", 0, 500);
+        broken.setUnitPrice(null);
+        ChargeRuleSnapshot snapshot = ChargeRuleSnapshot.of(Collections.singletonList(broken));
+        assertThrows(BusinessException.class, () -> snapshot.resolveTariff(10L, null, DAY));
+    }
+}
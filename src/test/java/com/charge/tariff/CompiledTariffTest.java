@@ -0,0 +1,310 @@
+package com.charge.tariff;
+
+import com.charge.entity.ChargeRule;
+import com.parking.entity.ParkingIot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 计费规则金额黄金值测试（含跨零点、每日封顶、长时停车、分时段计费）
+ */
+class CompiledTariffTest {
+
+    /**
+     * 首免30分钟，5元/小时，每日封顶30元
+     */
+    private static CompiledTariff dailyCapped() {
+        ChargeRule rule = new ChargeRule();
+        rule.setId(1L);
+        rule.setChargeMode(1);
+        rule.setFreeMinutes(30);
+        rule.setUnitPrice(500);
+        rule.setMaxAmountPerDay(3000);
+        return TariffCompiler.compile(rule);
+    }
+
+    private static long fee(CompiledTariff tariff, String in, String out) {
+        LocalDateTime inTime = LocalDateTime.parse(in);
+        long minutes = Duration.between(inTime, LocalDateTime.parse(out)).toMinutes();
+        return tariff.calculate(inTime, minutes);
+    }
+
+    @Test
+    void withinFreeMinutes() {
+        assertEquals(0L, fee(dailyCapped(), "2025-03-01T10:00:00", "2025-03-01T10:20:00"));
+        assertEquals(0L, fee(dailyCapped(), "2025-03-01T10:00:00", "2025-03-01T10:30:00"));
+    }
+
+    @Test
+    void sameDayRoundsUpToHour() {
+        // 计费 90 分钟 -> 2 小时
+        assertEquals(1000L, fee(dailyCapped(), "2025-03-01T10:00:00", "2025-03-01T12:00:00"));
+    }
+
+    @Test
+    void crossingMidnightDoesNotSplitBillingHours() {
+        // 计费起点 22:30，计费单元 22:30 / 23:30 / 00:30 / 01:30
+        assertEquals(2000L, fee(dailyCapped(), "2025-03-01T22:00:00", "2025-03-02T02:00:00"));
+        // 计费单元 23:30 / 00:30，与不跨天时相同
+        assertEquals(1000L, fee(dailyCapped(), "2025-03-01T23:00:00", "2025-03-02T01:00:00"));
+    }
+
+    @Test
+    void dailyCapAppliesPerCalendarDay() {
+        // 3/1: 08:30~23:30 共16个单元 -> 封顶3000；3/2: 00:30~07:30 共8个单元 -> 封顶3000
+        assertEquals(6000L, fee(dailyCapped(), "2025-03-01T08:00:00", "2025-03-02T08:00:00"));
+        // 3/1: 20:30~23:30 共4个单元 -> 2000；3/2: 00:30~01:30 共2个单元 -> 1000
+        assertEquals(3000L, fee(dailyCapped(), "2025-03-01T20:00:00", "2025-03-02T02:00:00"));
+    }
+
+    @Test
+    void midnightEntryWithoutFreeMinutes() {
+        ChargeRule rule = new ChargeRule();
+        rule.setFreeMinutes(0);
+        rule.setUnitPrice(500);
+        rule.setMaxAmountPerDay(3000);
+        CompiledTariff tariff = TariffCompiler.compile(rule);
+
+        assertEquals(3000L, fee(tariff, "2025-03-01T00:00:00", "2025-03-02T00:00:00"));
+        // 第25个单元从 3/2 00:00 开始，归属第二天
+        assertEquals(3500L, fee(tariff, "2025-03-01T00:00:00", "2025-03-02T00:01:00"));
+    }
+
+    @Test
+    void leapDayAndYearEnd() {
+        // 2/28: 4个单元 2000；2/29: 整天 3000；3/1: 4个单元 2000
+        assertEquals(7000L, fee(dailyCapped(), "2024-02-28T20:00:00", "2024-03-01T04:00:00"));
+        // 12/31: 22:30 / 23:30 -> 1000；1/1: 00:30 ~ 10:30 共11个单元 -> 封顶3000
+        assertEquals(4000L, fee(dailyCapped(), "2025-12-31T22:00:00", "2026-01-01T11:00:00"));
+    }
+
+    @Test
+    void monthsLongStayIsClosedForm() {
+        // 90 个整天，每天 24 个单元，均封顶
+        assertEquals(90L * 3000L, fee(dailyCapped(), "2025-01-01T00:00:00", "2025-04-01T00:00:00"));
+        // 约 3 年
+        assertEquals(1096L * 3000L, fee(dailyCapped(), "2024-01-01T00:00:00", "2027-01-01T00:00:00"));
+    }
+
+    @Test
+    void sessionCapAppliedAfterDailyCap() {
+        ChargeRule rule = new ChargeRule();
+        rule.setFreeMinutes(30);
+        rule.setUnitPrice(500);
+        rule.setMaxAmountPerDay(3000);
+        rule.setMaxAmountPerSession(5000);
+        CompiledTariff tariff = TariffCompiler.compile(rule);
+
+        assertEquals(5000L, fee(tariff, "2025-03-01T08:00:00", "2025-03-04T08:00:00"));
+    }
+
+    @Test
+    void lotDefaultUsesMaxDailyAmount() {
+        ParkingIot parkingIot = new ParkingIot();
+        parkingIot.setUnitPrice(400);
+        parkingIot.setMaxDailyAmount(2000);
+        CompiledTariff tariff = TariffCompiler.compileDefault(parkingIot);
+
+        assertEquals(4000L, fee(tariff, "2025-03-01T09:00:00", "2025-03-02T18:00:00"));
+    }
+
+    @Test
+    void lotDailyCapAppliesToRules() {
+        List<ChargeRule> rules = Arrays.asList(segment(1L, 1, 500, null));
+        rules.get(0).setMaxAmountPerDay(3000);
+
+        // 车场封顶更低时按车场封顶，规则未配置封顶时也按车场封顶
+        assertEquals(2000L, fee(TariffCompiler.compile(rules, 2000),
+                "2025-03-01T08:00:00", "2025-03-01T20:00:00"));
+        rules.get(0).setMaxAmountPerDay(null);
+        assertEquals(2000L, fee(TariffCompiler.compile(rules, 2000),
+                "2025-03-01T08:00:00", "2025-03-01T20:00:00"));
+        // 规则封顶更低时按规则封顶
+        rules.get(0).setMaxAmountPerDay(1500);
+        assertEquals(1500L, fee(TariffCompiler.compile(rules, 2000),
+                "2025-03-01T08:00:00", "2025-03-01T20:00:00"));
+    }
+
+    @Test
+    void withoutDailyCapMatchesHourlyFormula() {
+        ChargeRule rule = new ChargeRule();
+        rule.setFreeMinutes(15);
+        rule.setUnitPrice(300);
+        rule.setMaxAmountPerSession(20000);
+        CompiledTariff tariff = TariffCompiler.compile(rule);
+
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 10000; i++) {
+            long inSecond = random.nextLong(0, 86400L * 365);
+            long minutes = random.nextLong(1, 60 * 24 * 10);
+            long chargeMinutes = minutes - 15;
+            long expected = chargeMinutes <= 0 ? 0 : Math.min(20000, (chargeMinutes + 59) / 60 * 300);
+            assertEquals(expected, tariff.calculate(inSecond, minutes));
+        }
+    }
+
+    @Test
+    void amountIsConstantWithinPriceStep() {
+        CompiledTariff tariff = dayAndNight();
+        long inSecond = LocalDateTime.parse("2025-03-01T21:10:00").toEpochSecond(ZoneOffset.UTC);
+        for (long minutes = 1; minutes < 60 * 30; minutes++) {
+            long start = tariff.priceStepStartMinutes(minutes);
+            long next = tariff.nextPriceChangeMinutes(minutes);
+            assertTrue(start <= minutes && minutes < next);
+            assertEquals(tariff.calculate(inSecond, start), tariff.calculate(inSecond, minutes));
+            assertEquals(tariff.calculate(inSecond, next - 1), tariff.calculate(inSecond, minutes));
+        }
+        // 首免 30 分钟内为第一个阶梯，第 31 分钟开始计费
+        assertEquals(0L, dailyCapped().priceStepStartMinutes(30));
+        assertEquals(31L, dailyCapped().nextPriceChangeMinutes(30));
+        assertEquals(91L, dailyCapped().nextPriceChangeMinutes(31));
+    }
+
+    private static ChargeRule segment(long id, int mode, int price, String timeRange) {
+        ChargeRule rule = new ChargeRule();
+        rule.setId(id);
+        rule.setRuleName("rule-" + id);
+        rule.setChargeMode(mode);
+        rule.setFreeMinutes(0);
+        rule.setUnitPrice(price);
+        rule.setEffectiveTimeRange(timeRange);
+        return rule;
+    }
+
+    /**
+     * 白天 08:00-22:00 5元/小时；夜间 22:00-08:00 定额10元
+     */
+    private static CompiledTariff dayAndNight() {
+        return TariffCompiler.compile(Arrays.asList(
+                segment(1L, 1, 500, "08:00-22:00"),
+                segment(2L, 2, 1000, "22:00-08:00")));
+    }
+
+    @Test
+    void daySegmentOnly() {
+        assertEquals(1500L, fee(dayAndNight(), "2025-03-01T09:00:00", "2025-03-01T11:10:00"));
+        assertEquals("rule-1", dayAndNight().getRuleName());
+    }
+
+    @Test
+    void nightFlatChargedOncePerNight() {
+        // 21:30 白天 500；22:30 ~ 07:30 夜间定额 1000（跨零点仍是同一个时段）；08:30 白天 500
+        assertEquals(2000L, fee(dayAndNight(), "2025-03-01T21:30:00", "2025-03-02T09:00:00"));
+        // 入场时已在夜间时段中，同样收取一次定额
+        assertEquals(1000L, fee(dayAndNight(), "2025-03-02T01:00:00", "2025-03-02T03:00:00"));
+        // 两个夜晚各收一次
+        assertEquals(1000L + 14 * 500L + 1000L,
+                fee(dayAndNight(), "2025-03-01T23:00:00", "2025-03-02T23:00:00"));
+    }
+
+    @Test
+    void higherPriorityRuleOverridesRange() {
+        // 全天 3元/小时，高峰 17:00-19:00 8元/小时（优先级更高，排在前面）
+        CompiledTariff tariff = TariffCompiler.compile(Arrays.asList(
+                segment(1L, 1, 800, "17:00-19:00"),
+                segment(2L, 1, 300, null)));
+        // 16:00 / 17:00 / 18:00 / 19:00
+        assertEquals(300L + 800L + 800L + 300L, fee(tariff, "2025-03-01T16:00:00", "2025-03-01T20:00:00"));
+        // 计费单元按开始时刻计价：16:30 -> 300，17:30 / 18:30 -> 800
+        assertEquals(300L + 800L + 800L, fee(tariff, "2025-03-01T16:30:00", "2025-03-01T19:30:00"));
+    }
+
+    @Test
+    void uncoveredMinutesUsePrimaryRule() {
+        CompiledTariff tariff = TariffCompiler.compile(segment(1L, 1, 500, "08:00-22:00"));
+        assertEquals(24 * 500L, tariff.calculate(24 * 60));
+    }
+
+    @Test
+    void invalidTimeRangeRejected() {
+        assertThrows(RuntimeException.class, () -> TariffCompiler.parseTimeRange("8点-22点"));
+        assertThrows(RuntimeException.class, () -> TariffCompiler.parseTimeRange("08:00-24:30"));
+        assertThrows(RuntimeException.class, () -> TariffCompiler.parseTimeRange("08:00"));
+        assertEquals(1440, TariffCompiler.parseTimeRange("00:00-24:00")[1]);
+    }
+
+    @Test
+    void segmentedTariffMatchesUnitByUnitWalk() {
+        List<ChargeRule> rules = Arrays.asList(
+                segment(1L, 1, 800, "17:15-19:40"),
+                segment(2L, 2, 1200, "22:10-07:50"),
+                segment(3L, 1, 300, null));
+        rules.get(0).setFreeMinutes(20);
+        rules.get(0).setMaxAmountPerDay(6000);
+        rules.get(0).setMaxAmountPerSession(50000);
+        CompiledTariff tariff = TariffCompiler.compile(rules);
+
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < 20000; i++) {
+            long inSecond = random.nextLong(0, 86400L * 365);
+            long minutes = random.nextLong(1, 60 * 24 * 5);
+            assertEquals(walk(inSecond, minutes), tariff.calculate(inSecond, minutes));
+        }
+    }
+
+    /**
+     * 逐个计费单元累加的参照实现（与上面的规则配置对应）
+     */
+    private static long walk(long inSecond, long totalMinutes) {
+        long chargeMinutes = totalMinutes - 20;
+        if (chargeMinutes <= 0) {
+            return 0L;
+        }
+        long units = (chargeMinutes + 59) / 60;
+        long start = inSecond + 20 * 60;
+        long total = 0L;
+        long dayTotal = 0L;
+        long currentDay = Math.floorDiv(start, 86400L);
+        for (long k = 0; k < units; k++) {
+            long unitStart = start + k * 3600;
+            long day = Math.floorDiv(unitStart, 86400L);
+            if (day != currentDay) {
+                total += Math.min(dayTotal, 6000L);
+                dayTotal = 0L;
+                currentDay = day;
+            }
+            int minute = (int) (Math.floorMod(unitStart, 86400L) / 60);
+            if (inRange(minute, 17 * 60 + 15, 19 * 60 + 40)) {
+                dayTotal += 800L;
+            } else if (inRange(minute, 22 * 60 + 10, 7 * 60 + 50)) {
+                // 定额时段：停车的第一个单元，或者上一单元之后才进入该时段
+                int previous = minute - 60;
+                boolean leading = k == 0 || !inRange((previous + 1440) % 1440, 22 * 60 + 10, 7 * 60 + 50)
+                        || inRangeEntered(previous, minute);
+                if (leading) {
+                    dayTotal += 1200L;
+                }
+            } else {
+                dayTotal += 300L;
+            }
+        }
+        total += Math.min(dayTotal, 6000L);
+        return Math.min(total, 50000L);
+    }
+
+    private static boolean inRange(int minute, int start, int end) {
+        return start < end ? minute >= start && minute < end : minute >= start || minute < end;
+    }
+
+    /**
+     * 上一单元与本单元之间（不含上一单元开始分钟）是否跨入了夜间时段起点
+     */
+    private static boolean inRangeEntered(int previous, int minute) {
+        for (int m = previous + 1; m <= minute; m++) {
+            if ((m + 1440) % 1440 == 22 * 60 + 10) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,169 @@
+package com.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 业务单号生成器测试：格式、递增、序号用完等待下一秒、时钟回拨、并发唯一
+ */
+class OrderNoGeneratorTest {
+
+    private static final long SECOND = LocalDateTime.of(2025, 3, 1, 9, 5, 7)
+            .atZone(ZoneId.systemDefault()).toEpochSecond();
+
+    private static final long MILLIS = SECOND * 1000L;
+
+    /**
+     * 模拟时钟：等待即推进时钟，记录等待次数
+     */
+    private static final class FakeClock {
+        final AtomicLong millis = new AtomicLong(MILLIS);
+        final AtomicLong sleeps = new AtomicLong();
+
+        OrderNoGenerator generator(int workerId) {
+            return new OrderNoGenerator(workerId, millis::get, ms -> {
+                sleeps.incrementAndGet();
+                millis.addAndGet(ms);
+            });
+        }
+    }
+
+    private static OrderNoGenerator fixedClock(int workerId) {
+        return new OrderNoGenerator(workerId, () -> MILLIS, ms -> {
+            throw new AssertionError("unexpected wait");
+        });
+    }
+
+    @Test
+    void keepsExistingFormat() {
+        OrderNoGenerator generator = fixedClock(7);
+        assertEquals("CO20250301090507070000", generator.nextChargeOrderNo());
+        assertEquals("RC20250301090507070001", generator.nextRechargeNo());
+        assertEquals(22, generator.nextChargeOrderNo().length());
+    }
+
+    @Test
+    void matchesDateTimeFormatterAcrossSeconds() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+        AtomicLong clock = new AtomicLong(SECOND);
+        OrderNoGenerator generator = new OrderNoGenerator(0, () -> clock.get() * 1000L, ms -> {
+            throw new AssertionError("unexpected wait");
+        });
+        for (int i = 0; i < 200_000; i += 37) {
+            clock.set(SECOND + i * 3601L);
+            String expected = LocalDateTime.ofInstant(Instant.ofEpochSecond(clock.get()),
+                    ZoneId.systemDefault()).format(formatter);
+            assertEquals(expected, generator.nextChargeOrderNo().substring(2, 16));
+        }
+    }
+
+    @Test
+    void waitsForNextSecondWhenSequenceExhausted() {
+        FakeClock clock = new FakeClock();
+        clock.millis.set(MILLIS + 300);
+        OrderNoGenerator generator = clock.generator(3);
+        String previous = null;
+        for (int i = 0; i < OrderNoGenerator.SEQUENCE_PER_SECOND; i++) {
+            previous = generator.nextChargeOrderNo();
+        }
+        assertEquals("CO20250301090507039999", previous);
+        assertEquals(0L, clock.sleeps.get());
+
+        // 不借用下一秒：等到时钟进入下一秒再分配
+        assertEquals("CO20250301090508030000", generator.nextChargeOrderNo());
+        assertEquals(1L, clock.sleeps.get());
+        assertEquals(MILLIS + 1000L, clock.millis.get());
+    }
+
+    @Test
+    void restartAfterBurstDoesNotReissue() {
+        FakeClock clock = new FakeClock();
+        OrderNoGenerator before = clock.generator(4);
+        Set<String> issued = new HashSet<>();
+        for (int i = 0; i < OrderNoGenerator.SEQUENCE_PER_SECOND * 3; i++) {
+            issued.add(before.nextChargeOrderNo());
+        }
+        // 时间部分从未超过时钟，重启（新实例）后下一秒开始的单号与重启前不重复
+        clock.millis.addAndGet(1000L);
+        OrderNoGenerator after = clock.generator(4);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(issued.add(after.nextChargeOrderNo()));
+        }
+    }
+
+    @Test
+    void strictlyIncreasingWhenClockGoesBack() {
+        FakeClock clock = new FakeClock();
+        OrderNoGenerator generator = clock.generator(1);
+        String first = generator.nextChargeOrderNo();
+        clock.millis.set(MILLIS - 2000L);
+        String second = generator.nextChargeOrderNo();
+        assertTrue(second.compareTo(first) > 0, first + " -> " + second);
+        assertEquals(1L, clock.sleeps.get());
+    }
+
+    @Test
+    void rejectsLargeClockRollback() {
+        FakeClock clock = new FakeClock();
+        OrderNoGenerator generator = clock.generator(1);
+        generator.nextChargeOrderNo();
+        clock.millis.set(MILLIS - (OrderNoGenerator.MAX_CLOCK_BACKWARD_SECONDS + 1) * 1000L);
+        assertThrows(IllegalStateException.class, generator::nextChargeOrderNo);
+    }
+
+    @Test
+    void uniqueAcrossThreadsAndWorkers() throws InterruptedException {
+        int threads = 8;
+        int perThread = 20_000;
+        // 每个生成器 80000 个，序号用完时等待（推进模拟时钟）
+        OrderNoGenerator[] generators = {new FakeClock().generator(1), new FakeClock().generator(2)};
+        Set<String> issued = ConcurrentHashMap.newKeySet();
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            OrderNoGenerator generator = generators[t % generators.length];
+            Thread thread = new Thread(() -> {
+                Set<String> local = new HashSet<>();
+                String last = "";
+                for (int i = 0; i < perThread; i++) {
+                    String orderNo = generator.nextChargeOrderNo();
+                    if (orderNo.compareTo(last) <= 0) {
+                        throw new IllegalStateException("not increasing: " + last + " -> " + orderNo);
+                    }
+                    last = orderNo;
+                    local.add(orderNo);
+                }
+                issued.addAll(local);
+                done.countDown();
+            });
+            workers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : workers) {
+            thread.join();
+        }
+        assertEquals(0L, done.getCount());
+        assertEquals(threads * perThread, issued.size());
+    }
+
+    @Test
+    void rejectsOutOfRangeWorkerId() {
+        assertThrows(IllegalArgumentException.class, () -> fixedClock(100));
+        assertThrows(IllegalArgumentException.class, () -> fixedClock(-1));
+    }
+}
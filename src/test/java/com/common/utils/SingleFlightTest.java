@@ -0,0 +1,161 @@
+package com.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 并发请求合并测试：共享结果、共享异常、结束后释放 key、突发重放下的合并效果
+ */
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareOneExecution() throws Exception {
+        SingleFlight<Long, Object> flight = new SingleFlight<>();
+        Object result = new Object();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        int callers = 8;
+
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            futures.add(pool.submit(() -> flight.execute(1L, () -> {
+                runs.incrementAndGet();
+                awaitQuietly(release);
+                return result;
+            })));
+            waitUntil(() -> flight.getExecutions() == 1);
+            for (int i = 1; i < callers; i++) {
+                futures.add(pool.submit(() -> flight.execute(1L, () -> {
+                    runs.incrementAndGet();
+                    return new Object();
+                })));
+            }
+            waitUntil(() -> flight.getCoalesced() == callers - 1);
+            release.countDown();
+
+            for (Future<Object> future : futures) {
+                assertSame(result, future.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, runs.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void failureIsSharedAndKeyIsReleased() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = pool.submit(() -> flight.execute(1L, () -> {
+                awaitQuietly(release);
+                throw new IllegalStateException("boom");
+            }));
+            waitUntil(() -> flight.getExecutions() == 1);
+            Future<String> follower = pool.submit(() -> flight.execute(1L, () -> "unused"));
+            waitUntil(() -> flight.getCoalesced() == 1);
+            release.countDown();
+
+            for (Future<String> future : List.of(leader, follower)) {
+                Exception e = assertThrows(Exception.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // 失败后 key 已释放，下一次调用重新执行
+        assertEquals("ok", flight.execute(1L, () -> "ok"));
+        assertEquals(2L, flight.getExecutions());
+        assertEquals(0L, (long) flight.stats().get("inFlight"));
+    }
+
+    @Test
+    void differentKeysDoNotBlockEachOther() {
+        SingleFlight<Long, Long> flight = new SingleFlight<>();
+        long value = flight.execute(1L, () -> flight.execute(2L, () -> 1L));
+        assertEquals(1L, value);
+        assertEquals(2L, flight.getExecutions());
+        assertEquals(0L, flight.getCoalesced());
+    }
+
+    /**
+     * 模拟道闸重试 + 小程序同时结算：16 个线程对 8 条入场记录突发重放，
+     * 每次结算耗时约 2ms（相当于一次数据库事务），合并后实际执行次数应明显少于请求次数
+     */
+    @Test
+    void burstReplayRemovesDuplicateExecutions() throws Exception {
+        SingleFlight<Long, Long> flight = new SingleFlight<>();
+        int threads = 16;
+        int requestsPerThread = 50;
+        int records = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    awaitQuietly(start);
+                    for (int i = 0; i < requestsPerThread; i++) {
+                        long recordId = i % records;
+                        long value = flight.execute(recordId, () -> {
+                            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(2));
+                            return recordId;
+                        });
+                        assertEquals(recordId, value);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long total = (long) threads * requestsPerThread;
+        assertEquals(total, flight.getExecutions() + flight.getCoalesced());
+        assertTrue(flight.getExecutions() < total / 2,
+                "executions=" + flight.getExecutions() + ", coalesced=" + flight.getCoalesced());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface Condition {
+        boolean met();
+    }
+
+    private static void waitUntil(Condition condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.met()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("condition not met within 5s");
+            }
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.inout.gate;
+
+import com.inout.entity.DTO.GateEventDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 过车事件分区测试：同一车场按接收顺序处理、队列满时拒绝、处理异常不影响后续事件、关闭前处理完积压
+ */
+class GateEventPartitionsTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.parse("2025-03-01T08:00:00");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private GateEventPartitions partitions;
+
+    @AfterEach
+    void tearDown() {
+        if (partitions != null) {
+            partitions.shutdown(1000);
+        }
+    }
+
+    private GateEventPartitions start(int count, int capacity, Consumer<GateEventDTO> handler) {
+        partitions = new GateEventPartitions(count, capacity, handler, registry);
+        partitions.start();
+        return partitions;
+    }
+
+    private static GateEventDTO event(long lot, int seq) {
+        GateEventDTO event = new GateEventDTO();
+        event.setType(seq % 2 == 0 ? GateEventDTO.TYPE_ENTRY : GateEventDTO.TYPE_EXIT);
+        event.setParkingIotId(lot);
+        event.setPlateNumber("京A" + seq);
+        event.setEventTime(BASE.plusSeconds(seq));
+        return event;
+    }
+
+    @Test
+    void eventsOfOneLotAreHandledInOrder() throws Exception {
+        Map<Long, List<Integer>> seen = new ConcurrentHashMap<>();
+        int lots = 20;
+        int perLot = 500;
+        CountDownLatch done = new CountDownLatch(lots * perLot);
+        start(4, lots * perLot, e -> {
+            seen.computeIfAbsent(e.getParkingIotId(), k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add((int) Duration.between(BASE, e.getEventTime()).getSeconds());
+            done.countDown();
+        });
+
+        for (int seq = 0; seq < perLot; seq++) {
+            for (long lot = 1; lot <= lots; lot++) {
+                assertTrue(partitions.offer(event(lot, seq)));
+            }
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(lots, seen.size());
+        for (List<Integer> order : seen.values()) {
+            assertEquals(perLot, order.size());
+            for (int i = 0; i < perLot; i++) {
+                assertEquals(i, (int) order.get(i));
+            }
+        }
+    }
+
+    @Test
+    void sameLotAlwaysMapsToSamePartition() {
+        GateEventPartitions p = new GateEventPartitions(8, 1, e -> { }, registry);
+        boolean[] used = new boolean[8];
+        for (long lot = 1; lot <= 200; lot++) {
+            int index = p.partitionOf(lot);
+            assertEquals(index, p.partitionOf(lot));
+            used[index] = true;
+        }
+        for (boolean u : used) {
+            assertTrue(u);
+        }
+    }
+
+    @Test
+    void fullPartitionRejects() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        start(1, 2, e -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(partitions.offer(event(1, 0)));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        assertTrue(partitions.offer(event(1, 1)));
+        assertTrue(partitions.offer(event(1, 2)));
+        assertFalse(partitions.offer(event(1, 3)));
+        assertEquals(2, ((Number) partitions.stats().get(0).get("depth")).intValue());
+        release.countDown();
+    }
+
+    @Test
+    void handlerFailureDoesNotStopPartition() throws Exception {
+        CountDownLatch done = new CountDownLatch(3);
+        start(1, 10, e -> {
+            done.countDown();
+            if (e.getPlateNumber().endsWith("1")) {
+                throw new IllegalStateException("boom");
+            }
+        });
+        for (int seq = 0; seq < 3; seq++) {
+            partitions.offer(event(1, seq));
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1D, registry.get("gate.ingest.failed").counter().count());
+    }
+
+    @Test
+    void shutdownDrainsBacklog() {
+        List<GateEventDTO> handled = Collections.synchronizedList(new ArrayList<>());
+        start(2, 1000, e -> {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            handled.add(e);
+        });
+        for (int seq = 0; seq < 200; seq++) {
+            partitions.offer(event(seq % 5, seq));
+        }
+        partitions.shutdown(10_000);
+        assertEquals(200, handled.size());
+        assertFalse(partitions.offer(event(1, 0)));
+    }
+}
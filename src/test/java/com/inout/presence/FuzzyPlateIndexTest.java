@@ -0,0 +1,63 @@
+package com.inout.presence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 车牌近似匹配：易混字符、一次任意编辑、歧义时不匹配、纠正冲突
+ */
+class FuzzyPlateIndexTest {
+
+    @Test
+    void weightedDistance() {
+        assertEquals(0, FuzzyPlateIndex.distance("京A1234B", "京A1234B"));
+        // 2/Z 易混
+        assertEquals(1, FuzzyPlateIndex.distance("京A1Z34B", "京A1234B"));
+        // 两处易混（0/O、8/B）
+        assertEquals(2, FuzzyPlateIndex.distance("京AO234B", "京A02348"));
+        // 一次普通替换、一次插入
+        assertEquals(2, FuzzyPlateIndex.distance("京A1234C", "京A1234B"));
+        assertEquals(2, FuzzyPlateIndex.distance("京A12345B", "京A1234B"));
+        // 超过阈值
+        assertTrue(FuzzyPlateIndex.distance("京A1Z34C", "京A1234B") > FuzzyPlateIndex.MAX_COST);
+        assertTrue(FuzzyPlateIndex.distance("京A1", "京A1234B") > FuzzyPlateIndex.MAX_COST);
+    }
+
+    @Test
+    void matchesNearestPlate() {
+        FuzzyPlateIndex index = new FuzzyPlateIndex(Arrays.asList("京A1234B", "沪C55555", "粤B88888"));
+        assertEquals("京A1234B", index.match("京A1Z34B"));
+        assertEquals("京A1234B", index.match("京A134B"));
+        assertEquals("沪C55555", index.match("沪C5555"));
+        assertEquals("粤B88888", index.match("粤BBB888"));
+        assertNull(index.match("苏E12345"));
+    }
+
+    @Test
+    void confusableBeatsPlainEdit() {
+        FuzzyPlateIndex index = new FuzzyPlateIndex(Arrays.asList("京A12340", "京A12341"));
+        // O 与 0 易混（1），与 1 为普通替换（2）
+        assertEquals("京A12340", index.match("京A1234O"));
+    }
+
+    @Test
+    void ambiguousMatchIsRejected() {
+        FuzzyPlateIndex index = new FuzzyPlateIndex(Arrays.asList("京A12345", "京A12346"));
+        assertNull(index.match("京A12347"));
+    }
+
+    @Test
+    void correctionsClaimingSamePlateAreDropped() {
+        Map<String, String> corrections = FuzzyPlateIndex.correct(
+                Arrays.asList("京A1Z34B", "京A12348", "沪C5555"),
+                Arrays.asList("京A1234B", "沪C55555"));
+        assertEquals(Collections.singletonMap("沪C5555", "沪C55555"), corrections);
+    }
+}
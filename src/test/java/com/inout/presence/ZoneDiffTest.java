@@ -0,0 +1,135 @@
+package com.inout.presence;
+
+import com.parking.entity.ParkingRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 数据库兜底的差异计算：离场、入场、疑似离场、重复在场记录、车牌为空的记录、沿用上一次的离场迟滞状态
+ */
+class ZoneDiffTest {
+
+    private static final LocalDateTime SCAN_TIME = LocalDateTime.parse("2025-03-01T10:00:00");
+
+    private static ParkingRecord record(long id, String plate) {
+        ParkingRecord record = new ParkingRecord();
+        record.setId(id);
+        record.setPlateNumber(plate);
+        return record;
+    }
+
+    @Test
+    void departuresAndArrivals() {
+        ZoneDiff diff = ZoneDiff.compute(
+                Arrays.asList(record(1, "A1"), record(2, "B2"), record(3, "C3")),
+                new LinkedHashSet<>(Arrays.asList("B2", "D4", "E5")), SCAN_TIME, 1);
+        assertEquals(Arrays.asList("A1", "C3"), diff.getDepartedPlates());
+        assertEquals(Arrays.asList(1L, 3L), diff.getDepartedRecordIds());
+        assertEquals(Arrays.asList(SCAN_TIME, SCAN_TIME), diff.getDepartedOutTimes());
+        assertEquals(Arrays.asList("D4", "E5"), diff.getArrivedPlates());
+        assertTrue(diff.getMissingPlates().isEmpty());
+    }
+
+    @Test
+    void firstMissBelowThresholdIsPending() {
+        ZoneDiff diff = ZoneDiff.compute(
+                Arrays.asList(record(1, "A1"), record(2, "B2")),
+                Collections.singleton("B2"), SCAN_TIME, 3);
+        assertTrue(diff.getDepartedRecordIds().isEmpty());
+        assertEquals(Collections.singletonList("A1"), diff.getMissingPlates());
+        assertTrue(diff.getArrivedPlates().isEmpty());
+    }
+
+    @Test
+    void duplicateInRecordsAllDepart() {
+        ZoneDiff diff = ZoneDiff.compute(
+                Arrays.asList(record(1, "A1"), record(2, "A1")),
+                Collections.emptySet(), SCAN_TIME, 1);
+        assertEquals(Collections.singletonList("A1"), diff.getDepartedPlates());
+        assertEquals(Arrays.asList(1L, 2L), diff.getDepartedRecordIds());
+    }
+
+    @Test
+    void recordWithoutPlateDepartsRegardlessOfThreshold() {
+        ZoneDiff diff = ZoneDiff.compute(
+                Arrays.asList(record(1, null), record(2, "B2")),
+                Collections.singleton("B2"), SCAN_TIME, 3);
+        assertTrue(diff.getDepartedPlates().isEmpty());
+        assertEquals(Collections.singletonList(1L), diff.getDepartedRecordIds());
+        assertTrue(diff.getArrivedPlates().isEmpty());
+        assertTrue(diff.getMissingPlates().isEmpty());
+    }
+
+    @Test
+    void departuresGroupedByLastSighting() {
+        LocalDateTime earlier = SCAN_TIME.minusMinutes(30);
+        ZoneDiff diff = new ZoneDiff(Arrays.asList("A1", "B2", "C3"), Arrays.asList(1L, 2L, 3L),
+                Arrays.asList(earlier, SCAN_TIME, earlier), Collections.emptyList(), Collections.emptyList(), 0);
+        Map<LocalDateTime, List<Long>> grouped = diff.departuresByOutTime();
+        assertEquals(2, grouped.size());
+        assertEquals(Arrays.asList(1L, 3L), grouped.get(earlier));
+        assertEquals(Collections.singletonList(2L), grouped.get(SCAN_TIME));
+    }
+
+    @Test
+    void missesAccumulateAcrossFallbackScans() {
+        List<ParkingRecord> records = Arrays.asList(record(1, "A1"), record(2, "B2"));
+        LocalDateTime first = SCAN_TIME;
+        LocalDateTime second = SCAN_TIME.plusMinutes(10);
+        LocalDateTime third = SCAN_TIME.plusMinutes(20);
+
+        // 上一次巡检两辆车都扫到
+        ZoneMisses previous = new ZoneMisses(new HashMap<>(), first.minusMinutes(10));
+        ZoneDiff diff = ZoneDiff.compute(records, Collections.singleton("B2"), first, 3, previous);
+        assertEquals(Collections.singletonList("A1"), diff.getMissingPlates());
+        assertEquals(1, diff.getMisses().get("A1").getCount());
+        assertEquals(first.minusMinutes(10), diff.getMisses().get("A1").getLastSeen());
+        assertEquals(first, diff.getMisses().getLastScan());
+
+        diff = ZoneDiff.compute(records, Collections.singleton("B2"), second, 3, diff.getMisses());
+        assertTrue(diff.getDepartedRecordIds().isEmpty());
+        assertEquals(2, diff.getMisses().get("A1").getCount());
+
+        // 第三次未扫到达到阈值：出场时间为最后一次扫到的时间
+        diff = ZoneDiff.compute(records, Collections.singleton("B2"), third, 3, diff.getMisses());
+        assertEquals(Collections.singletonList("A1"), diff.getDepartedPlates());
+        assertEquals(Collections.singletonList(1L), diff.getDepartedRecordIds());
+        assertEquals(Collections.singletonList(first.minusMinutes(10)), diff.getDepartedOutTimes());
+        assertTrue(diff.getMisses().getMisses().isEmpty());
+    }
+
+    @Test
+    void rescannedPlateRecoversAndClearsMiss() {
+        Map<String, ZoneMisses.Miss> misses = new HashMap<>();
+        misses.put("A1", new ZoneMisses.Miss(2, SCAN_TIME.minusMinutes(30)));
+        misses.put("C3", new ZoneMisses.Miss(1, SCAN_TIME.minusMinutes(10)));
+        ZoneDiff diff = ZoneDiff.compute(Arrays.asList(record(1, "A1"), record(2, "B2")),
+                new LinkedHashSet<>(Arrays.asList("A1", "B2")), SCAN_TIME, 3,
+                new ZoneMisses(misses, SCAN_TIME.minusMinutes(10)));
+        assertEquals(1, diff.getRecoveredCount());
+        assertTrue(diff.getDepartedRecordIds().isEmpty());
+        assertTrue(diff.getMissingPlates().isEmpty());
+        assertTrue(diff.getMisses().getMisses().isEmpty());
+    }
+
+    @Test
+    void newerStateWins() {
+        ZoneMisses older = new ZoneMisses(new HashMap<>(), SCAN_TIME);
+        ZoneMisses newer = new ZoneMisses(new HashMap<>(), SCAN_TIME.plusMinutes(10));
+        assertSame(newer, ZoneMisses.newer(older, newer));
+        assertSame(newer, ZoneMisses.newer(newer, older));
+        assertSame(older, ZoneMisses.newer(older, ZoneMisses.empty()));
+        assertSame(older, ZoneMisses.newer(ZoneMisses.empty(), older));
+    }
+}
@@ -0,0 +1,70 @@
+package com.parking.occupancy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 占用增量测试：drain 取走并清零、restore 放回、并发累加与 drain 交错时总数不丢
+ */
+class LotCountersTest {
+
+    @Test
+    void drainReturnsNonZeroDeltasAndResets() {
+        LotCounters counters = new LotCounters();
+        counters.add(1L, 3);
+        counters.add(1L, -1);
+        counters.add(2L, 1);
+        counters.add(2L, -1);
+        counters.add(null, 5);
+
+        Map<Long, Long> drained = counters.drain();
+        assertEquals(1, drained.size());
+        assertEquals(2L, (long) drained.get(1L));
+        assertEquals(0L, counters.pending(1L));
+        assertTrue(counters.drain().isEmpty());
+
+        counters.restore(drained);
+        assertEquals(2L, counters.pending(1L));
+        assertEquals(2L, (long) counters.pendingAll().get(1L));
+    }
+
+    @Test
+    void concurrentAddsSurviveDrains() throws Exception {
+        LotCounters counters = new LotCounters();
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong flushed = new AtomicLong();
+        Thread flusher = new Thread(() -> {
+            while (!stop.get()) {
+                counters.drain().values().forEach(flushed::addAndGet);
+            }
+        });
+        flusher.start();
+
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long lot = t % 2;
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    counters.add(lot, 1);
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        stop.set(true);
+        flusher.join();
+        counters.drain().values().forEach(flushed::addAndGet);
+        assertEquals(400_000L, flushed.get());
+    }
+}